@@ -0,0 +1,95 @@
+package com.airtasker.ratelimiter.benchmarks;
+
+import com.airtasker.ratelimiter.core.KeyBasedRateLimiter;
+import com.airtasker.ratelimiter.core.ManualTicker;
+import com.airtasker.ratelimiter.core.Rate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Cost of one run of the periodic cleanup task of {@link KeyBasedRateLimiter}
+ *
+ * The task is captured instead of scheduled, and it runs once per invocation after the ticker is advanced:
+ *
+ * * {@code idle = false}: no key became idle since the last run, the common case which should not depend
+ *   on the number of keys
+ * * {@code idle = true}: all the keys became idle at once and are removed, the worst case
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 50)
+public class KeyBasedCleanupBenchmark {
+
+    private static final Rate RATE = Rate.of(10, Duration.ofSeconds(1));
+    private static final Duration CLEANUP_DELAY = Duration.ofMillis(10);
+
+    @Param({"1000", "100000", "1000000"})
+    private int keys;
+
+    @Param({"false", "true"})
+    private boolean idle;
+
+    private CapturingExecutor executor;
+    private ManualTicker ticker;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        executor = new CapturingExecutor();
+        ticker = new ManualTicker();
+        final var rateLimiter = new KeyBasedRateLimiter<Long, Long>(Function.identity(),
+                ignored -> Limiters.GCRA.create(RATE, ticker, executor), RATE.window(),
+                KeyBasedRateLimiter.UNBOUNDED, ticker, executor);
+        for (var key = 0L; key < keys; key++) {
+            rateLimiter.accept(key);
+        }
+        ticker.advance(idle ? RATE.window().multipliedBy(2) : CLEANUP_DELAY);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void cleanup() {
+        executor.cleanupTask.run();
+    }
+
+    /**
+     * Executor keeping the periodic task to run it from the benchmark
+     */
+    private static final class CapturingExecutor extends ScheduledThreadPoolExecutor {
+
+        private Runnable cleanupTask;
+
+        private CapturingExecutor() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                                                         TimeUnit unit) {
+            cleanupTask = command;
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.airtasker.ratelimiter.benchmarks;
+
+import com.airtasker.ratelimiter.core.KeyBasedRateLimiter;
+import com.airtasker.ratelimiter.core.LongKeyBasedRateLimiter;
+import com.airtasker.ratelimiter.core.Rate;
+import com.airtasker.ratelimiter.core.RateLimiter;
+import com.airtasker.ratelimiter.core.StripedLongKeyStateStore;
+import com.airtasker.ratelimiter.core.Ticker;
+import com.airtasker.ratelimiter.core.internal.DefaultCleanupThreadFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Throughput and latency of rate limiters keeping one limit per key, with requests spread uniformly over the keys
+ *
+ * All the keys are used once before measuring, so the benchmark measures the lookup of existing keys and not
+ * their creation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KeyBasedRateLimiterBenchmark {
+
+    public enum KeyBased {
+        KEY_BASED_GCRA,
+        KEY_BASED_SLIDING_WINDOW_COUNTER,
+        LONG_KEY_BASED
+    }
+
+    @Param
+    private KeyBased keyBased;
+
+    @Param({"1", "1000", "1000000", "10000000"})
+    private int keys;
+
+    private ScheduledExecutorService executor;
+    private RateLimiter<Long> rateLimiter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final var rate = Rate.of(100, Duration.ofSeconds(1));
+        final var ticker = Ticker.systemTicker();
+        executor = Executors.newSingleThreadScheduledExecutor(DefaultCleanupThreadFactory.INSTANCE);
+        switch (keyBased) {
+            case KEY_BASED_GCRA:
+                rateLimiter = new KeyBasedRateLimiter<>(Function.identity(),
+                        ignored -> Limiters.GCRA.create(rate, ticker, executor),
+                        rate.window(), KeyBasedRateLimiter.UNBOUNDED, ticker, executor);
+                break;
+            case KEY_BASED_SLIDING_WINDOW_COUNTER:
+                rateLimiter = new KeyBasedRateLimiter<>(Function.identity(),
+                        ignored -> Limiters.SLIDING_WINDOW_COUNTER.create(rate, ticker, executor),
+                        rate.window(), KeyBasedRateLimiter.UNBOUNDED, ticker, executor);
+                break;
+            case LONG_KEY_BASED:
+                rateLimiter = new LongKeyBasedRateLimiter<>(Long::longValue, rate,
+                        new StripedLongKeyStateStore(1), ticker);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown key based rate limiter " + keyBased);
+        }
+
+        for (var key = 0L; key < keys; key++) {
+            rateLimiter.accept(key);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+
+        private final SplittableRandom random = new SplittableRandom();
+
+        Long next(int keys) {
+            return (long) random.nextInt(keys);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Optional<Duration> threads01(Keys keys) {
+        return rateLimiter.accept(keys.next(this.keys));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<Duration> threads04(Keys keys) {
+        return rateLimiter.accept(keys.next(this.keys));
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Optional<Duration> threads16(Keys keys) {
+        return rateLimiter.accept(keys.next(this.keys));
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Optional<Duration> threads64(Keys keys) {
+        return rateLimiter.accept(keys.next(this.keys));
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.airtasker.ratelimiter.benchmarks;
+
+import com.airtasker.ratelimiter.core.GcraRateLimiter;
+import com.airtasker.ratelimiter.core.Rate;
+import com.airtasker.ratelimiter.core.RateLimiter;
+import com.airtasker.ratelimiter.core.SlidingLogBlockingWithCleanupThreadRateLimiter;
+import com.airtasker.ratelimiter.core.SlidingLogRingBufferRateLimiter;
+import com.airtasker.ratelimiter.core.SlidingWindowCounterRateLimiter;
+import com.airtasker.ratelimiter.core.Ticker;
+import com.airtasker.ratelimiter.core.TokenBucketRateLimiter;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * The rate limiters compared by the benchmarks
+ */
+public enum Limiters {
+
+    SLIDING_LOG_BLOCKING {
+        @Override
+        <R> RateLimiter<R> create(Rate rate, Ticker ticker, ScheduledExecutorService executor) {
+            return new SlidingLogBlockingWithCleanupThreadRateLimiter<>(rate, ticker, executor);
+        }
+    },
+    SLIDING_LOG_RING_BUFFER {
+        @Override
+        <R> RateLimiter<R> create(Rate rate, Ticker ticker, ScheduledExecutorService executor) {
+            return new SlidingLogRingBufferRateLimiter<>(rate, ticker);
+        }
+    },
+    SLIDING_WINDOW_COUNTER {
+        @Override
+        <R> RateLimiter<R> create(Rate rate, Ticker ticker, ScheduledExecutorService executor) {
+            return new SlidingWindowCounterRateLimiter<>(rate, SUB_WINDOWS, ticker);
+        }
+    },
+    TOKEN_BUCKET {
+        @Override
+        <R> RateLimiter<R> create(Rate rate, Ticker ticker, ScheduledExecutorService executor) {
+            return new TokenBucketRateLimiter<>(rate, ticker);
+        }
+    },
+    GCRA {
+        @Override
+        <R> RateLimiter<R> create(Rate rate, Ticker ticker, ScheduledExecutorService executor) {
+            return new GcraRateLimiter<>(rate, ticker);
+        }
+    };
+
+    private static final int SUB_WINDOWS = 10;
+
+    /**
+     * @param executor Executor for the rate limiters which need cleanup tasks
+     */
+    abstract <R> RateLimiter<R> create(Rate rate, Ticker ticker, ScheduledExecutorService executor);
+
+}
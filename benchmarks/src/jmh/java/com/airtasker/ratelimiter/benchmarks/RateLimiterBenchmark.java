@@ -0,0 +1,92 @@
+package com.airtasker.ratelimiter.benchmarks;
+
+import com.airtasker.ratelimiter.core.Rate;
+import com.airtasker.ratelimiter.core.RateLimiter;
+import com.airtasker.ratelimiter.core.Ticker;
+import com.airtasker.ratelimiter.core.internal.DefaultCleanupThreadFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency of {@link RateLimiter#accept(Object)} of a single rate limiter shared by all the threads
+ *
+ * The window of the rate is one second, so once the burst is taken most of the requests are rejected, which is
+ * the path a rate limiter takes under attack. Every thread count is a different benchmark method, as JMH
+ * does not allow to use the number of threads as parameter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RateLimiterBenchmark {
+
+    private static final String REQUEST = "request";
+
+    @Param
+    private Limiters limiter;
+
+    @Param({"10", "1000", "100000"})
+    private long requests;
+
+    private ScheduledExecutorService executor;
+    private RateLimiter<String> rateLimiter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor(DefaultCleanupThreadFactory.INSTANCE);
+        rateLimiter = limiter.create(Rate.of(requests, Duration.ofSeconds(1)), Ticker.systemTicker(), executor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Optional<Duration> threads01() {
+        return rateLimiter.accept(REQUEST);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<Duration> threads04() {
+        return rateLimiter.accept(REQUEST);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Optional<Duration> threads16() {
+        return rateLimiter.accept(REQUEST);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Optional<Duration> threads64() {
+        return rateLimiter.accept(REQUEST);
+    }
+
+    /**
+     * Same as {@link #threads01()} with the primitive decision, to compare the allocation rate
+     */
+    @Benchmark
+    @Threads(1)
+    public long tryAcceptThreads01() {
+        return rateLimiter.tryAccept(REQUEST, 1L);
+    }
+
+}
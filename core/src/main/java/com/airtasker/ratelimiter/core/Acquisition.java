@@ -0,0 +1,112 @@
+package com.airtasker.ratelimiter.core;
+
+import com.airtasker.ratelimiter.core.internal.DefaultCleanupThreadFactory;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acquisition of permits which waits instead of being rejected, see {@link RateLimiter#acquire(Object)}
+ *
+ * The request is retried once the duration returned by the rate limiter elapses. All the retries of all the
+ * rate limiters are scheduled in a single shared timer thread, so no thread is blocked while waiting. A request
+ * needing more permits than the limit of the quota of the rate limiter is never granted, so it is not retried.
+ *
+ * @param <R> The type of requests
+ */
+final class Acquisition<R> implements Runnable {
+
+    static final long UNBOUNDED_WAIT_NANOS = Long.MAX_VALUE;
+
+    // Avoids spinning when the rate limiter asks to retry right away
+    private static final long MIN_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final String THREAD_TEMPLATE = "airtasker-ratelimiter-acquire-timer-%d";
+    private static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(new DefaultCleanupThreadFactory(THREAD_TEMPLATE));
+
+    private final RateLimiter<R> rateLimiter;
+    private final R request;
+    private final long permits;
+    private final long maxWaitNanos;
+    private final long startNanos = System.nanoTime();
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private boolean retried;
+
+    private Acquisition(RateLimiter<R> rateLimiter, R request, long permits, long maxWaitNanos) {
+        this.rateLimiter = rateLimiter;
+        this.request = request;
+        this.permits = permits;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    /**
+     * Tries the request right away in the calling thread, and in case it is rejected schedules a retry
+     *
+     * @return A stage completed once the permits are granted
+     */
+    static <R> CompletionStage<Void> start(RateLimiter<R> rateLimiter, R request, long permits, long maxWaitNanos) {
+        Permits.check(permits);
+        if (maxWaitNanos < 0) {
+            throw new IllegalArgumentException("Maximum wait should not be negative");
+        }
+        final var acquisition = new Acquisition<>(rateLimiter, request, permits, maxWaitNanos);
+        acquisition.run();
+        return acquisition.future;
+    }
+
+    /**
+     * @return The duration in nanoseconds, saturated to {@link #UNBOUNDED_WAIT_NANOS}
+     */
+    static long toWaitNanos(Duration maxWait) {
+        try {
+            return maxWait.toNanos();
+        } catch (ArithmeticException ex) {
+            return maxWait.isNegative() ? -1L : UNBOUNDED_WAIT_NANOS;
+        }
+    }
+
+    @Override
+    public void run() {
+        // The caller could have cancelled the stage
+        if (future.isDone()) {
+            return;
+        }
+
+        final long waitNanos;
+        final boolean exceedsLimit;
+        try {
+            waitNanos = rateLimiter.tryAccept(request, permits);
+            exceedsLimit = waitNanos != Decisions.ACCEPTED && !retried && exceedsLimit();
+        } catch (RuntimeException ex) {
+            future.completeExceptionally(ex);
+            return;
+        }
+
+        if (waitNanos == Decisions.ACCEPTED) {
+            future.complete(null);
+            return;
+        }
+
+        final var remainingNanos = maxWaitNanos - (System.nanoTime() - startNanos);
+        if (waitNanos > remainingNanos || exceedsLimit) {
+            future.completeExceptionally(new RateLimitExceededException(Duration.ofNanos(waitNanos)));
+            return;
+        }
+        retried = true;
+        TIMER.schedule(this, Math.max(MIN_RETRY_NANOS, waitNanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Only checked when the request is first rejected, the quota is not needed by the accepted requests
+     *
+     * @return true when the rate limiter can never grant so many permits
+     */
+    private boolean exceedsLimit() {
+        return rateLimiter.quota(request).map(quota -> permits > quota.limit()).orElse(false);
+    }
+
+}
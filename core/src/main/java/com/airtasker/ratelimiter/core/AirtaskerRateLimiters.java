@@ -1,15 +1,20 @@
 package com.airtasker.ratelimiter.core;
 
-import com.airtasker.ratelimiter.core.internal.DefaultCleanupThreadFactory;
-
 import java.time.Clock;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 /**
  * Builders methods for creation of different rate limiters implementation
  * based on default values.
+ *
+ * Unless a ticker is provided, the rate limiters use the monotonic {@link Ticker#systemTicker()}, so they are not
+ * affected by adjustments of the wall clock. The ones keeping the state of the keys in a {@link LongKeyStateStore}
+ * use the wall clock instead, so the state is still valid after a restart when the store is persistent.
+ *
+ * The background tasks of all the rate limiters created here share the scheduler of
+ * {@link RateLimiterRegistry#defaultRegistry()}, so there is a single cleanup thread no matter how many there are.
  */
 public final class AirtaskerRateLimiters {
 
@@ -18,14 +23,14 @@ public final class AirtaskerRateLimiters {
     /**
      * Creates a new instance of {@link SlidingLogBlockingWithCleanupThreadRateLimiter} with the provided rate
      *
-     * This methods spawns one thread for the cleanup process
+     * The cleanup tasks run in the single thread of {@link RateLimiterRegistry#defaultRegistry()}
      * @param rate The rate limit
      * @param <T> Type of request to limit
      * @return A rate limiter based on {@link SlidingLogBlockingWithCleanupThreadRateLimiter}
      */
     public static <T> RateLimiter<T> slidingLogBlockingWithCleanup(Rate rate) {
         return new SlidingLogBlockingWithCleanupThreadRateLimiter<>(
-                rate, Clock.systemDefaultZone(), createDefaultExecutor());
+                rate, Ticker.systemTicker(), defaultScheduler());
     }
 
     /**
@@ -40,14 +45,171 @@ public final class AirtaskerRateLimiters {
      * @return A rate limiter based on {@link SlidingLogBlockingWithCleanupThreadRateLimiter}
      */
     public static <T> RateLimiter<T> slidingLogBlockingWithCleanup(Rate rate, ScheduledExecutorService executorService) {
-        return new SlidingLogBlockingWithCleanupThreadRateLimiter<>(
-                rate, Clock.systemDefaultZone(), executorService);
+        return slidingLogBlockingWithCleanup(rate, executorService, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new instance of {@link SlidingLogBlockingWithCleanupThreadRateLimiter} with the provided rate,
+     * executor service and ticker
+     *
+     * @param rate The rate limit
+     * @param ticker The ticker used to obtain current time
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link SlidingLogBlockingWithCleanupThreadRateLimiter}
+     */
+    public static <T> RateLimiter<T> slidingLogBlockingWithCleanup(Rate rate, ScheduledExecutorService executorService,
+                                                                   Ticker ticker) {
+        return new SlidingLogBlockingWithCleanupThreadRateLimiter<>(rate, ticker, executorService);
+    }
+
+    /**
+     * Creates a new instance of {@link SlidingLogRingBufferRateLimiter} with the provided rate
+     *
+     * The returned rate limiter is exact and does not need any cleanup thread, but it preallocates
+     * the log for all the requests of the rate
+     *
+     * @param rate The rate limit
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link SlidingLogRingBufferRateLimiter}
+     */
+    public static <T> RateLimiter<T> slidingLogRingBuffer(Rate rate) {
+        return slidingLogRingBuffer(rate, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new instance of {@link SlidingLogRingBufferRateLimiter} with the provided rate and ticker
+     *
+     * @param rate The rate limit
+     * @param ticker The ticker used to obtain current time
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link SlidingLogRingBufferRateLimiter}
+     */
+    public static <T> RateLimiter<T> slidingLogRingBuffer(Rate rate, Ticker ticker) {
+        return new SlidingLogRingBufferRateLimiter<>(rate, ticker);
+    }
+
+    /**
+     * Creates a new instance of {@link SlidingWindowCounterRateLimiter} with the provided rate
+     *
+     * The memory used by the returned rate limiter depends on the number of sub windows, not on the
+     * requests of the rate. See {@link SlidingWindowCounterRateLimiter} for the precision trade-off
+     *
+     * @param rate The rate limit
+     * @param subWindows The number of buckets the window of the rate is divided in
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link SlidingWindowCounterRateLimiter}
+     */
+    public static <T> RateLimiter<T> slidingWindowCounter(Rate rate, int subWindows) {
+        return slidingWindowCounter(rate, subWindows, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new instance of {@link SlidingWindowCounterRateLimiter} with the provided rate and ticker
+     *
+     * @param rate The rate limit
+     * @param subWindows The number of buckets the window of the rate is divided in
+     * @param ticker The ticker used to obtain current time
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link SlidingWindowCounterRateLimiter}
+     */
+    public static <T> RateLimiter<T> slidingWindowCounter(Rate rate, int subWindows, Ticker ticker) {
+        return new SlidingWindowCounterRateLimiter<>(rate, subWindows, ticker);
+    }
+
+    /**
+     * Creates a new instance of {@link TokenBucketRateLimiter} with the provided rate
+     *
+     * The returned rate limiter is lock free and does not need any cleanup thread
+     *
+     * @param rate The rate limit
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link TokenBucketRateLimiter}
+     */
+    public static <T> RateLimiter<T> tokenBucket(Rate rate) {
+        return tokenBucket(rate, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new instance of {@link TokenBucketRateLimiter} with the provided rate and ticker
+     *
+     * @param rate The rate limit
+     * @param ticker The ticker used to obtain current time
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link TokenBucketRateLimiter}
+     */
+    public static <T> RateLimiter<T> tokenBucket(Rate rate, Ticker ticker) {
+        return new TokenBucketRateLimiter<>(rate, ticker);
+    }
+
+    /**
+     * Creates a new instance of {@link GcraRateLimiter} with the provided rate
+     *
+     * The returned rate limiter is lock free, only keeps one {@code long} of state and does not need
+     * any cleanup thread
+     *
+     * @param rate The rate limit
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link GcraRateLimiter}
+     */
+    public static <T> RateLimiter<T> gcra(Rate rate) {
+        return gcra(rate, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new instance of {@link GcraRateLimiter} with the provided rate and ticker
+     *
+     * @param rate The rate limit
+     * @param ticker The ticker used to obtain current time
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link GcraRateLimiter}
+     */
+    public static <T> RateLimiter<T> gcra(Rate rate, Ticker ticker) {
+        return new GcraRateLimiter<>(rate, ticker);
+    }
+
+    /**
+     * Creates a new instance of {@link ConcurrencyRateLimiter} with the provided maximum of concurrent permits
+     *
+     * The returned rate limiter is lock free, and the permits of every accepted request need to be given back
+     * with {@link RateLimiter#release(Object, long)}
+     *
+     * @param maxConcurrent Maximum number of permits taken at the same time
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link ConcurrencyRateLimiter}
+     */
+    public static <T> RateLimiter<T> concurrency(long maxConcurrent) {
+        return new ConcurrencyRateLimiter<>(maxConcurrent);
+    }
+
+    /**
+     * Creates a new instance of {@link MultiGcraRateLimiter} with the provided policy
+     *
+     * The returned rate limiter only accepts a request when all the rates of the policy accept it
+     *
+     * @param policy The rates to satisfy
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link MultiGcraRateLimiter}
+     */
+    public static <T> RateLimiter<T> multiGcra(RatePolicy policy) {
+        return multiGcra(policy, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new instance of {@link MultiGcraRateLimiter} with the provided policy and ticker
+     *
+     * @param policy The rates to satisfy
+     * @param ticker The ticker used to obtain current time
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link MultiGcraRateLimiter}
+     */
+    public static <T> RateLimiter<T> multiGcra(RatePolicy policy, Ticker ticker) {
+        return new MultiGcraRateLimiter<>(policy, ticker);
     }
 
     /**
      * Creates a new instance of {@link KeyBasedRateLimiter} with the provided rate and key provider
      *
-     * This methods spawns one thread for the cleanup process for all the rate limiters.
+     * The cleanup tasks run in the single thread of {@link RateLimiterRegistry#defaultRegistry()}.
      *
      * The returned rate limiter will maintain different limits based on the keys, each of the keys
      * will have associated a default rate limiter implementation based on
@@ -58,14 +220,240 @@ public final class AirtaskerRateLimiters {
      * @return A rate limiter based on {@link SlidingLogBlockingWithCleanupThreadRateLimiter}
      */
     public static <T, K> RateLimiter<T> defaultKeyBasedRateLimiter(Rate rate, Function<T, K> keyProvider) {
-        final var executorService = createDefaultExecutor();
-        return new KeyBasedRateLimiter<>(keyProvider, ignored -> slidingLogBlockingWithCleanup(rate, executorService),
-                executorService);
+        return defaultKeyBasedRateLimiter(rate, keyProvider, Ticker.systemTicker());
     }
 
-    private static ScheduledExecutorService createDefaultExecutor() {
-        return Executors.newSingleThreadScheduledExecutor(DefaultCleanupThreadFactory.INSTANCE);
+    /**
+     * Creates a new instance of {@link KeyBasedRateLimiter} with the provided rate, key provider and ticker
+     *
+     * See {@link #defaultKeyBasedRateLimiter(Rate, Function)}.
+     *
+     * @param rate The rate limit
+     * @param ticker The ticker used to obtain current time, by the key based rate limiter and its delegates
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link SlidingLogBlockingWithCleanupThreadRateLimiter}
+     */
+    public static <T, K> RateLimiter<T> defaultKeyBasedRateLimiter(Rate rate, Function<T, K> keyProvider,
+                                                                   Ticker ticker) {
+        return defaultKeyBasedRateLimiter(rate, keyProvider, defaultScheduler(), ticker);
     }
 
+    /**
+     * Creates a new instance of {@link KeyBasedRateLimiter} with the provided rate, key provider, executor service
+     * and ticker
+     *
+     * The cleanup tasks of the key based rate limiter and its delegates are scheduled in the executor service.
+     * See {@link #defaultKeyBasedRateLimiter(Rate, Function)}.
+     *
+     * @param rate The rate limit
+     * @param ticker The ticker used to obtain current time, by the key based rate limiter and its delegates
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link SlidingLogBlockingWithCleanupThreadRateLimiter}
+     */
+    public static <T, K> RateLimiter<T> defaultKeyBasedRateLimiter(Rate rate, Function<T, K> keyProvider,
+                                                                   ScheduledExecutorService executorService,
+                                                                   Ticker ticker) {
+        return new KeyBasedRateLimiter<>(keyProvider,
+                ignored -> slidingLogBlockingWithCleanup(rate, executorService, ticker),
+                rate.window(), KeyBasedRateLimiter.UNBOUNDED, ticker, executorService);
+    }
+
+    /**
+     * Creates a new instance of {@link KeyBasedRateLimiter} with the provided rate and key provider
+     *
+     * The cleanup tasks run in the single thread of {@link RateLimiterRegistry#defaultRegistry()}.
+     *
+     * Each of the keys will have associated a rate limiter based on {@link GcraRateLimiter}, all of them
+     * with the same rate, so the memory used by each key does not depend on the requests of the rate
+     *
+     * @param rate The rate limit
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link GcraRateLimiter}
+     */
+    public static <T, K> RateLimiter<T> gcraKeyBasedRateLimiter(Rate rate, Function<T, K> keyProvider) {
+        return gcraKeyBasedRateLimiter(rate, keyProvider, KeyBasedRateLimiter.UNBOUNDED);
+    }
+
+    /**
+     * Creates a new instance of {@link KeyBasedRateLimiter} with the provided rate and key provider, keeping
+     * at most the provided number of keys
+     *
+     * The cleanup tasks run in the single thread of {@link RateLimiterRegistry#defaultRegistry()}.
+     *
+     * Each of the keys will have associated a rate limiter based on {@link GcraRateLimiter}, all of them
+     * with the same rate. When there are more keys than the maximum, the less frequently used keys are evicted.
+     *
+     * @param rate The rate limit
+     * @param maximumKeys Maximum number of keys kept
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link GcraRateLimiter}
+     */
+    public static <T, K> KeyBasedRateLimiter<T, K> gcraKeyBasedRateLimiter(Rate rate, Function<T, K> keyProvider,
+                                                                          int maximumKeys) {
+        return gcraKeyBasedRateLimiter(rate, keyProvider, maximumKeys, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new instance of {@link KeyBasedRateLimiter} with the provided rate, key provider and ticker,
+     * keeping at most the provided number of keys
+     *
+     * See {@link #gcraKeyBasedRateLimiter(Rate, Function, int)}.
+     *
+     * @param rate The rate limit
+     * @param maximumKeys Maximum number of keys kept
+     * @param ticker The ticker used to obtain current time, by the key based rate limiter and its delegates
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link GcraRateLimiter}
+     */
+    public static <T, K> KeyBasedRateLimiter<T, K> gcraKeyBasedRateLimiter(Rate rate, Function<T, K> keyProvider,
+                                                                          int maximumKeys, Ticker ticker) {
+        return gcraKeyBasedRateLimiter(rate, keyProvider, maximumKeys, defaultScheduler(), ticker);
+    }
+
+    /**
+     * Creates a new instance of {@link KeyBasedRateLimiter} with the provided rate, key provider, executor service
+     * and ticker, keeping at most the provided number of keys
+     *
+     * The cleanup task of the key based rate limiter is scheduled in the executor service.
+     * See {@link #gcraKeyBasedRateLimiter(Rate, Function, int)}.
+     *
+     * @param rate The rate limit
+     * @param maximumKeys Maximum number of keys kept
+     * @param ticker The ticker used to obtain current time, by the key based rate limiter and its delegates
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link GcraRateLimiter}
+     */
+    public static <T, K> KeyBasedRateLimiter<T, K> gcraKeyBasedRateLimiter(Rate rate, Function<T, K> keyProvider,
+                                                                          int maximumKeys,
+                                                                          ScheduledExecutorService executorService,
+                                                                          Ticker ticker) {
+        return new KeyBasedRateLimiter<>(keyProvider, ignored -> new GcraRateLimiter<>(rate, ticker),
+                rate.window(), maximumKeys, ticker, executorService);
+    }
+
+    /**
+     * Creates a new instance of {@link KeyBasedRateLimiter} with the provided policy and key provider
+     *
+     * The cleanup tasks run in the single thread of {@link RateLimiterRegistry#defaultRegistry()}.
+     *
+     * Each of the keys will have associated a rate limiter based on {@link MultiGcraRateLimiter}, so all the
+     * rates of a key are checked with one lookup and one lock
+     *
+     * @param policy The rates to satisfy by every key
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link MultiGcraRateLimiter}
+     */
+    public static <T, K> KeyBasedRateLimiter<T, K> multiGcraKeyBasedRateLimiter(RatePolicy policy,
+                                                                               Function<T, K> keyProvider) {
+        return multiGcraKeyBasedRateLimiter(policy, keyProvider, KeyBasedRateLimiter.UNBOUNDED,
+                Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new instance of {@link KeyBasedRateLimiter} with the provided policy, key provider and ticker,
+     * keeping at most the provided number of keys
+     *
+     * See {@link #multiGcraKeyBasedRateLimiter(RatePolicy, Function)}.
+     *
+     * @param policy The rates to satisfy by every key
+     * @param maximumKeys Maximum number of keys kept
+     * @param ticker The ticker used to obtain current time, by the key based rate limiter and its delegates
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link MultiGcraRateLimiter}
+     */
+    public static <T, K> KeyBasedRateLimiter<T, K> multiGcraKeyBasedRateLimiter(RatePolicy policy,
+                                                                               Function<T, K> keyProvider,
+                                                                               int maximumKeys, Ticker ticker) {
+        return new KeyBasedRateLimiter<>(keyProvider, ignored -> new MultiGcraRateLimiter<>(policy, ticker),
+                policy.longestWindow(), maximumKeys, ticker, defaultScheduler());
+    }
+
+    /**
+     * Creates a new instance of {@link LongKeyBasedRateLimiter} with the provided policy and key encoder
+     *
+     * The theoretical arrival times of all the rates of a key are kept in the same record of a
+     * {@link StripedLongKeyStateStore}, without any object per key.
+     *
+     * @param policy The rates to satisfy by every key
+     * @param keyEncoder A function to extract the key from the request, encoded as a {@code long}
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link LongKeyBasedRateLimiter}
+     */
+    public static <T> RateLimiter<T> longKeyBasedRateLimiter(RatePolicy policy, ToLongFunction<T> keyEncoder) {
+        return longKeyBasedRateLimiter(policy, keyEncoder, Ticker.fromClock(Clock.systemDefaultZone()));
+    }
+
+    /**
+     * Creates a new instance of {@link LongKeyBasedRateLimiter} with the provided policy, key encoder and ticker
+     *
+     * See {@link #longKeyBasedRateLimiter(RatePolicy, ToLongFunction)}.
+     *
+     * @param policy The rates to satisfy by every key
+     * @param keyEncoder A function to extract the key from the request, encoded as a {@code long}
+     * @param ticker The ticker used to obtain current time
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link LongKeyBasedRateLimiter}
+     */
+    public static <T> RateLimiter<T> longKeyBasedRateLimiter(RatePolicy policy, ToLongFunction<T> keyEncoder,
+                                                             Ticker ticker) {
+        return new LongKeyBasedRateLimiter<>(keyEncoder, policy,
+                new StripedLongKeyStateStore(LongKeyBasedRateLimiter.recordSize(policy)), ticker);
+    }
+
+    /**
+     * Creates a new instance of {@link LongKeyBasedRateLimiter} with the provided rate and key encoder
+     *
+     * The state of the keys is stored in a {@link StripedLongKeyStateStore}, without any object per key,
+     * and no cleanup thread is needed.
+     *
+     * @param rate The rate limit
+     * @param keyEncoder A function to extract the key from the request, encoded as a {@code long}
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link LongKeyBasedRateLimiter}
+     */
+    public static <T> RateLimiter<T> longKeyBasedRateLimiter(Rate rate, ToLongFunction<T> keyEncoder) {
+        return new LongKeyBasedRateLimiter<>(keyEncoder, rate, new StripedLongKeyStateStore(1),
+                Clock.systemDefaultZone());
+    }
+
+    /**
+     * Creates a new instance of {@link LongKeyBasedRateLimiter} with the provided rate and key encoder, keeping
+     * the state of the keys in the provided store
+     *
+     * Using a {@link MappedLongKeyStateStore} the quotas of the keys survive a restart of the process.
+     *
+     * @param rate The rate limit
+     * @param keyEncoder A function to extract the key from the request, encoded as a {@code long}
+     * @param store The store of the state of every key, with records of at least one word
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link LongKeyBasedRateLimiter}
+     */
+    public static <T> RateLimiter<T> longKeyBasedRateLimiter(Rate rate, ToLongFunction<T> keyEncoder,
+                                                             LongKeyStateStore store) {
+        return longKeyBasedRateLimiter(rate, keyEncoder, store, Ticker.fromClock(Clock.systemDefaultZone()));
+    }
+
+    /**
+     * Creates a new instance of {@link LongKeyBasedRateLimiter} with the provided rate, key encoder and ticker,
+     * keeping the state of the keys in the provided store
+     *
+     * The times kept in the store are the ones of the ticker, so a store surviving a restart needs a ticker
+     * related to the wall clock, like {@link Ticker#fromClock(Clock)}.
+     *
+     * @param rate The rate limit
+     * @param keyEncoder A function to extract the key from the request, encoded as a {@code long}
+     * @param store The store of the state of every key, with records of at least one word
+     * @param ticker The ticker used to obtain current time
+     * @param <T> Type of request to limit
+     * @return A rate limiter based on {@link LongKeyBasedRateLimiter}
+     */
+    public static <T> RateLimiter<T> longKeyBasedRateLimiter(Rate rate, ToLongFunction<T> keyEncoder,
+                                                             LongKeyStateStore store, Ticker ticker) {
+        return new LongKeyBasedRateLimiter<>(keyEncoder, rate, store, ticker);
+    }
+
+    private static ScheduledExecutorService defaultScheduler() {
+        return RateLimiterRegistry.defaultRegistry().scheduler();
+    }
 
 }
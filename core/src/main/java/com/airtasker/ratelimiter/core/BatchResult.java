@@ -0,0 +1,70 @@
+package com.airtasker.ratelimiter.core;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Decisions of a rate limiter for a batch of requests, in the same order as the requests
+ *
+ * Every decision is stored as a {@code long} with the nanoseconds to wait, 0 meaning the request is accepted,
+ * so there is no object per request. A rejected request always has a wait of at least 1 nanosecond, even when
+ * it could be retried right away.
+ */
+public final class BatchResult {
+
+    private final long[] waitNanos;
+
+    /**
+     * Build a result from the decisions of the requests, the array is not copied
+     *
+     * @param waitNanos Nanoseconds to wait for every request, 0 when it is accepted
+     */
+    public BatchResult(long[] waitNanos) {
+        this.waitNanos = waitNanos;
+    }
+
+    /**
+     * @return Number of requests of the batch
+     */
+    public int size() {
+        return waitNanos.length;
+    }
+
+    /**
+     * @param index Index of the request in the batch
+     * @return true when the request is accepted
+     */
+    public boolean isAccepted(int index) {
+        return waitNanos[index] == Decisions.ACCEPTED;
+    }
+
+    /**
+     * @param index Index of the request in the batch
+     * @return Nanoseconds that at least need to elapse until the request can be accepted, 0 when it is accepted
+     */
+    public long waitNanos(int index) {
+        return waitNanos[index];
+    }
+
+    /**
+     * @param index Index of the request in the batch
+     * @return The same value {@link RateLimiter#accept(Object)} returns for the request
+     */
+    public Optional<Duration> get(int index) {
+        return Decisions.decision(waitNanos[index]);
+    }
+
+    /**
+     * @return Number of requests accepted
+     */
+    public int acceptedCount() {
+        var accepted = 0;
+        for (final var wait : waitNanos) {
+            if (wait == Decisions.ACCEPTED) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.airtasker.ratelimiter.core;
+
+import com.airtasker.ratelimiter.core.internal.DefaultCleanupThreadFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coarse grained ticker which caches the time of another ticker, updated by a single thread
+ *
+ * Reading the time is just reading a volatile field, which is cheaper than calling {@link System#nanoTime()}
+ * on some platforms, at the cost of the precision: the time read is behind the real one by up to the
+ * resolution (plus any delay of the updating thread).
+ *
+ * So caveats:
+ *
+ * * The rate limiters see the time moving in steps of the resolution, so it should be much smaller than the
+ *   window of the rates
+ * * It keeps one thread running until it is closed
+ */
+public class CachedTicker implements Ticker, AutoCloseable {
+
+    private static final String THREAD_TEMPLATE = "airtasker-ratelimiter-ticker-thread-%d";
+
+    private final ScheduledExecutorService executor =
+            Executors.newSingleThreadScheduledExecutor(new DefaultCleanupThreadFactory(THREAD_TEMPLATE));
+    private final Ticker source;
+    private volatile long nanos;
+
+    /**
+     * Build a ticker caching the {@link Ticker#systemTicker()}
+     *
+     * @param resolution Time between updates of the cached time
+     */
+    public CachedTicker(Duration resolution) {
+        this(Ticker.systemTicker(), resolution);
+    }
+
+    /**
+     * @param source The ticker to cache
+     * @param resolution Time between updates of the cached time
+     */
+    public CachedTicker(Ticker source, Duration resolution) {
+        if (resolution.isNegative() || resolution.isZero()) {
+            throw new IllegalArgumentException("Resolution should be positive");
+        }
+        this.source = source;
+        this.nanos = source.read();
+        final var resolutionNanos = resolution.toNanos();
+        executor.scheduleAtFixedRate(this::update, resolutionNanos, resolutionNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long read() {
+        return nanos;
+    }
+
+    /**
+     * Stops the thread updating the time, after that the time does not move anymore
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void update() {
+        nanos = source.read();
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.airtasker.ratelimiter.core;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate Limiter bounding the number of requests in flight instead of the number of requests per window
+ *
+ * Every accepted request takes its permits until they are given back with {@link #release(Object, long)}, so at
+ * most {@code maxConcurrent} permits are taken at any time, no matter how slow the requests are. The permits taken
+ * are a single {@code long} updated with a compare and set loop, so no lock is taken and nothing is allocated.
+ *
+ * So caveats:
+ *
+ * * Every accepted request needs to release its permits, even when it fails, otherwise they are lost forever
+ * * A rejected request can not know when the permits are going to be released, so the duration returned is always
+ *   the fixed retry delay provided
+ * * The accept() function is O(1) (constant) in time, though under heavy contention the compare and set
+ *   could be retried several times
+ *
+ * @param <R> The type of requests
+ */
+public class ConcurrencyRateLimiter<R> implements RateLimiter<R> {
+
+    /**
+     * Duration returned to the rejected requests unless another one is provided
+     */
+    public static final Duration DEFAULT_RETRY_DELAY = Duration.ofSeconds(1);
+
+    private final long maxConcurrent;
+    private final long retryNanos;
+    private final AtomicLong inFlight = new AtomicLong(0L);
+
+    public ConcurrencyRateLimiter(long maxConcurrent) {
+        this(maxConcurrent, DEFAULT_RETRY_DELAY);
+    }
+
+    /**
+     * @param maxConcurrent Maximum number of permits taken at the same time
+     * @param retryDelay Duration returned to the rejected requests
+     */
+    public ConcurrencyRateLimiter(long maxConcurrent, Duration retryDelay) {
+        if (maxConcurrent < 0) {
+            throw new IllegalArgumentException("Maximum concurrent permits should not be negative");
+        }
+        if (retryDelay.isNegative() || retryDelay.isZero()) {
+            throw new IllegalArgumentException("Retry delay should be positive");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.retryNanos = retryDelay.toNanos();
+    }
+
+    @Override
+    public Optional<Duration> accept(R request) {
+        return accept(request, 1L);
+    }
+
+    @Override
+    public long tryAccept(R request, long permits) {
+        if (Permits.check(permits) > maxConcurrent) {
+            return retryNanos;
+        }
+
+        while (true) {
+            final var current = inFlight.get();
+            if (current > maxConcurrent - permits) {
+                return retryNanos;
+            }
+            if (inFlight.compareAndSet(current, current + permits)) {
+                return Decisions.ACCEPTED;
+            }
+        }
+    }
+
+    @Override
+    public Reservation reserve(R request, long permits) {
+        return Reservation.take(this, request, permits);
+    }
+
+    /**
+     * The permits are given back right away, releasing more permits than the ones taken is ignored
+     */
+    @Override
+    public void release(R request, long permits) {
+        Permits.check(permits);
+        inFlight.getAndUpdate(current -> Math.max(0L, current - permits));
+    }
+
+    /**
+     * The quota never resets by itself, so its reset is always zero
+     */
+    @Override
+    public Optional<QuotaStatus> quota(R request) {
+        return Optional.of(new QuotaStatus(maxConcurrent, Math.max(0L, maxConcurrent - inFlight.get()), 0L));
+    }
+
+    /**
+     * @return Number of permits taken and not released yet
+     */
+    public long inFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return inFlight.get() == 0L;
+    }
+
+}
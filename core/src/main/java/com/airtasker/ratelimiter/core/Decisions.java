@@ -0,0 +1,43 @@
+package com.airtasker.ratelimiter.core;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Conversions between the decisions returned by {@link RateLimiter#accept(Object)} and the ones returned by
+ * {@link RateLimiter#tryAccept(Object, long)}
+ */
+final class Decisions {
+
+    /**
+     * Nanoseconds to wait of an accepted request
+     */
+    static final long ACCEPTED = 0L;
+
+    private Decisions() { /* Not to be instantiated */ }
+
+    /**
+     * @param decision The value returned by {@link RateLimiter#accept(Object)}
+     * @return The decision encoded as nanoseconds to wait, rejections being at least 1 nanosecond
+     */
+    static long waitNanos(Optional<Duration> decision) {
+        return decision.map(wait -> Math.max(1L, toNanosSaturated(wait))).orElse(ACCEPTED);
+    }
+
+    /**
+     * @param waitNanos The value returned by {@link RateLimiter#tryAccept(Object, long)}
+     * @return The decision as returned by {@link RateLimiter#accept(Object)}
+     */
+    static Optional<Duration> decision(long waitNanos) {
+        return waitNanos == ACCEPTED ? Optional.empty() : Optional.of(Duration.ofNanos(waitNanos));
+    }
+
+    private static long toNanosSaturated(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException ex) {
+            return duration.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+}
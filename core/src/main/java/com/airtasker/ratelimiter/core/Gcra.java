@@ -0,0 +1,88 @@
+package com.airtasker.ratelimiter.core;
+
+/**
+ * Calculations of the Generic Cell Rate Algorithm, shared by the rate limiters based on it
+ *
+ * The state of the algorithm is the theoretical arrival time (TAT) of the next request in nanoseconds.
+ */
+final class Gcra {
+
+    private final Rate rate;
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+
+    Gcra(Rate rate) {
+        this.rate = rate;
+        if (rate.requests() == 0) {
+            this.emissionIntervalNanos = 0L;
+            this.toleranceNanos = 0L;
+        } else {
+            this.emissionIntervalNanos = Math.max(1L, rate.window().toNanos() / rate.requests());
+            this.toleranceNanos = emissionIntervalNanos * rate.requests();
+        }
+    }
+
+    /**
+     * @param permits The permits requested
+     * @return true when the rate does not allow so many permits, so they are always rejected
+     */
+    boolean exceedsCapacity(long permits) {
+        return permits > rate.requests();
+    }
+
+    /**
+     * @return Nanoseconds to wait when the permits are always rejected
+     */
+    long exceededCapacityNanos() {
+        return rate.window().toNanos();
+    }
+
+    /**
+     * @param tat Current theoretical arrival time
+     * @param now Current time in nanoseconds
+     * @param permits The permits requested, not exceeding the capacity
+     * @return The theoretical arrival time after accepting the permits at the provided time
+     */
+    long nextTat(long tat, long now, long permits) {
+        return Math.max(tat, now) + emissionIntervalNanos * permits;
+    }
+
+    /**
+     * @param tat Current theoretical arrival time
+     * @param now Current time in nanoseconds
+     * @return The number of permits that can be accepted at the provided time, the rate should have some requests
+     */
+    long permitsAvailable(long tat, long now) {
+        return Math.max(0L, (now + toleranceNanos - Math.max(tat, now)) / emissionIntervalNanos);
+    }
+
+    /**
+     * @param tat Current theoretical arrival time
+     * @param now Current time in nanoseconds
+     * @return The quota left at the provided time
+     */
+    QuotaStatus quota(long tat, long now) {
+        final var remaining = rate.requests() == 0 ? 0L : permitsAvailable(tat, now);
+        return new QuotaStatus(rate.requests(), remaining, tat <= now ? 0L : tat - now);
+    }
+
+    /**
+     * @param tat Current theoretical arrival time
+     * @param now Current time in nanoseconds
+     * @param permits The permits given back
+     * @return The theoretical arrival time after giving back the permits, never moved before the provided time
+     */
+    long releasedTat(long tat, long now, long permits) {
+        return tat <= now ? tat : Math.max(now, tat - emissionIntervalNanos * permits);
+    }
+
+    /**
+     * @param nextTat Theoretical arrival time after accepting the request
+     * @param now Current time in nanoseconds
+     * @return Nanoseconds to wait until the request could be accepted, zero or negative when it can be accepted now
+     */
+    long waitNanos(long nextTat, long now) {
+        return nextTat - now - toleranceNanos;
+    }
+
+}
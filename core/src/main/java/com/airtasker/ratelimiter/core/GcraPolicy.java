@@ -0,0 +1,97 @@
+package com.airtasker.ratelimiter.core;
+
+/**
+ * Calculations of the Generic Cell Rate Algorithm for all the rates of a {@link RatePolicy} at once
+ *
+ * The state is a record of {@link LongKeyStateStore.Record} words: with one rate the only word is its theoretical
+ * arrival time (TAT), which is also the expiration time of the record. With several rates the first word is the
+ * expiration time, the latest of the TATs, followed by the TAT of every rate.
+ */
+final class GcraPolicy {
+
+    private final Gcra[] gcras;
+    private final long[] windowNanos;
+    private final int firstTat;
+
+    GcraPolicy(RatePolicy policy) {
+        final var rates = policy.rates();
+        this.gcras = new Gcra[rates.size()];
+        this.windowNanos = new long[rates.size()];
+        for (var i = 0; i < gcras.length; i++) {
+            gcras[i] = new Gcra(rates.get(i));
+            windowNanos[i] = rates.get(i).window().toNanos();
+        }
+        this.firstTat = gcras.length == 1 ? 0 : 1;
+    }
+
+    /**
+     * @return Number of words of the record of the state
+     */
+    int recordSize() {
+        return firstTat + gcras.length;
+    }
+
+    /**
+     * @param permits The permits requested
+     * @return Nanoseconds to wait when some rate does not allow so many permits, so they are always rejected,
+     * otherwise 0
+     */
+    long exceededCapacityNanos(long permits) {
+        var waitNanos = 0L;
+        for (var i = 0; i < gcras.length; i++) {
+            if (gcras[i].exceedsCapacity(permits)) {
+                waitNanos = Math.max(waitNanos, windowNanos[i]);
+            }
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Checks the permits against all the rates, and only when all of them accept them moves every TAT, so a
+     * rejection does not consume anything of the rates that would accept
+     *
+     * @param record The state, which is only updated when the permits are accepted
+     * @param now Current time in nanoseconds
+     * @param permits The permits requested, not exceeding the capacity of any rate
+     * @return {@link Decisions#ACCEPTED} or the longest wait of the rates rejecting the permits
+     */
+    long accept(LongKeyStateStore.Record record, long now, long permits) {
+        var waitNanos = 0L;
+        for (var i = 0; i < gcras.length; i++) {
+            final var nextTat = gcras[i].nextTat(record.get(firstTat + i), now, permits);
+            waitNanos = Math.max(waitNanos, gcras[i].waitNanos(nextTat, now));
+        }
+        if (waitNanos > 0) {
+            return waitNanos;
+        }
+
+        var expiresAt = Long.MIN_VALUE;
+        for (var i = 0; i < gcras.length; i++) {
+            final var nextTat = gcras[i].nextTat(record.get(firstTat + i), now, permits);
+            record.set(firstTat + i, nextTat);
+            expiresAt = Math.max(expiresAt, nextTat);
+        }
+        record.set(0, expiresAt);
+        return Decisions.ACCEPTED;
+    }
+
+    /**
+     * Gives back the permits to all the rates
+     *
+     * @param record The state
+     * @param now Current time in nanoseconds
+     * @param permits The permits given back
+     * @return Always 0
+     */
+    long release(LongKeyStateStore.Record record, long now, long permits) {
+        var expiresAt = Long.MIN_VALUE;
+        for (var i = 0; i < gcras.length; i++) {
+            final var releasedTat = gcras[i].releasedTat(record.get(firstTat + i), now, permits);
+            record.set(firstTat + i, releasedTat);
+            expiresAt = Math.max(expiresAt, releasedTat);
+        }
+        record.set(0, expiresAt);
+        return 0L;
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.airtasker.ratelimiter.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Rate Limiter based on the Generic Cell Rate Algorithm (GCRA) with lock free operations
+ *
+ * Requests are expected to arrive one every {@code rate.window() / rate.requests()} (the emission interval).
+ * The only state kept is the theoretical arrival time (TAT) of the next request: every accepted request
+ * moves it one emission interval forward (one per permit), and a request is rejected when that would move
+ * it more than {@code rate.window()} ahead of the current time. The returned duration is the time until the
+ * request would fit in the window again.
+ *
+ * The state is a single {@code long} field updated with a compare and set loop, so the footprint of
+ * this rate limiter does not depend on the number of requests of the rate, which makes it suitable as
+ * delegate of {@link KeyBasedRateLimiter} with a big number of keys.
+ *
+ * So caveats:
+ *
+ * * It allows a burst of {@code rate.requests()} and after that requests are spaced by the emission
+ *   interval, so like any token bucket a window can see more requests than the rate after a burst
+ * * The accept() function is O(1) (constant) in time, though under heavy contention the compare and set
+ *   could be retried several times
+ *
+ * @param <R> The type of requests
+ */
+public class GcraRateLimiter<R> implements RateLimiter<R> {
+
+    private static final long NO_ARRIVAL = Long.MIN_VALUE;
+    private static final VarHandle TAT;
+
+    static {
+        try {
+            TAT = MethodHandles.lookup().findVarHandle(GcraRateLimiter.class, "tat", long.class);
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private final Ticker ticker;
+    private final Gcra gcra;
+
+    @SuppressWarnings("unused") // Accessed through TAT VarHandle
+    private volatile long tat = NO_ARRIVAL;
+
+    public GcraRateLimiter(Rate rate, Clock clock) {
+        this(rate, Ticker.fromClock(clock));
+    }
+
+    public GcraRateLimiter(Rate rate, Ticker ticker) {
+        this.ticker = ticker;
+        this.gcra = new Gcra(rate);
+    }
+
+    @Override
+    public Optional<Duration> accept(R request) {
+        return accept(request, 1L);
+    }
+
+    @Override
+    public long tryAccept(R request, long permits) {
+        if (gcra.exceedsCapacity(Permits.check(permits))) {
+            return gcra.exceededCapacityNanos();
+        }
+
+        while (true) {
+            final var current = (long) TAT.getVolatile(this);
+            final var now = nowNanos();
+            final var newTat = gcra.nextTat(current, now, permits);
+            final var waitNanos = gcra.waitNanos(newTat, now);
+
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+
+            if (TAT.compareAndSet(this, current, newTat)) {
+                return Decisions.ACCEPTED;
+            }
+        }
+    }
+
+    /**
+     * The theoretical arrival time is moved once for the whole batch, with a single compare and set, and all
+     * the requests are checked at the same time
+     */
+    @Override
+    public BatchResult acceptAll(List<? extends R> requests) {
+        final var waitNanos = new long[requests.size()];
+        if (gcra.exceedsCapacity(1L)) {
+            Arrays.fill(waitNanos, gcra.exceededCapacityNanos());
+            return new BatchResult(waitNanos);
+        }
+
+        while (true) {
+            final var current = (long) TAT.getVolatile(this);
+            final var now = nowNanos();
+            final var accepted = (int) Math.min(waitNanos.length, gcra.permitsAvailable(current, now));
+            final var newTat = gcra.nextTat(current, now, accepted);
+
+            if (accepted == 0 || TAT.compareAndSet(this, current, newTat)) {
+                if (accepted < waitNanos.length) {
+                    Arrays.fill(waitNanos, accepted, waitNanos.length,
+                            gcra.waitNanos(gcra.nextTat(newTat, now, 1L), now));
+                }
+                return new BatchResult(waitNanos);
+            }
+        }
+    }
+
+    @Override
+    public Reservation reserve(R request, long permits) {
+        return Reservation.take(this, request, permits);
+    }
+
+    @Override
+    public void release(R request, long permits) {
+        Permits.check(permits);
+        while (true) {
+            final var current = (long) TAT.getVolatile(this);
+            final var now = nowNanos();
+            final var releasedTat = gcra.releasedTat(current, now, permits);
+            if (releasedTat == current || TAT.compareAndSet(this, current, releasedTat)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public Optional<QuotaStatus> quota(R request) {
+        return Optional.of(gcra.quota((long) TAT.getVolatile(this), nowNanos()));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (long) TAT.getVolatile(this) <= nowNanos();
+    }
+
+    private long nowNanos() {
+        return ticker.read();
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.airtasker.ratelimiter.core;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Rate limiter nesting the limit of every key inside a global limit
+ *
+ * A request is first checked against the inner rate limiter, usually a key based one, and only when it is
+ * accepted against the outer, global, one. When the outer rate limiter rejects the request, the permits taken
+ * from the inner one are given back cancelling its {@link Reservation}, so a rejected request does not
+ * consume anything. Checking the inner one first means the keys over their own limit never touch the global
+ * state, and a hot global limit does not drain the limits of the keys.
+ *
+ * Every rate limiter keeps its own state and nothing is locked across both, so for a short time another
+ * request can see the permits of a request that is finally rejected.
+ *
+ * So caveats:
+ *
+ * * The inner rate limiter must support {@link RateLimiter#reserve(Object, long)}, like the ones based on the
+ *   Generic Cell Rate Algorithm do, otherwise every request fails before taking any permit
+ * * A request rejected by both returns the wait of the inner one, which could be shorter than the global one
+ *
+ * @param <R> The type of requests
+ */
+public class HierarchicalRateLimiter<R> implements RateLimiter<R> {
+
+    private final RateLimiter<R> outer;
+    private final RateLimiter<R> inner;
+
+    /**
+     * @param outer The global rate limiter, checked last
+     * @param inner The rate limiter nested in the global one, like the one of every key, checked first
+     */
+    public HierarchicalRateLimiter(RateLimiter<R> outer, RateLimiter<R> inner) {
+        this.outer = outer;
+        this.inner = inner;
+    }
+
+    @Override
+    public Optional<Duration> accept(R request) {
+        return accept(request, 1L);
+    }
+
+    @Override
+    public long tryAccept(R request, long permits) {
+        final var innerReservation = inner.reserve(request, permits);
+        if (!innerReservation.isGranted()) {
+            return innerReservation.waitNanos();
+        }
+        final long outerWait;
+        try {
+            outerWait = outer.tryAccept(request, permits);
+        } catch (RuntimeException ex) {
+            innerReservation.cancel();
+            throw ex;
+        }
+        if (outerWait == Decisions.ACCEPTED) {
+            innerReservation.commit();
+        } else {
+            innerReservation.cancel();
+        }
+        return outerWait;
+    }
+
+    /**
+     * Both rate limiters need to support reservations, cancelling the reservation cancels both of them
+     */
+    @Override
+    public Reservation reserve(R request, long permits) {
+        final var innerReservation = inner.reserve(request, permits);
+        if (!innerReservation.isGranted()) {
+            return innerReservation;
+        }
+        final Reservation outerReservation;
+        try {
+            outerReservation = outer.reserve(request, permits);
+        } catch (RuntimeException ex) {
+            innerReservation.cancel();
+            throw ex;
+        }
+        if (!outerReservation.isGranted()) {
+            innerReservation.cancel();
+            return outerReservation;
+        }
+        return new Reservation(Decisions.ACCEPTED, () -> {
+            outerReservation.cancel();
+            innerReservation.cancel();
+        });
+    }
+
+    @Override
+    public void release(R request, long permits) {
+        outer.release(request, permits);
+        inner.release(request, permits);
+    }
+
+    /**
+     * The quota is the one with less permits remaining, of the rate limiters which can report it
+     */
+    @Override
+    public Optional<QuotaStatus> quota(R request) {
+        final var innerQuota = inner.quota(request);
+        final var outerQuota = outer.quota(request);
+        if (innerQuota.isEmpty()) {
+            return outerQuota;
+        }
+        if (outerQuota.isEmpty() || innerQuota.get().remaining() <= outerQuota.get().remaining()) {
+            return innerQuota;
+        }
+        return outerQuota;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return outer.isEmpty() && inner.isEmpty();
+    }
+
+}
@@ -1,26 +1,104 @@
 package com.airtasker.ratelimiter.core;
 
+import com.airtasker.ratelimiter.core.internal.FrequencySketch;
+import com.airtasker.ratelimiter.core.internal.HashedTimingWheel;
+import com.airtasker.ratelimiter.core.metrics.RateLimiterListener;
+
+import java.time.Clock;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
 /**
  * Rate limiter which maintains a map of delegates rate limiters for each key.
  *
- * In order to not make the memory full, this implementation cleanup rate limiters that are empty
- * using a background thread scheduled by every 10 milliseconds (for now this value is fixed and cannot be modified)
+ * In order to not make the memory full, this implementation cleanup rate limiters that are empty.
+ * Every key is indexed in a hashed timing wheel by the time it becomes idle (the last time it was used
+ * plus the idle timeout), and a background task scheduled every 10 milliseconds (for now this value is fixed
+ * and cannot be modified) only checks the keys which became idle since the last run. A key which is idle
+ * is removed in case its rate limiter is empty, otherwise it is checked again after another idle timeout.
+ * Closing the rate limiter cancels the background task, which is needed when the executor outlives it.
+ *
+ * The number of keys can be bounded, so a flood of new keys (like random api keys) cannot make the memory full.
+ * When there are more keys than the maximum, the new key competes with the one chosen for eviction following
+ * the TinyLFU admission policy: the access frequency of every key is estimated with a {@link FrequencySketch},
+ * and the new key is only kept in case it was used more frequently than the evicted one. Otherwise, the new key
+ * is evicted itself, so keys which are truly hot keep their state. The key chosen for eviction is the oldest one
+ * which was not used since the last time it was checked (second chance, or CLOCK, policy). A key which is
+ * evicted starts again with a new rate limiter the next time it is used.
+ *
+ * The requests of the keys which are not admitted share a single overflow rate limiter, the one created for the
+ * first key not admitted, so a key flooding the rate limiter without ever being admitted is still limited. The
+ * frequencies are estimated from a hash of the key seeded for every instance, computed from the characters of
+ * {@link String} keys, so clients can not choose keys colliding with the hot ones.
+ *
+ * The decisions, the keys added and removed and the duration of the cleanup task are reported to a
+ * {@link RateLimiterListener}, in case one is provided.
+ *
+ * In case the keys can be encoded as a {@code long}, {@link LongKeyBasedRateLimiter} keeps the state of every key
+ * without any object per key.
  *
  * @param <R> The request type for this rate limiter
  * @param <K> The type of the keys
  */
-public class KeyBasedRateLimiter<R, K> implements RateLimiter<R> {
+public class KeyBasedRateLimiter<R, K> implements RateLimiter<R>, AutoCloseable {
 
     private static final long CLEANUP_TASK_DELAY_MILLIS = 10L;
+    private static final int WHEEL_BUCKETS = 1024;
+    // As the hashes are random, smaller sketches would often count keys together
+    private static final int MINIMUM_SKETCH_SIZE = 1024;
+    /**
+     * Maximum number of keys that does not bound them
+     */
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
 
     private final Function<R, K> keyProvider;
     private final Function<K, RateLimiter<R>> rateLimiterProvider;
-    private final ConcurrentMap<K, RateLimiter<R>> rateLimiterMap = new ConcurrentHashMap<>();
+    private final Ticker ticker;
+    private final long idleTimeoutNanos;
+    private final long recheckNanos;
+    private final ConcurrentMap<K, Entry<R, K>> rateLimiterMap = new ConcurrentHashMap<>();
+    private final HashedTimingWheel<Entry<R, K>> expirationWheel;
+    private final Function<K, Entry<R, K>> entryProvider = this::createEntry;
+    private final int maximumKeys;
+    private final FrequencySketch frequencySketch;
+    private final Deque<Entry<R, K>> evictionQueue = new ArrayDeque<>();
+    private final Object evictionLock = new Object();
+    private final LongAdder evictionCount = new LongAdder();
+    private final RateLimiterListener listener;
+    private final boolean instrumented;
+    private final long hashSeed = ThreadLocalRandom.current().nextLong();
+    private final ScheduledFuture<?> cleanupTask;
+    // Shared by the keys not admitted, set holding the eviction lock
+    private volatile Entry<R, K> overflow;
+    // Only accessed by the cleanup task, which never runs concurrently with itself
+    private long removedByCleanup;
+
+    /**
+     * Build a rate limiter using the provided parameters
+     *
+     * The function {@code rateLimiterProvider} is going to be called in case there is no rate limiter associated
+     * to the key. After that, the rate limiter is used until it is cleanup.
+     *
+     * The rate limiters are only cleaned up in case the method {@code isEmpty} is called. As there is no idle
+     * timeout, the rate limiters which are not empty are checked again every time the cleanup task runs.
+     *
+     * @param keyProvider A function to extract the key from the request
+     * @param rateLimiterProvider A function to create specific rate limiter for a key
+     * @param executor The executor where the cleanup task is going to be scheduled
+     */
+    public KeyBasedRateLimiter(Function<R, K> keyProvider, Function<K, RateLimiter<R>> rateLimiterProvider,
+                               ScheduledExecutorService executor) {
+        this(keyProvider, rateLimiterProvider, Duration.ZERO, UNBOUNDED, Ticker.systemTicker(), executor);
+    }
 
     /**
      * Build a rate limiter using the provided parameters
@@ -28,26 +106,196 @@ public class KeyBasedRateLimiter<R, K> implements RateLimiter<R> {
      * The function {@code rateLimiterProvider} is going to be called in case there is no rate limiter associated
      * to the key. After that, the rate limiter is used until it is cleanup.
      *
-     * The rate limiters are only cleaned up in case the method {@code isEmpty} is called
+     * The rate limiter of a key is only checked for cleanup once the key was not used for the idle timeout,
+     * which usually should be the window of the rate, the time after which a rate limiter becomes empty.
+     *
+     * @param keyProvider A function to extract the key from the request
+     * @param rateLimiterProvider A function to create specific rate limiter for a key
+     * @param idleTimeout Time without requests after which the rate limiter of a key is checked for cleanup
+     * @param clock The clock used to obtain current time
+     * @param executor The executor where the cleanup task is going to be scheduled
+     */
+    public KeyBasedRateLimiter(Function<R, K> keyProvider, Function<K, RateLimiter<R>> rateLimiterProvider,
+                               Duration idleTimeout, Clock clock, ScheduledExecutorService executor) {
+        this(keyProvider, rateLimiterProvider, idleTimeout, UNBOUNDED, clock, executor);
+    }
+
+    /**
+     * Build a rate limiter using the provided parameters, keeping at most the provided number of keys
+     *
+     * The function {@code rateLimiterProvider} is going to be called in case there is no rate limiter associated
+     * to the key. After that, the rate limiter is used until it is cleanup or evicted.
+     *
+     * The rate limiter of a key is only checked for cleanup once the key was not used for the idle timeout,
+     * which usually should be the window of the rate, the time after which a rate limiter becomes empty.
+     *
+     * @param keyProvider A function to extract the key from the request
+     * @param rateLimiterProvider A function to create specific rate limiter for a key
+     * @param idleTimeout Time without requests after which the rate limiter of a key is checked for cleanup
+     * @param maximumKeys Maximum number of keys kept, when it is exceeded keys are evicted
+     * @param clock The clock used to obtain current time
+     * @param executor The executor where the cleanup task is going to be scheduled
+     */
+    public KeyBasedRateLimiter(Function<R, K> keyProvider, Function<K, RateLimiter<R>> rateLimiterProvider,
+                               Duration idleTimeout, int maximumKeys, Clock clock,
+                               ScheduledExecutorService executor) {
+        this(keyProvider, rateLimiterProvider, idleTimeout, maximumKeys, Ticker.fromClock(clock), executor);
+    }
+
+    /**
+     * Build a rate limiter using the provided parameters, keeping at most the provided number of keys
+     *
+     * Same as {@link #KeyBasedRateLimiter(Function, Function, Duration, int, Clock, ScheduledExecutorService)},
+     * but obtaining the current time from a ticker.
      *
      * @param keyProvider A function to extract the key from the request
      * @param rateLimiterProvider A function to create specific rate limiter for a key
+     * @param idleTimeout Time without requests after which the rate limiter of a key is checked for cleanup
+     * @param maximumKeys Maximum number of keys kept, when it is exceeded keys are evicted, or
+     * {@link Integer#MAX_VALUE} to not bound them
+     * @param ticker The ticker used to obtain current time
      * @param executor The executor where the cleanup task is going to be scheduled
      */
     public KeyBasedRateLimiter(Function<R, K> keyProvider, Function<K, RateLimiter<R>> rateLimiterProvider,
+                               Duration idleTimeout, int maximumKeys, Ticker ticker,
                                ScheduledExecutorService executor) {
+        this(keyProvider, rateLimiterProvider, idleTimeout, maximumKeys, ticker, executor, RateLimiterListener.NO_OP);
+    }
+
+    /**
+     * Build a rate limiter using the provided parameters, reporting its events to the provided listener
+     *
+     * See {@link #KeyBasedRateLimiter(Function, Function, Duration, int, Ticker, ScheduledExecutorService)}.
+     *
+     * @param keyProvider A function to extract the key from the request
+     * @param rateLimiterProvider A function to create specific rate limiter for a key
+     * @param idleTimeout Time without requests after which the rate limiter of a key is checked for cleanup
+     * @param maximumKeys Maximum number of keys kept, when it is exceeded keys are evicted, or
+     * {@link Integer#MAX_VALUE} to not bound them
+     * @param ticker The ticker used to obtain current time
+     * @param executor The executor where the cleanup task is going to be scheduled
+     * @param listener The listener of the events of the rate limiter
+     */
+    public KeyBasedRateLimiter(Function<R, K> keyProvider, Function<K, RateLimiter<R>> rateLimiterProvider,
+                               Duration idleTimeout, int maximumKeys, Ticker ticker,
+                               ScheduledExecutorService executor, RateLimiterListener listener) {
+        if (idleTimeout.isNegative()) {
+            throw new IllegalArgumentException("Idle timeout should not be negative");
+        }
+        if (maximumKeys <= 0) {
+            throw new IllegalArgumentException("Maximum keys should be positive");
+        }
         this.keyProvider = keyProvider;
         this.rateLimiterProvider = rateLimiterProvider;
+        this.ticker = ticker;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.maximumKeys = maximumKeys;
+        this.frequencySketch = maximumKeys == UNBOUNDED
+                ? null
+                : new FrequencySketch(Math.max(maximumKeys, MINIMUM_SKETCH_SIZE));
+        this.listener = listener;
+        this.instrumented = listener != RateLimiterListener.NO_OP;
 
-        executor.scheduleWithFixedDelay(this::cleanup, CLEANUP_TASK_DELAY_MILLIS, CLEANUP_TASK_DELAY_MILLIS,
-                TimeUnit.MILLISECONDS);
+        final var tickNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(CLEANUP_TASK_DELAY_MILLIS),
+                idleTimeoutNanos / (WHEEL_BUCKETS / 2));
+        this.recheckNanos = Math.max(idleTimeoutNanos, tickNanos);
+        this.expirationWheel = new HashedTimingWheel<>(WHEEL_BUCKETS, tickNanos, nowNanos());
+
+        this.cleanupTask = executor.scheduleWithFixedDelay(this::cleanup, CLEANUP_TASK_DELAY_MILLIS,
+                CLEANUP_TASK_DELAY_MILLIS, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public Optional<Duration> accept(R request) {
-        final var key = keyProvider.apply(request);
-        final var rateLimiter = rateLimiterMap.computeIfAbsent(key, rateLimiterProvider);
-        return rateLimiter.accept(request);
+        final var start = startNanos();
+        final var decision = entryOf(request).rateLimiter.accept(request);
+        report(start, decision);
+        return decision;
+    }
+
+    @Override
+    public Optional<Duration> accept(R request, long permits) {
+        final var start = startNanos();
+        final var decision = entryOf(request).rateLimiter.accept(request, permits);
+        report(start, decision);
+        return decision;
+    }
+
+    @Override
+    public long tryAccept(R request, long permits) {
+        final var start = startNanos();
+        final var waitNanos = entryOf(request).rateLimiter.tryAccept(request, permits);
+        if (instrumented) {
+            listener.onDecision(waitNanos, System.nanoTime() - start);
+        }
+        return waitNanos;
+    }
+
+    /**
+     * The requests are grouped by key, so the rate limiter of every key is looked up once and receives all the
+     * requests of its key in a single batch, keeping their order
+     */
+    @Override
+    public BatchResult acceptAll(List<? extends R> requests) {
+        final var groups = new HashMap<K, Group<R>>();
+        var index = 0;
+        for (final var request : requests) {
+            final var key = keyOf(request);
+            groups.computeIfAbsent(key, ignored -> new Group<>()).add(request, index++);
+        }
+
+        final var start = startNanos();
+        final var waitNanos = new long[index];
+        for (final var group : groups.entrySet()) {
+            final var requestsOfKey = group.getValue().requests;
+            final var indexesOfKey = group.getValue().indexes;
+            final var result = entryOfKey(group.getKey()).rateLimiter.acceptAll(requestsOfKey);
+            for (var i = 0; i < requestsOfKey.size(); i++) {
+                waitNanos[indexesOfKey[i]] = result.waitNanos(i);
+            }
+        }
+        if (instrumented && waitNanos.length > 0) {
+            // The latency of the batch is shared by all its requests
+            final var latencyNanos = (System.nanoTime() - start) / waitNanos.length;
+            for (final var wait : waitNanos) {
+                listener.onDecision(wait, latencyNanos);
+            }
+        }
+        return new BatchResult(waitNanos);
+    }
+
+    /**
+     * The reservation is the one of the rate limiter of the key, so its permits are given back to the same rate
+     * limiter even when the key is removed meanwhile
+     */
+    @Override
+    public Reservation reserve(R request, long permits) {
+        final var start = startNanos();
+        final var reservation = entryOf(request).rateLimiter.reserve(request, permits);
+        if (instrumented) {
+            listener.onDecision(reservation.waitNanos(), System.nanoTime() - start);
+        }
+        return reservation;
+    }
+
+    /**
+     * The permits are given back to the rate limiter of the key, unless it was already removed or never admitted
+     */
+    @Override
+    public void release(R request, long permits) {
+        final var entry = rateLimiterMap.get(keyProvider.apply(request));
+        if (entry != null) {
+            entry.rateLimiter.release(request, permits);
+        }
+    }
+
+    /**
+     * The quota is the one of the rate limiter of the key, keys without rate limiter are not added
+     */
+    @Override
+    public Optional<QuotaStatus> quota(R request) {
+        final var entry = rateLimiterMap.get(keyProvider.apply(request));
+        return entry == null ? Optional.empty() : entry.rateLimiter.quota(request);
     }
 
     @Override
@@ -55,15 +303,260 @@ public class KeyBasedRateLimiter<R, K> implements RateLimiter<R> {
         return rateLimiterMap.isEmpty();
     }
 
+    /**
+     * @return Number of keys evicted because the maximum number of keys was exceeded
+     */
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Cancels the cleanup task, the rate limiter should not be used afterwards
+     */
+    @Override
+    public void close() {
+        if (cleanupTask != null) {
+            cleanupTask.cancel(false);
+        }
+    }
+
+    private Entry<R, K> entryOf(R request) {
+        return entryOfKey(keyOf(request));
+    }
+
+    /**
+     * @return The key of the request, counting the access in the frequency sketch
+     */
+    private K keyOf(R request) {
+        final var key = keyProvider.apply(request);
+        if (frequencySketch != null) {
+            frequencySketch.increment(sketchHash(key));
+        }
+        return key;
+    }
+
+    /**
+     * @return The entry of the key, creating it in case it does not exist, or the overflow entry in case the key
+     * is not admitted
+     */
+    private Entry<R, K> entryOfKey(K key) {
+        var entry = rateLimiterMap.get(key);
+        if (entry == null) {
+            entry = rateLimiterMap.computeIfAbsent(key, entryProvider);
+            if (frequencySketch != null && !admit(entry)) {
+                return overflow;
+            }
+        } else if (frequencySketch != null) {
+            entry.reference();
+        }
+        entry.touch(nowNanos());
+        return entry;
+    }
+
+    /**
+     * Hash of the key for the frequency sketch, seeded for this instance. Strings are hashed from their characters,
+     * four at a time, as strings with the same hash code are easy to craft
+     */
+    private int sketchHash(K key) {
+        var hash = hashSeed;
+        if (key instanceof String) {
+            final var string = (String) key;
+            var word = 0L;
+            for (var i = 0; i < string.length(); i++) {
+                word = (word << 16) | string.charAt(i);
+                if ((i & 3) == 3) {
+                    hash = LongKeyTable.mix(hash ^ word);
+                    word = 0L;
+                }
+            }
+            hash = LongKeyTable.mix(hash ^ word ^ ((long) string.length() << 48));
+        } else {
+            hash = LongKeyTable.mix(hash ^ key.hashCode());
+        }
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private Entry<R, K> createEntry(K key) {
+        final var now = nowNanos();
+        final var entry = new Entry<>(key, frequencySketch == null ? 0 : sketchHash(key),
+                rateLimiterProvider.apply(key), now);
+        listener.onKeyAdded();
+        if (frequencySketch == null) {
+            entry.timeout = expirationWheel.schedule(entry, now + idleTimeoutNanos);
+        }
+        return entry;
+    }
+
+    /**
+     * Adds a new entry to the eviction queue, evicting entries while there are more keys than the maximum.
+     * The new entry is only scheduled for cleanup in case it is not evicted
+     *
+     * @return false when the new entry is evicted, so its requests use the overflow rate limiter
+     */
+    private boolean admit(Entry<R, K> candidate) {
+        synchronized (evictionLock) {
+            if (candidate.queued || candidate.removed) {
+                return !candidate.removed || overflow == null;
+            }
+            candidate.queued = true;
+
+            while (rateLimiterMap.size() > maximumKeys) {
+                final var victim = nextVictim();
+                if (victim == null
+                        || frequencySketch.frequency(candidate.sketchHash)
+                        <= frequencySketch.frequency(victim.sketchHash)) {
+                    if (victim != null) {
+                        evictionQueue.addFirst(victim);
+                    }
+                    evict(candidate);
+                    if (overflow == null) {
+                        overflow = candidate;
+                    }
+                    return false;
+                }
+                evict(victim);
+            }
+
+            evictionQueue.addLast(candidate);
+            candidate.timeout = expirationWheel.schedule(candidate, candidate.lastAccessNanos + idleTimeoutNanos);
+            if (evictionQueue.size() > maximumKeys * 2L) {
+                evictionQueue.removeIf(entry -> entry.removed);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return The oldest entry which was not used since it was checked last time, or null if there is none
+     */
+    private Entry<R, K> nextVictim() {
+        for (var remaining = evictionQueue.size() * 2; remaining > 0; remaining--) {
+            final var entry = evictionQueue.pollFirst();
+            if (entry == null) {
+                return null;
+            }
+            if (entry.removed) {
+                continue;
+            }
+            if (entry.referenced) {
+                entry.referenced = false;
+                evictionQueue.addLast(entry);
+                continue;
+            }
+            return entry;
+        }
+        return null;
+    }
+
+    private void evict(Entry<R, K> entry) {
+        if (rateLimiterMap.remove(entry.key, entry)) {
+            entry.removed = true;
+            listener.onKeyRemoved();
+            final var timeout = entry.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            evictionCount.increment();
+        }
+    }
+
     private void cleanup() {
-        final var keys = rateLimiterMap.keySet();
-        keys.forEach(key -> rateLimiterMap.compute(key, (ignored, rateLimiter) -> {
-            if(rateLimiter == null || rateLimiter.isEmpty()) {
+        final var start = startNanos();
+        removedByCleanup = 0L;
+        expirationWheel.expire(nowNanos(), this::cleanupEntry);
+        if (instrumented) {
+            listener.onCleanup(System.nanoTime() - start, removedByCleanup);
+        }
+    }
+
+    private void cleanupEntry(Entry<R, K> entry) {
+        if (entry.removed) {
+            return;
+        }
+        final var now = nowNanos();
+        final var idleAfter = entry.lastAccessNanos + idleTimeoutNanos;
+        if (idleAfter > now) {
+            entry.timeout = expirationWheel.schedule(entry, idleAfter);
+            return;
+        }
+
+        final var remaining = rateLimiterMap.computeIfPresent(entry.key, (ignored, current) -> {
+            if (current == entry && entry.rateLimiter.isEmpty()) {
+                entry.removed = true;
+                removedByCleanup++;
+                listener.onKeyRemoved();
                 return null;
             } else {
-                return rateLimiter;
+                return current;
+            }
+        });
+        if (remaining == entry) {
+            entry.timeout = expirationWheel.schedule(entry, now + recheckNanos);
+        }
+    }
+
+    private long startNanos() {
+        return instrumented ? System.nanoTime() : 0L;
+    }
+
+    private void report(long start, Optional<Duration> decision) {
+        if (instrumented) {
+            listener.onDecision(Decisions.waitNanos(decision), System.nanoTime() - start);
+        }
+    }
+
+    private long nowNanos() {
+        return ticker.read();
+    }
+
+    /**
+     * Requests of a batch with the same key, and their positions in the batch
+     */
+    private static final class Group<R> {
+
+        private final List<R> requests = new ArrayList<>();
+        private int[] indexes = new int[1];
+
+        private void add(R request, int index) {
+            if (requests.size() == indexes.length) {
+                indexes = Arrays.copyOf(indexes, indexes.length * 2);
+            }
+            indexes[requests.size()] = index;
+            requests.add(request);
+        }
+    }
+
+    private static final class Entry<R, K> {
+
+        private final K key;
+        private final int sketchHash;
+        private final RateLimiter<R> rateLimiter;
+        private volatile long lastAccessNanos;
+        private volatile boolean referenced;
+        private volatile boolean removed;
+        private volatile HashedTimingWheel.Timeout<Entry<R, K>> timeout;
+        // Only accessed holding the eviction lock
+        private boolean queued;
+
+        private Entry(K key, int sketchHash, RateLimiter<R> rateLimiter, long lastAccessNanos) {
+            this.key = key;
+            this.sketchHash = sketchHash;
+            this.rateLimiter = rateLimiter;
+            this.lastAccessNanos = lastAccessNanos;
+        }
+
+        private void touch(long now) {
+            // Avoid writing the shared field when it does not change
+            if (lastAccessNanos != now) {
+                lastAccessNanos = now;
+            }
+        }
+
+        private void reference() {
+            if (!referenced) {
+                referenced = true;
             }
-        }));
+        }
     }
 
 }
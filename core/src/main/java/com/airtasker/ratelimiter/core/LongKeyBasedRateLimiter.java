@@ -0,0 +1,151 @@
+package com.airtasker.ratelimiter.core;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.ToLongFunction;
+
+/**
+ * Rate limiter which maintains a different limit for every key, for keys that can be encoded as a {@code long}
+ *
+ * Unlike {@link KeyBasedRateLimiter}, there is no rate limiter object for every key. The limit of every key is
+ * calculated with the Generic Cell Rate Algorithm (see {@link GcraRateLimiter}), and its state (the theoretical
+ * arrival time) is kept in a {@link LongKeyStateStore}. Using a {@link StripedLongKeyStateStore} there is no
+ * object at all per key, so the heap used and the time spent by the garbage collector stays flat when the number
+ * of keys grows. Using a {@link MappedLongKeyStateStore} the state is kept off heap and survives a restart.
+ *
+ * The state of a key expires by itself once its theoretical arrival time passes, so no cleanup task is needed.
+ *
+ * With a {@link RatePolicy} of several rates, the theoretical arrival times of all of them are kept in the same
+ * record, see {@link #recordSize(RatePolicy)}, and they are checked and updated at once like
+ * {@link MultiGcraRateLimiter} does.
+ *
+ * Keys that are not numbers can be hashed with {@link #hashKey(CharSequence)}. Keys with the same hash share
+ * the limit, which with 64 bits hashes is very unlikely unless there are billions of keys.
+ *
+ * @param <R> The request type for this rate limiter
+ */
+public class LongKeyBasedRateLimiter<R> implements RateLimiter<R> {
+
+    private final ToLongFunction<R> keyEncoder;
+    private final LongKeyStateStore store;
+    private final Ticker ticker;
+    private final GcraPolicy policy;
+    private final LongKeyStateStore.RecordFunction acceptFunction = this::accept;
+    private final LongKeyStateStore.RecordFunction releaseFunction = this::release;
+
+    /**
+     * Build a rate limiter using the provided parameters
+     *
+     * @param keyEncoder A function to extract the key from the request, encoded as a {@code long}
+     * @param rate The rate limit for every key
+     * @param store The store of the state of every key
+     * @param clock The clock used to obtain current time
+     */
+    public LongKeyBasedRateLimiter(ToLongFunction<R> keyEncoder, Rate rate, LongKeyStateStore store, Clock clock) {
+        this(keyEncoder, rate, store, Ticker.fromClock(clock));
+    }
+
+    /**
+     * Build a rate limiter using the provided parameters
+     *
+     * The times kept in the store are the ones of the ticker, so a store surviving a restart of the process needs
+     * a ticker related to the wall clock, like {@link Ticker#fromClock(Clock)}.
+     *
+     * @param keyEncoder A function to extract the key from the request, encoded as a {@code long}
+     * @param rate The rate limit for every key
+     * @param store The store of the state of every key
+     * @param ticker The ticker used to obtain current time, which should not be negative
+     */
+    public LongKeyBasedRateLimiter(ToLongFunction<R> keyEncoder, Rate rate, LongKeyStateStore store, Ticker ticker) {
+        this(keyEncoder, RatePolicy.of(rate), store, ticker);
+    }
+
+    /**
+     * Build a rate limiter checking all the rates of the policy
+     *
+     * @param keyEncoder A function to extract the key from the request, encoded as a {@code long}
+     * @param policy The rates limiting every key
+     * @param store The store of the state of every key, with records of at least {@link #recordSize(RatePolicy)}
+     * @param ticker The ticker used to obtain current time, which should not be negative
+     */
+    public LongKeyBasedRateLimiter(ToLongFunction<R> keyEncoder, RatePolicy policy, LongKeyStateStore store,
+                                   Ticker ticker) {
+        this.policy = new GcraPolicy(policy);
+        if (store.recordSize() < this.policy.recordSize()) {
+            throw new IllegalArgumentException("Records of the store should have at least "
+                    + this.policy.recordSize() + " words");
+        }
+        this.keyEncoder = keyEncoder;
+        this.store = store;
+        this.ticker = ticker;
+    }
+
+    /**
+     * @param policy The rates limiting every key
+     * @return Number of words of the records of the store needed by the policy
+     */
+    public static int recordSize(RatePolicy policy) {
+        return new GcraPolicy(policy).recordSize();
+    }
+
+    @Override
+    public Optional<Duration> accept(R request) {
+        return accept(request, 1L);
+    }
+
+    @Override
+    public long tryAccept(R request, long permits) {
+        final var exceededNanos = policy.exceededCapacityNanos(Permits.check(permits));
+        if (exceededNanos > 0) {
+            return exceededNanos;
+        }
+
+        final var key = keyEncoder.applyAsLong(request);
+        return store.compute(key, nowNanos(), permits, acceptFunction);
+    }
+
+    @Override
+    public Reservation reserve(R request, long permits) {
+        return Reservation.take(this, request, permits);
+    }
+
+    @Override
+    public void release(R request, long permits) {
+        Permits.check(permits);
+        store.compute(keyEncoder.applyAsLong(request), nowNanos(), permits, releaseFunction);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return store.isEmpty(nowNanos());
+    }
+
+    /**
+     * Hashes a key to be used with this rate limiter
+     *
+     * @param key The key to hash
+     * @return 64 bits FNV-1a hash of the characters of the key
+     */
+    public static long hashKey(CharSequence key) {
+        var hash = 0xcbf29ce484222325L;
+        for (var i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private long accept(LongKeyStateStore.Record record, long now, long permits) {
+        return policy.accept(record, now, permits);
+    }
+
+    private long release(LongKeyStateStore.Record record, long now, long permits) {
+        return policy.release(record, now, permits);
+    }
+
+    private long nowNanos() {
+        return ticker.read();
+    }
+
+}
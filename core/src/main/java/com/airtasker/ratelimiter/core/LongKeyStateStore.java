@@ -0,0 +1,67 @@
+package com.airtasker.ratelimiter.core;
+
+/**
+ * Store of the state of rate limiters indexed by keys encoded as a {@code long}
+ *
+ * The state of every key is a record with a fixed number of {@code long} words. The first word of every record
+ * is the time, in nanoseconds, after which the record holds no useful state (it expires), so the store can
+ * reuse its space for other keys. Records are only accessed through {@link #compute}, which is atomic for
+ * the given key.
+ */
+public interface LongKeyStateStore {
+
+    /**
+     * @return Number of {@code long} words of every record, the first one being the expiration time
+     */
+    int recordSize();
+
+    /**
+     * Applies the provided function to the record of the key, atomically
+     *
+     * In case the key does not have any record, or it expired, the function receives a new record with
+     * {@link Record#isNew()} returning true, the expiration time set to the provided time and the rest of
+     * the words set to 0. The record is discarded unless the function moves its expiration time to the future.
+     *
+     * @param key The key of the record
+     * @param now Current time in nanoseconds, used to know which records expired
+     * @param argument Argument passed to the function as it is
+     * @param function Function reading and updating the record, it should not block
+     * @return The value returned by the function
+     */
+    long compute(long key, long now, long argument, RecordFunction function);
+
+    /**
+     * @param now Current time in nanoseconds
+     * @return true when there is no record that did not expire at the provided time
+     */
+    boolean isEmpty(long now);
+
+    /**
+     * @return Number of records kept by the store, including the ones that expired and were not reused yet
+     */
+    long size();
+
+    /**
+     * Function applied atomically to a record. Implementations should not keep a reference to the record
+     * after returning
+     */
+    @FunctionalInterface
+    interface RecordFunction {
+        long apply(Record record, long now, long argument);
+    }
+
+    /**
+     * View of the record of a key, only valid while a {@link RecordFunction} is applied
+     */
+    interface Record {
+
+        /**
+         * @return true when the key did not have any record, or it was expired
+         */
+        boolean isNew();
+
+        long get(int index);
+
+        void set(int index, long value);
+    }
+}
@@ -0,0 +1,287 @@
+package com.airtasker.ratelimiter.core;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash table with linear probing of the records of a {@link LongKeyStateStore}
+ *
+ * The table is a flat sequence of {@code long} words where every slot holds the key followed by its record.
+ * The expiration time (the first word of the record) is stored xor-ed with {@link Long#MIN_VALUE}, so a slot
+ * with all its words set to 0 is an empty slot and new storage does not need to be initialized.
+ *
+ * Expired records are not removed, their slot is reused by the next new key probing through it. When the table
+ * is too full it is rebuilt dropping the expired records, and it only grows in case the records that did not
+ * expire still fill half of it. In case it cannot grow any more, records of new keys are not kept, and the table
+ * is not rebuilt again until the earliest expiration time seen since the last rebuild, so a flood of new keys
+ * does not scan the whole table for every key. Expiration times moved backwards, like when permits are given
+ * back, can delay dropping those records until then.
+ *
+ * The table is also the view of the record passed to the functions, pointing to the slot being computed.
+ * It is not thread safe, callers should guard it with a lock.
+ */
+abstract class LongKeyTable implements LongKeyStateStore.Record {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int NO_SLOT = -1;
+
+    private final int recordSize;
+    private final int stride;
+    private final long[] transientRecord;
+
+    private int capacity;
+    private int used;
+    private int current;
+    private boolean currentIsNew;
+    // Lower bound of the expiration times of the records, before it no rebuild can drop any record
+    private long earliestExpiration = Long.MIN_VALUE;
+    private long rebuilds;
+
+    LongKeyTable(int recordSize) {
+        this.recordSize = recordSize;
+        this.stride = recordSize + 1;
+        this.transientRecord = new long[recordSize];
+    }
+
+    /**
+     * @param index Index of the word in the table
+     * @return The word stored in the provided index
+     */
+    protected abstract long word(int index);
+
+    /**
+     * @param index Index of the word in the table
+     * @param value The value to store in the provided index
+     */
+    protected abstract void word(int index, long value);
+
+    /**
+     * Replaces the storage with a new one, with all the words set to 0
+     *
+     * @param slots Number of slots of the new storage
+     */
+    protected abstract void allocate(int slots);
+
+    /**
+     * @return The maximum number of slots the table can be grown to
+     */
+    protected abstract int maxCapacity();
+
+    /**
+     * Sets the number of slots of the current storage, counting the ones used
+     *
+     * @param slots Number of slots of the storage, it has to be a power of two
+     */
+    final void attach(int slots) {
+        capacity = slots;
+        used = 0;
+        for (var slot = 0; slot < slots; slot++) {
+            if (expiration(slot) != EMPTY) {
+                used++;
+            }
+        }
+    }
+
+    final int stride() {
+        return stride;
+    }
+
+    final int used() {
+        return used;
+    }
+
+    /**
+     * @return Number of times the table was rebuilt
+     */
+    final long rebuilds() {
+        return rebuilds;
+    }
+
+    /**
+     * @param key The key of the record
+     * @param hash Hash of the key obtained with {@link #mix(long)}, only its lowest bits are used
+     */
+    final long compute(long key, int hash, long now, long argument, LongKeyStateStore.RecordFunction function) {
+        var slot = find(key, hash, now);
+        if (slot == NO_SLOT) {
+            slot = insert(key, hash, now);
+        }
+        current = slot;
+        final var result = function.apply(this, now, argument);
+        if (currentIsNew && slot != NO_SLOT) {
+            earliestExpiration = Math.min(earliestExpiration, expiration(slot));
+        }
+        return result;
+    }
+
+    final boolean isEmpty(long now) {
+        for (var slot = 0; slot < capacity; slot++) {
+            final var expiration = expiration(slot);
+            if (expiration != EMPTY && expiration > now) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finalizer of the 64 bits variant of MurmurHash3, so keys like consecutive ids spread over the table
+     */
+    static long mix(long key) {
+        var hash = key;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    @Override
+    public boolean isNew() {
+        return currentIsNew;
+    }
+
+    @Override
+    public long get(int index) {
+        checkIndex(index);
+        if (current == NO_SLOT) {
+            return transientRecord[index];
+        }
+        final var value = word(current * stride + 1 + index);
+        return index == 0 ? value ^ Long.MIN_VALUE : value;
+    }
+
+    @Override
+    public void set(int index, long value) {
+        checkIndex(index);
+        if (current == NO_SLOT) {
+            transientRecord[index] = value;
+        } else {
+            word(current * stride + 1 + index, index == 0 ? value ^ Long.MIN_VALUE : value);
+        }
+    }
+
+    /**
+     * @return The slot of the key, or {@link #NO_SLOT} in case it does not have any record or it is expired
+     */
+    private int find(long key, int hash, long now) {
+        for (var slot = hash & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+            final var expiration = expiration(slot);
+            if (expiration == EMPTY) {
+                return NO_SLOT;
+            }
+            if (word(slot * stride) == key) {
+                if (expiration <= now) {
+                    return NO_SLOT;
+                }
+                currentIsNew = false;
+                return slot;
+            }
+        }
+    }
+
+    private int insert(long key, int hash, long now) {
+        currentIsNew = true;
+        var slot = reusableSlot(key, hash, now);
+        if (slot == NO_SLOT && (used + 1L) * 4 > capacity * 3L) {
+            if (now >= earliestExpiration || capacity * 2L <= maxCapacity()) {
+                rebuild(now);
+                slot = reusableSlot(key, hash, now);
+            }
+            if (slot == NO_SLOT && (used + 1L) * 4 > capacity * 3L) {
+                // Full, the record of this key is not kept
+                Arrays.fill(transientRecord, 0L);
+                transientRecord[0] = now;
+                return NO_SLOT;
+            }
+        }
+        if (slot == NO_SLOT) {
+            slot = emptySlot(hash);
+            used++;
+        }
+
+        final var offset = slot * stride;
+        word(offset, key);
+        word(offset + 1, now ^ Long.MIN_VALUE);
+        for (var i = 2; i < stride; i++) {
+            word(offset + i, 0L);
+        }
+        return slot;
+    }
+
+    /**
+     * A slot can be reused when it holds the same key, already expired, or any other expired key placed
+     * in the probing sequence before the first empty slot
+     */
+    private int reusableSlot(long key, int hash, long now) {
+        var expiredSlot = NO_SLOT;
+        for (var slot = hash & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+            final var expiration = expiration(slot);
+            if (expiration == EMPTY) {
+                return expiredSlot;
+            }
+            if (word(slot * stride) == key) {
+                return slot;
+            }
+            if (expiredSlot == NO_SLOT && expiration <= now) {
+                expiredSlot = slot;
+            }
+        }
+    }
+
+    private int emptySlot(int hash) {
+        var slot = hash & (capacity - 1);
+        while (expiration(slot) != EMPTY) {
+            slot = (slot + 1) & (capacity - 1);
+        }
+        return slot;
+    }
+
+    private void rebuild(long now) {
+        rebuilds++;
+        var alive = 0;
+        var earliest = Long.MAX_VALUE;
+        for (var slot = 0; slot < capacity; slot++) {
+            final var expiration = expiration(slot);
+            if (expiration != EMPTY && expiration > now) {
+                alive++;
+                earliest = Math.min(earliest, expiration);
+            }
+        }
+        earliestExpiration = earliest;
+
+        final var records = new long[alive * stride];
+        var copied = 0;
+        for (var slot = 0; slot < capacity; slot++) {
+            final var expiration = expiration(slot);
+            if (expiration != EMPTY && expiration > now) {
+                for (var i = 0; i < stride; i++) {
+                    records[copied * stride + i] = word(slot * stride + i);
+                }
+                copied++;
+            }
+        }
+
+        final var newCapacity = alive * 2L >= capacity && capacity * 2L <= maxCapacity() ? capacity * 2 : capacity;
+        allocate(newCapacity);
+        capacity = newCapacity;
+        used = alive;
+        for (var record = 0; record < alive; record++) {
+            final var slot = emptySlot((int) mix(records[record * stride]));
+            for (var i = 0; i < stride; i++) {
+                word(slot * stride + i, records[record * stride + i]);
+            }
+        }
+    }
+
+    private long expiration(int slot) {
+        return word(slot * stride + 1) ^ Long.MIN_VALUE;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= recordSize) {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
+
+}
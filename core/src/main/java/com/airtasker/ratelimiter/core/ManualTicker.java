@@ -0,0 +1,46 @@
+package com.airtasker.ratelimiter.core;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ticker which only moves when it is advanced, useful to test code using the rate limiters
+ */
+public class ManualTicker implements Ticker {
+
+    private final AtomicLong nanos;
+
+    /**
+     * Build a ticker starting at 0
+     */
+    public ManualTicker() {
+        this(0L);
+    }
+
+    /**
+     * @param nanos The initial time in nanoseconds
+     */
+    public ManualTicker(long nanos) {
+        this.nanos = new AtomicLong(nanos);
+    }
+
+    @Override
+    public long read() {
+        return nanos.get();
+    }
+
+    /**
+     * @param duration The time to move the ticker forward
+     */
+    public void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    /**
+     * @param nanos The time in nanoseconds to set
+     */
+    public void set(long nanos) {
+        this.nanos.set(nanos);
+    }
+
+}
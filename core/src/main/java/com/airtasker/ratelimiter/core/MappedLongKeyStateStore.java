@@ -0,0 +1,230 @@
+package com.airtasker.ratelimiter.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link LongKeyStateStore} keeping the records off heap, in a memory mapped file
+ *
+ * The file has a small header describing its layout, followed by the stripes, every one of them being an open
+ * addressing hash table with linear probing with a fixed number of slots, guarded by its own lock. As the
+ * records are written directly to the mapped memory, the operating system keeps them even if the process is
+ * killed, and a new process opening the same file starts with all the quotas already populated (warm restart).
+ *
+ * The stripes never grow, when a stripe is full even after dropping its expired records the records of new keys
+ * of that stripe are not kept, so those keys are not limited until there is space again. It fails open on
+ * purpose, so the keys already limited keep their state and a full store does not reject everybody, but it means
+ * a flood of new keys is not limited either: the stripes should be sized for all the keys active in a window.
+ *
+ * So caveats:
+ *
+ * * Records keep times, so they are only meaningful after a restart in case the time used is the wall clock
+ *   time, like the one provided by a {@link java.time.Clock}
+ * * Only one store can open the file at the same time, it is locked until the store is closed or the process
+ *   exits. The file is not meant to be shared between different hosts
+ * * Writes are not flushed to the disk until the store is closed, so a crash of the host (not only the process)
+ *   may lose the latest records
+ * * The file size is {@code stripes * stripeCapacity * (recordSize + 1) * 8} bytes plus the header, and every
+ *   stripe should be smaller than 2GB
+ */
+public class MappedLongKeyStateStore implements LongKeyStateStore, AutoCloseable {
+
+    private static final long MAGIC = 0x4149524b45595354L;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int DEFAULT_STRIPES = 64;
+    private static final int DEFAULT_STRIPE_CAPACITY = 16 * 1024;
+
+    private final int recordSize;
+    private final int stripeShift;
+    private final FileChannel channel;
+    private final Stripe[] stripes;
+
+    /**
+     * Opens or creates a store with default number of stripes and capacity, able to keep one million keys
+     *
+     * @param file The file to map
+     * @param recordSize Number of words of every record, including the expiration time
+     * @throws IOException In case the file cannot be opened or mapped
+     */
+    public MappedLongKeyStateStore(Path file, int recordSize) throws IOException {
+        this(file, recordSize, DEFAULT_STRIPES, DEFAULT_STRIPE_CAPACITY);
+    }
+
+    /**
+     * Opens or creates a store using the provided parameters. An existing file should have been created with the
+     * same parameters
+     *
+     * @param file The file to map
+     * @param recordSize Number of words of every record, including the expiration time
+     * @param stripes Number of stripes, it is rounded up to a power of two
+     * @param stripeCapacity Number of slots of every stripe, it is rounded up to a power of two
+     * @throws IOException In case the file cannot be opened or mapped
+     */
+    public MappedLongKeyStateStore(Path file, int recordSize, int stripes, int stripeCapacity) throws IOException {
+        if (recordSize <= 0) {
+            throw new IllegalArgumentException("Record size should be bigger than 0");
+        }
+        if (stripes <= 0 || stripeCapacity <= 0) {
+            throw new IllegalArgumentException("Stripes and capacity should be positive");
+        }
+        final var stripeCount = powerOfTwo(stripes);
+        final var slots = powerOfTwo(stripeCapacity);
+        final var stripeBytes = (long) slots * (recordSize + 1) * Long.BYTES;
+        if (stripeBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Stripes should be smaller than 2GB, use more stripes");
+        }
+
+        this.recordSize = recordSize;
+        this.stripeShift = Long.SIZE - Integer.numberOfTrailingZeros(stripeCount);
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.tryLock() == null) {
+                throw new IllegalStateException("File " + file + " is already used by another process");
+            }
+            final var header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (header.getLong(0) == 0L) {
+                writeHeader(header, recordSize, stripeCount, slots);
+            } else {
+                checkHeader(header, file, recordSize, stripeCount, slots);
+            }
+            this.stripes = new Stripe[stripeCount];
+            for (var i = 0; i < stripeCount; i++) {
+                final var buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+                        HEADER_SIZE + i * stripeBytes, stripeBytes);
+                this.stripes[i] = new Stripe(recordSize, slots, buffer);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int recordSize() {
+        return recordSize;
+    }
+
+    @Override
+    public long compute(long key, long now, long argument, RecordFunction function) {
+        final var hash = LongKeyTable.mix(key);
+        final var stripe = stripes[stripeShift == Long.SIZE ? 0 : (int) (hash >>> stripeShift)];
+        synchronized (stripe) {
+            return stripe.compute(key, (int) hash, now, argument, function);
+        }
+    }
+
+    @Override
+    public boolean isEmpty(long now) {
+        for (final var stripe : stripes) {
+            synchronized (stripe) {
+                if (!stripe.isEmpty(now)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long size() {
+        var size = 0L;
+        for (final var stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.used();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Flushes the records to the disk and releases the file. The store should not be used after closing it
+     *
+     * @throws IOException In case the file cannot be flushed or released
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            for (final var stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.buffer.force();
+                }
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static void writeHeader(ByteBuffer header, int recordSize, int stripes, int slots) {
+        header.putInt(8, VERSION);
+        header.putInt(12, recordSize);
+        header.putInt(16, stripes);
+        header.putInt(20, slots);
+        // The magic number is written last, so a header that was not completely written is not considered valid
+        header.putLong(0, MAGIC);
+    }
+
+    private static void checkHeader(ByteBuffer header, Path file, int recordSize, int stripes, int slots) {
+        if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION) {
+            throw new IllegalArgumentException("File " + file + " is not a state store");
+        }
+        if (header.getInt(12) != recordSize || header.getInt(16) != stripes || header.getInt(20) != slots) {
+            throw new IllegalArgumentException("File " + file + " was created with a different layout, "
+                    + "record size " + header.getInt(12) + ", " + header.getInt(16) + " stripes and "
+                    + header.getInt(20) + " slots per stripe");
+        }
+    }
+
+    private static int powerOfTwo(int value) {
+        final var highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+
+    /**
+     * Table stored in a mapped region of the file. Rebuilding it keeps the same region, so it cannot grow
+     */
+    private static final class Stripe extends LongKeyTable {
+
+        private final int capacity;
+        private final MappedByteBuffer buffer;
+        private final LongBuffer table;
+
+        private Stripe(int recordSize, int capacity, MappedByteBuffer buffer) {
+            super(recordSize);
+            this.capacity = capacity;
+            this.buffer = buffer;
+            this.table = buffer.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            attach(capacity);
+        }
+
+        @Override
+        protected long word(int index) {
+            return table.get(index);
+        }
+
+        @Override
+        protected void word(int index, long value) {
+            table.put(index, value);
+        }
+
+        @Override
+        protected void allocate(int slots) {
+            for (var i = 0; i < table.capacity(); i++) {
+                table.put(i, 0L);
+            }
+        }
+
+        @Override
+        protected int maxCapacity() {
+            return capacity;
+        }
+    }
+
+}
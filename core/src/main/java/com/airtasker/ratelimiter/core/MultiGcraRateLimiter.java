@@ -0,0 +1,116 @@
+package com.airtasker.ratelimiter.core;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Rate Limiter based on the Generic Cell Rate Algorithm (GCRA) for several rates at the same time
+ *
+ * It keeps the theoretical arrival time of every rate of the {@link RatePolicy} in a single array, and a request
+ * is only accepted when all the rates accept it, in which case all of them are updated at once. When it is
+ * rejected the returned duration is the longest wait of the rates, and none of them is updated, so unlike
+ * chaining several rate limiters the rates accepting the request do not consume any permit.
+ *
+ * Used as delegate of {@link KeyBasedRateLimiter} there is one lookup and one lock per request for all the rates,
+ * and the memory per key is one array of {@code rates} longs.
+ *
+ * So caveats:
+ *
+ * * Accept function is not multi thread, though the lock is only held for O(rates) operations
+ * * Like {@link GcraRateLimiter}, every rate allows a burst of its requests
+ *
+ * @param <R> The type of requests
+ */
+public class MultiGcraRateLimiter<R> implements RateLimiter<R> {
+
+    private final Ticker ticker;
+    private final GcraPolicy policy;
+    private final ArrayRecord state;
+
+    public MultiGcraRateLimiter(RatePolicy policy, Clock clock) {
+        this(policy, Ticker.fromClock(clock));
+    }
+
+    public MultiGcraRateLimiter(RatePolicy policy, Ticker ticker) {
+        this.ticker = ticker;
+        this.policy = new GcraPolicy(policy);
+        this.state = new ArrayRecord(this.policy.recordSize());
+    }
+
+    @Override
+    public Optional<Duration> accept(R request) {
+        return accept(request, 1L);
+    }
+
+    @Override
+    public long tryAccept(R request, long permits) {
+        final var exceededNanos = policy.exceededCapacityNanos(Permits.check(permits));
+        if (exceededNanos > 0) {
+            return exceededNanos;
+        }
+
+        final var now = nowNanos();
+        synchronized (state) {
+            return policy.accept(state, now, permits);
+        }
+    }
+
+    @Override
+    public Reservation reserve(R request, long permits) {
+        return Reservation.take(this, request, permits);
+    }
+
+    @Override
+    public void release(R request, long permits) {
+        Permits.check(permits);
+        final var now = nowNanos();
+        synchronized (state) {
+            policy.release(state, now, permits);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        final var now = nowNanos();
+        synchronized (state) {
+            return state.get(0) <= now;
+        }
+    }
+
+    private long nowNanos() {
+        return ticker.read();
+    }
+
+    /**
+     * Record of the state kept in an array, guarded by the lock of the instance
+     */
+    private static final class ArrayRecord implements LongKeyStateStore.Record {
+
+        private static final long NO_ARRIVAL = Long.MIN_VALUE;
+
+        private final long[] words;
+
+        private ArrayRecord(int size) {
+            this.words = new long[size];
+            Arrays.fill(words, NO_ARRIVAL);
+        }
+
+        @Override
+        public boolean isNew() {
+            return words[0] == NO_ARRIVAL;
+        }
+
+        @Override
+        public long get(int index) {
+            return words[index];
+        }
+
+        @Override
+        public void set(int index, long value) {
+            words[index] = value;
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.airtasker.ratelimiter.core;
+
+/**
+ * Validation of the permits requested to the rate limiters
+ */
+final class Permits {
+
+    private Permits() { /* Not to be instantiated */ }
+
+    /**
+     * @param permits The permits requested
+     * @return The same permits
+     * @throws IllegalArgumentException In case the permits are less than 1
+     */
+    static long check(long permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("Permits should be at least 1, but were " + permits);
+        }
+        return permits;
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.airtasker.ratelimiter.core;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of the quota of a rate limiter for a request, see {@link RateLimiter#quota(Object)}
+ *
+ * The snapshot is taken without synchronizing with the requests being accepted at the same time, so it is only an
+ * estimate, good enough to let clients pace themselves.
+ */
+public final class QuotaStatus {
+
+    private final long limit;
+    private final long remaining;
+    private final long resetNanos;
+
+    /**
+     * @param limit Number of permits of the rate
+     * @param remaining Number of permits which could be granted right now
+     * @param resetNanos Nanoseconds until all the permits of the rate could be granted again
+     */
+    public QuotaStatus(long limit, long remaining, long resetNanos) {
+        this.limit = limit;
+        this.remaining = remaining;
+        this.resetNanos = resetNanos;
+    }
+
+    /**
+     * @return Number of permits of the rate
+     */
+    public long limit() {
+        return limit;
+    }
+
+    /**
+     * @return Number of permits which could be granted right now
+     */
+    public long remaining() {
+        return remaining;
+    }
+
+    /**
+     * @return Nanoseconds until all the permits of the rate could be granted again, 0 when they can be granted now
+     */
+    public long resetNanos() {
+        return resetNanos;
+    }
+
+    /**
+     * @return Time until all the permits of the rate could be granted again
+     */
+    public Duration reset() {
+        return Duration.ofNanos(resetNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "QuotaStatus{limit=" + limit + ", remaining=" + remaining + ", resetNanos=" + resetNanos + '}';
+    }
+
+}
@@ -23,6 +23,14 @@ public class Rate {
         return new Rate(requests, window);
     }
 
+    /**
+     * @param other Another rate to satisfy at the same time
+     * @return A policy with this rate and the other one
+     */
+    public RatePolicy and(Rate other) {
+        return RatePolicy.of(this, other);
+    }
+
     public long requests() {
         return requests;
     }
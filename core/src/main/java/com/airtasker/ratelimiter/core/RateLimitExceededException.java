@@ -0,0 +1,26 @@
+package com.airtasker.ratelimiter.core;
+
+import java.time.Duration;
+
+/**
+ * Exception completing an acquisition of permits which could not be granted within the maximum wait, or ever
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryAfter;
+
+    public RateLimitExceededException(Duration retryAfter) {
+        super("Rate limit exceeded, retry after " + retryAfter);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return The duration that at least needs to be elapsed until the permits can be granted
+     */
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+
+}
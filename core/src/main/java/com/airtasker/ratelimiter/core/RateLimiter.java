@@ -1,7 +1,9 @@
 package com.airtasker.ratelimiter.core;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Interface that all RateLimiters should implement
@@ -19,6 +21,164 @@ public interface RateLimiter<R> {
      */
     Optional<Duration> accept(R request);
 
+    /**
+     * Function that needs to be called for each request which costs more than one permit, like a bulk request
+     *
+     * All the permits are granted or refused atomically. In case the request needs more permits than the rate
+     * allows, it is always rejected with the window of the rate as duration.
+     *
+     * The default implementation adapts the value returned by {@link #tryAccept(Object, long)}.
+     *
+     * @param request The request to check whether limit or not
+     * @param permits The number of permits the request costs, at least 1
+     * @return Empty if the request is accepted, otherwise a optional with the duration
+     * that at least needs to be elapsed until the permits can be granted
+     * @throws IllegalArgumentException In case the permits are less than 1
+     * @throws UnsupportedOperationException In case the rate limiter does not support more than one permit
+     */
+    default Optional<Duration> accept(R request, long permits) {
+        return Decisions.decision(tryAccept(request, permits));
+    }
+
+    /**
+     * Same as {@link #accept(Object, long)}, but the decision is returned as a primitive so nothing is allocated,
+     * not even when the request is rejected
+     *
+     * The rate limiters of this library implement this function, and adapt the value returned to the
+     * {@link Optional} returned by {@link #accept(Object)}. The default implementation adapts the value returned
+     * by {@link #accept(Object)} instead, so it only supports one permit.
+     *
+     * @param request The request to check whether limit or not
+     * @param permits The number of permits the request costs, at least 1
+     * @return 0 if the request is accepted, otherwise the nanoseconds that at least need to be elapsed until
+     * the permits can be granted, which are always at least 1
+     * @throws IllegalArgumentException In case the permits are less than 1
+     * @throws UnsupportedOperationException In case the rate limiter does not support more than one permit
+     */
+    default long tryAccept(R request, long permits) {
+        if (Permits.check(permits) != 1) {
+            throw new UnsupportedOperationException(getClass().getName() + " only supports one permit per request");
+        }
+        return Decisions.waitNanos(accept(request));
+    }
+
+    /**
+     * Function to check a batch of requests at once, every request costing one permit
+     *
+     * The decisions are the same as calling {@link #accept(Object)} for every request in order, but the rate
+     * limiters of this library amortize the work, like taking their lock only once for the whole batch.
+     *
+     * @param requests The requests to check whether limit or not
+     * @return The decision for every request, in the same order
+     */
+    default BatchResult acceptAll(List<? extends R> requests) {
+        final var waitNanos = new long[requests.size()];
+        var index = 0;
+        for (final var request : requests) {
+            waitNanos[index++] = tryAccept(request, 1L);
+        }
+        return new BatchResult(waitNanos);
+    }
+
+    /**
+     * Function to wait for a permit instead of being rejected, waiting as long as needed
+     *
+     * See {@link #acquire(Object, long, Duration)}.
+     *
+     * @param request The request to limit
+     * @return A stage completed once the permit is granted
+     */
+    default CompletionStage<Void> acquire(R request) {
+        return Acquisition.start(this, request, 1L, Acquisition.UNBOUNDED_WAIT_NANOS);
+    }
+
+    /**
+     * Function to wait for a permit instead of being rejected, waiting at most the provided duration
+     *
+     * See {@link #acquire(Object, long, Duration)}.
+     *
+     * @param request The request to limit
+     * @param maxWait The maximum time to wait for the permit
+     * @return A stage completed once the permit is granted, or exceptionally with
+     * {@link RateLimitExceededException} in case it cannot be granted within the maximum wait
+     */
+    default CompletionStage<Void> acquire(R request, Duration maxWait) {
+        return acquire(request, 1L, maxWait);
+    }
+
+    /**
+     * Function to wait for the permits of a request instead of being rejected, without blocking any thread
+     *
+     * The request is checked right away with {@link #tryAccept(Object, long)}, and in case it is rejected it is
+     * checked again once the returned duration elapses. The retries are scheduled in a single timer thread
+     * shared by all the rate limiters, which also completes the stage, so dependent stages doing slow work
+     * should use the async variants. In case the permits would only be granted after the maximum wait, the stage
+     * is completed exceptionally right away, without waiting. Cancelling the stage stops the retries.
+     *
+     * Waiting requests are not queued, so they are not granted in the order they arrived. A request needing more
+     * permits than the limit reported by {@link #quota(Object)} is completed exceptionally right away, as it can never
+     * be granted, but with rate limiters which can not report their quota it only fails after the maximum wait.
+     *
+     * @param request The request to limit
+     * @param permits The number of permits the request costs, at least 1
+     * @param maxWait The maximum time to wait for the permits
+     * @return A stage completed once the permits are granted, or exceptionally with
+     * {@link RateLimitExceededException} in case they cannot be granted within the maximum wait
+     * @throws IllegalArgumentException In case the permits are less than 1 or the maximum wait is negative
+     */
+    default CompletionStage<Void> acquire(R request, long permits, Duration maxWait) {
+        return Acquisition.start(this, request, permits, Acquisition.toWaitNanos(maxWait));
+    }
+
+    /**
+     * Tentatively takes the permits of a request, which can be committed or cancelled later
+     *
+     * The permits are taken right away like {@link #tryAccept(Object, long)} does, so they count for any other
+     * request until the reservation is cancelled, which gives them back with {@link #release(Object, long)}. It
+     * allows composing rate limiters without leaking permits, see {@link HierarchicalRateLimiter}.
+     *
+     * Only the rate limiters which can give back permits support it, the default implementation fails before
+     * taking any permit, so a reservation can always be cancelled.
+     *
+     * @param request The request to check whether limit or not
+     * @param permits The number of permits the request costs, at least 1
+     * @return The reservation, which is not granted when the request is rejected
+     * @throws IllegalArgumentException In case the permits are less than 1
+     * @throws UnsupportedOperationException In case the rate limiter can not give back permits
+     */
+    default Reservation reserve(R request, long permits) {
+        throw new UnsupportedOperationException(getClass().getName() + " can not release permits");
+    }
+
+    /**
+     * Gives back permits previously granted to a request, as if it had not been accepted
+     *
+     * The rate limiters based on the Generic Cell Rate Algorithm, {@link ConcurrencyRateLimiter}, and the key based
+     * ones using them as delegates, support it. Permits granted long ago, whose slot already went out of the window,
+     * are not given back.
+     *
+     * @param request The request which was accepted
+     * @param permits The number of permits granted to the request
+     * @throws UnsupportedOperationException In case the rate limiter can not give back permits
+     */
+    default void release(R request, long permits) {
+        throw new UnsupportedOperationException(getClass().getName() + " can not release permits");
+    }
+
+    /**
+     * Quota left for a request, without taking any permit
+     *
+     * The rate limiters supporting it read their state without taking any lock, so it is cheap enough to be
+     * called for every request, like to report the quota to the clients. The key based rate limiters do not
+     * create any state for the key of the request, so they only report the quota of keys already used.
+     *
+     * @param request The request to check the quota of
+     * @return The quota of the request, or empty in case the rate limiter can not report it
+     */
+    default Optional<QuotaStatus> quota(R request) {
+        return Optional.empty();
+    }
+
     /**
      * Indicates the rate limiter does not have any data and can be recycled
      * @return true when can be recycled
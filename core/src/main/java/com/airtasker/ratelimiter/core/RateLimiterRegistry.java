@@ -0,0 +1,156 @@
+package com.airtasker.ratelimiter.core;
+
+import com.airtasker.ratelimiter.core.internal.DefaultCleanupThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+/**
+ * Registry of named rate limiters sharing a single scheduler for their background tasks, like the cleanup ones
+ *
+ * Rate limiters needing a scheduler are created with the one of the registry, so no matter how many rate limiters
+ * there are, only one thread is used. Rate limiters registered with the same name are the same instance, which
+ * allows sharing a limit across several resources.
+ *
+ * Closing the registry stops the scheduler, so the rate limiters created with it should not be used afterwards.
+ * The {@link AirtaskerRateLimiters} factories use the scheduler of {@link #defaultRegistry()}, which can not be
+ * closed. A registry built with {@link #sharingScheduler(RateLimiterRegistry)} keeps its own rate limiters, but
+ * uses the scheduler of another registry and leaves it running when it is closed.
+ */
+public class RateLimiterRegistry implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimiterRegistry.class);
+
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentMap<String, RateLimiter<?>> rateLimiters = new ConcurrentHashMap<>();
+    private final boolean closeable;
+    private final boolean ownsScheduler;
+    private volatile boolean closed;
+
+    /**
+     * Build a registry with its own scheduler, running in a single daemon thread
+     */
+    public RateLimiterRegistry() {
+        this(Executors.newSingleThreadScheduledExecutor(DefaultCleanupThreadFactory.INSTANCE));
+    }
+
+    /**
+     * Build a registry using the provided scheduler, which is shut down when the registry is closed
+     *
+     * @param scheduler The scheduler shared by all the rate limiters of the registry
+     */
+    public RateLimiterRegistry(ScheduledExecutorService scheduler) {
+        this(scheduler, true, true);
+    }
+
+    private RateLimiterRegistry(ScheduledExecutorService scheduler, boolean closeable, boolean ownsScheduler) {
+        this.scheduler = scheduler;
+        this.closeable = closeable;
+        this.ownsScheduler = ownsScheduler;
+    }
+
+    /**
+     * Build a registry with its own rate limiters using the scheduler of another one, so they do not need a thread
+     * of their own. Closing it closes its rate limiters, but not the shared scheduler.
+     *
+     * @param registry The registry whose scheduler is shared, like the {@link #defaultRegistry()}
+     * @return A new registry using the scheduler of the provided one
+     */
+    public static RateLimiterRegistry sharingScheduler(RateLimiterRegistry registry) {
+        return new RateLimiterRegistry(registry.scheduler(), true, false);
+    }
+
+    /**
+     * @return The registry shared by the whole process, whose single thread is started on first use
+     */
+    public static RateLimiterRegistry defaultRegistry() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * @return The scheduler shared by the rate limiters of this registry
+     */
+    public ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Returns the rate limiter with the provided name, creating it in case it does not exist
+     *
+     * The factory is only called once per name, so a rate limiter shared by several callers keeps the
+     * configuration of the first one.
+     *
+     * @param name The name of the rate limiter
+     * @param factory Function creating the rate limiter with the scheduler of the registry
+     * @param <R> The type of requests
+     * @return The rate limiter registered with the name
+     * @throws IllegalStateException In case the registry is closed
+     */
+    @SuppressWarnings("unchecked")
+    public <R> RateLimiter<R> rateLimiter(String name, Function<ScheduledExecutorService, RateLimiter<R>> factory) {
+        if (closed || scheduler.isShutdown()) {
+            throw new IllegalStateException("The registry is closed");
+        }
+        return (RateLimiter<R>) rateLimiters.computeIfAbsent(name, ignored -> factory.apply(scheduler));
+    }
+
+    /**
+     * @param name The name of the rate limiter
+     * @param <R> The type of requests
+     * @return The rate limiter registered with the name, if any
+     */
+    @SuppressWarnings("unchecked")
+    public <R> Optional<RateLimiter<R>> find(String name) {
+        return Optional.ofNullable((RateLimiter<R>) rateLimiters.get(name));
+    }
+
+    /**
+     * @return The names of the rate limiters registered
+     */
+    public Set<String> names() {
+        return Set.copyOf(rateLimiters.keySet());
+    }
+
+    /**
+     * Stops the scheduler, cancelling all the pending tasks, unless it is shared with another registry, and forgets
+     * all the rate limiters, closing the ones that are {@link AutoCloseable}
+     *
+     * @throws UnsupportedOperationException In case this is the default registry
+     */
+    @Override
+    public void close() {
+        if (!closeable) {
+            throw new UnsupportedOperationException("The default registry can not be closed");
+        }
+        closed = true;
+        if (ownsScheduler) {
+            scheduler.shutdownNow();
+        }
+        rateLimiters.values().forEach(RateLimiterRegistry::closeQuietly);
+        rateLimiters.clear();
+    }
+
+    private static void closeQuietly(RateLimiter<?> rateLimiter) {
+        if (rateLimiter instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) rateLimiter).close();
+            } catch (Exception ex) {
+                LOG.warn("Error closing rate limiter", ex);
+            }
+        }
+    }
+
+    private static final class DefaultHolder {
+
+        private static final RateLimiterRegistry INSTANCE = new RateLimiterRegistry(
+                Executors.newSingleThreadScheduledExecutor(DefaultCleanupThreadFactory.INSTANCE), false, true);
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.airtasker.ratelimiter.core;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Several rates that have to be satisfied at the same time, like a burst and a sustained rate
+ *
+ * For example {@code Rate.of(10, Duration.ofSeconds(1)).and(Rate.of(1000, Duration.ofHours(1)))}. A request is
+ * only accepted when all the rates accept it, see {@link MultiGcraRateLimiter}.
+ */
+public final class RatePolicy {
+
+    private final List<Rate> rates;
+
+    private RatePolicy(List<Rate> rates) {
+        this.rates = Collections.unmodifiableList(rates);
+    }
+
+    public static RatePolicy of(Rate rate, Rate... others) {
+        final var rates = new ArrayList<Rate>(others.length + 1);
+        rates.add(Objects.requireNonNull(rate));
+        Arrays.stream(others).map(Objects::requireNonNull).forEach(rates::add);
+        return new RatePolicy(rates);
+    }
+
+    /**
+     * @param rate Another rate to satisfy
+     * @return A new policy with the rates of this one plus the provided one
+     */
+    public RatePolicy and(Rate rate) {
+        final var newRates = new ArrayList<>(rates);
+        newRates.add(Objects.requireNonNull(rate));
+        return new RatePolicy(newRates);
+    }
+
+    public List<Rate> rates() {
+        return rates;
+    }
+
+    /**
+     * @return The longest window of the rates, after which the state of the policy can be forgotten
+     */
+    public Duration longestWindow() {
+        return rates.stream().map(Rate::window).max(Duration::compareTo).orElseThrow();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RatePolicy that = (RatePolicy) o;
+        return rates.equals(that.rates);
+    }
+
+    @Override
+    public int hashCode() {
+        return rates.hashCode();
+    }
+}
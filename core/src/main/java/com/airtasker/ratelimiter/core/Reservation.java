@@ -0,0 +1,78 @@
+package com.airtasker.ratelimiter.core;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Permits tentatively taken from a rate limiter, see {@link RateLimiter#reserve(Object, long)}
+ *
+ * While the reservation is pending the permits count as taken for any other request. Committing it keeps them
+ * taken, and cancelling it gives them back to the rate limiter. Only the first of both calls has any effect, and
+ * neither of them does anything when the reservation was not granted.
+ */
+public final class Reservation {
+
+    private static final int PENDING = 0;
+    private static final int COMMITTED = 1;
+    private static final int CANCELLED = 2;
+
+    private final long waitNanos;
+    private final Runnable release;
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+
+    /**
+     * @param waitNanos Nanoseconds to wait until the permits could be reserved, 0 when they are reserved
+     * @param release Action giving back the permits to the rate limiter
+     */
+    Reservation(long waitNanos, Runnable release) {
+        this.waitNanos = waitNanos;
+        this.release = release;
+    }
+
+    /**
+     * Takes the permits from a rate limiter which supports {@link RateLimiter#release(Object, long)}
+     *
+     * @return The reservation of the permits, giving them back to the same rate limiter when cancelled
+     */
+    static <R> Reservation take(RateLimiter<R> rateLimiter, R request, long permits) {
+        return new Reservation(rateLimiter.tryAccept(request, permits), () -> rateLimiter.release(request, permits));
+    }
+
+    /**
+     * @return true when the permits are reserved
+     */
+    public boolean isGranted() {
+        return waitNanos == Decisions.ACCEPTED;
+    }
+
+    /**
+     * @return Nanoseconds that at least need to elapse until the permits can be reserved, 0 when they are reserved
+     */
+    public long waitNanos() {
+        return waitNanos;
+    }
+
+    /**
+     * Keeps the permits taken
+     *
+     * @return false when the reservation was already cancelled
+     */
+    public boolean commit() {
+        return state.compareAndSet(PENDING, COMMITTED) || state.get() == COMMITTED;
+    }
+
+    /**
+     * Gives back the permits to the rate limiter, in case they were reserved
+     *
+     * @return false when the reservation was already committed
+     */
+    public boolean cancel() {
+        if (state.compareAndSet(PENDING, CANCELLED)) {
+            if (isGranted()) {
+                release.run();
+            }
+            return true;
+        }
+        return state.get() == CANCELLED;
+    }
+
+}
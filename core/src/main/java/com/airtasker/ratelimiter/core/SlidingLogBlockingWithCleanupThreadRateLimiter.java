@@ -1,13 +1,13 @@
 package com.airtasker.ratelimiter.core;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.airtasker.ratelimiter.core.metrics.RateLimiterListener;
 
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -33,47 +33,144 @@ import java.util.concurrent.TimeUnit;
  * * The accept() function is O(1) (constant) in time (assuming {@code executor.execute()} call is constant as well
  *   and ignoring the time spending blocking
  *
+ * The decisions and the duration of the cleanup tasks are reported to a {@link RateLimiterListener}, in case one
+ * is provided.
+ *
+ * See {@link SlidingLogRingBufferRateLimiter} for an exact sliding log which does not need any cleanup task
+ *
  * @param <R> The type of requests
  */
 public class SlidingLogBlockingWithCleanupThreadRateLimiter<R> implements RateLimiter<R> {
 
-    private static final Logger LOG = LoggerFactory.getLogger(SlidingLogBlockingWithCleanupThreadRateLimiter.class);
+    // Decision of the accepted requests, the rejections can need to wait 0 nanoseconds
+    private static final long ACCEPTED_DECISION = Long.MIN_VALUE;
 
     private final Rate rate;
-    private final Clock clock;
+    private final Ticker ticker;
+    private final long windowNanos;
     private final ScheduledExecutorService executorService;
-    private final Deque<Instant> log = new LinkedList<>();
+    private final Deque<Long> log = new LinkedList<>();
     private final Object headLock = new Object();
     private final Object tailLock = new Object();
     private final Runnable cleanRunnable = this::cleanLog;
+    private final RateLimiterListener listener;
+    // Written holding the tail lock, read without it to report the quota
+    private volatile long lastArrival;
 
     public SlidingLogBlockingWithCleanupThreadRateLimiter(
             Rate rate, Clock clock, ScheduledExecutorService executorService) {
+        this(rate, () -> toNanos(clock.instant()), executorService);
+    }
+
+    public SlidingLogBlockingWithCleanupThreadRateLimiter(
+            Rate rate, Ticker ticker, ScheduledExecutorService executorService) {
+        this(rate, ticker, executorService, RateLimiterListener.NO_OP);
+    }
+
+    public SlidingLogBlockingWithCleanupThreadRateLimiter(
+            Rate rate, Ticker ticker, ScheduledExecutorService executorService, RateLimiterListener listener) {
+        this.listener = listener;
         this.rate = rate;
-        this.clock = clock;
+        this.ticker = ticker;
+        this.windowNanos = rate.window().toNanos();
         this.executorService = executorService;
     }
 
     @Override
     public Optional<Duration> accept(R request) {
+        return accept(request, 1L);
+    }
+
+    /**
+     * Every permit is stored as one entry of the log, so accepting the request is O(permits) in time
+     */
+    @Override
+    public Optional<Duration> accept(R request, long permits) {
+        final var decision = decideAndReport(permits);
+        return decision == ACCEPTED_DECISION ? Optional.empty() : Optional.of(Duration.ofNanos(decision));
+    }
+
+    /**
+     * Takes the same decision as {@link #accept(Object, long)} without allocating it, a rejection which does not
+     * need to wait is encoded as 1 nanosecond
+     */
+    @Override
+    public long tryAccept(R request, long permits) {
+        return waitNanos(decideAndReport(permits));
+    }
+
+    private long decideAndReport(long permits) {
+        if (listener == RateLimiterListener.NO_OP) {
+            return decide(permits);
+        }
+        final var start = System.nanoTime();
+        final var decision = decide(permits);
+        listener.onDecision(waitNanos(decision), System.nanoTime() - start);
+        return decision;
+    }
+
+    /**
+     * @return {@link #ACCEPTED_DECISION} or the nanoseconds to wait, which can be 0 or less when the entries out of
+     * the window were not cleaned up yet
+     */
+    private long decide(long permits) {
+        // A single permit is checked against the log even when the rate does not allow any request
+        if (Permits.check(permits) > 1 && permits > rate.requests()) {
+            return windowNanos;
+        }
+
         synchronized (tailLock) {
-            if (log.size() >= rate.requests()) {
-                LOG.debug("Rejecting request: {}", request);
-                final var head = log.peekFirst();
-                if(head == null) {
+            final var excess = log.size() + permits - rate.requests();
+            if (excess > 0) {
+                // The permits fit once the entry making the excess leaves the window
+                final var entry = entryAt(excess - 1);
+                if(entry == null) {
                     // race condition, should be able now to run
-                    return Optional.of(Duration.ZERO);
+                    return 0L;
                 } else {
-                    return Optional.of(Duration.between(clock.instant(), head.plus(rate.window())));
+                    return entry + windowNanos - ticker.read();
                 }
             }
 
-            log.addLast(clock.instant());
+            final var now = ticker.read();
+            for (var i = 0; i < permits; i++) {
+                log.addLast(now);
+            }
+            lastArrival = now;
             executorService.execute(() ->
                     executorService.schedule(cleanRunnable, rate.window().toMillis(), TimeUnit.MILLISECONDS));
-            LOG.debug("Accepting request: {}", request);
-            return Optional.empty();
+            return ACCEPTED_DECISION;
+        }
+    }
+
+    private static long waitNanos(long decision) {
+        return decision == ACCEPTED_DECISION ? Decisions.ACCEPTED : Math.max(1L, decision);
+    }
+
+    /**
+     * The tail lock is taken once for the whole batch, so concurrent requests cannot interleave with it
+     */
+    @Override
+    public BatchResult acceptAll(List<? extends R> requests) {
+        final var waitNanos = new long[requests.size()];
+        synchronized (tailLock) {
+            var index = 0;
+            for (final var request : requests) {
+                waitNanos[index++] = tryAccept(request, 1L);
+            }
         }
+        return new BatchResult(waitNanos);
+    }
+
+    /**
+     * The quota is estimated without taking any lock, from the size of the log and the last request accepted, so
+     * the requests waiting to be cleaned up still count
+     */
+    @Override
+    public Optional<QuotaStatus> quota(R request) {
+        final var size = log.size();
+        final var resetNanos = size == 0 ? 0L : Math.max(0L, lastArrival + windowNanos - ticker.read());
+        return Optional.of(new QuotaStatus(rate.requests(), Math.max(0L, rate.requests() - size), resetNanos));
     }
 
     @Override
@@ -81,13 +178,33 @@ public class SlidingLogBlockingWithCleanupThreadRateLimiter<R> implements RateLi
         return log.isEmpty();
     }
 
+    /**
+     * Entries are only removed holding the head lock, so the log can be walked safely holding it
+     */
+    private Long entryAt(long position) {
+        synchronized (headLock) {
+            return log.stream().skip(position).findFirst().orElse(null);
+        }
+    }
+
     private void cleanLog() {
+        final var start = System.nanoTime();
+        var removed = 0L;
         synchronized (headLock) {
-            final var limit = clock.instant().minus(rate.window());
-            while((!log.isEmpty()) && limit.isAfter(log.getFirst())) {
+            final var limit = ticker.read() - windowNanos;
+            while((!log.isEmpty()) && limit > log.getFirst()) {
                 log.removeFirst();
+                removed++;
             }
         }
+        listener.onCleanup(System.nanoTime() - start, removed);
+    }
+
+    /**
+     * Keeps the precision of the instants of the clock, instead of the milliseconds of {@link Ticker#fromClock(Clock)}
+     */
+    private static long toNanos(Instant instant) {
+        return TimeUnit.SECONDS.toNanos(instant.getEpochSecond()) + instant.getNano();
     }
 
 }
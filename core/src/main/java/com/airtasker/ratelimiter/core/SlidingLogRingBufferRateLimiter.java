@@ -0,0 +1,139 @@
+package com.airtasker.ratelimiter.core;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Rate Limiter based on Sliding Log algorithm with blocking operations, storing the log in a ring buffer
+ *
+ * The log is a preallocated array of {@code rate.requests()} timestamps in nanoseconds used as a ring buffer.
+ * Instead of scheduling cleanup tasks, the entries that went out of the window are evicted inline when a
+ * request is checked, so the rate limiter is exact and does not need any background task nor allocates
+ * anything when a request is accepted.
+ *
+ * A request done at time {@code t} counts in the window until {@code t + rate.window()}, not included.
+ *
+ * So caveats:
+ *
+ * * Accept function is not multi thread, not very suitable for high parallel services
+ * * The log is allocated upfront, so it always uses {@code rate.requests()} longs of memory even when it is
+ *   empty, which makes it not very suitable for big rates with a lot of keys
+ * * The accept() function is O(1) (constant) amortized in time, as every stored entry is evicted only once,
+ *   ignoring the time spend blocking
+ *
+ * @param <R> The type of requests
+ */
+public class SlidingLogRingBufferRateLimiter<R> implements RateLimiter<R> {
+
+    /**
+     * Maximum number of requests for the rate that this rate limiter supports
+     */
+    public static final long MAX_REQUESTS = Integer.MAX_VALUE - 8;
+
+    private final Ticker ticker;
+    private final long windowNanos;
+    private final long[] log;
+    private final Object lock = new Object();
+
+    private int head = 0;
+    private int size = 0;
+
+    public SlidingLogRingBufferRateLimiter(Rate rate, Clock clock) {
+        this(rate, Ticker.fromClock(clock));
+    }
+
+    public SlidingLogRingBufferRateLimiter(Rate rate, Ticker ticker) {
+        if (rate.requests() > MAX_REQUESTS) {
+            throw new IllegalArgumentException("Requests should not be bigger than " + MAX_REQUESTS);
+        }
+        this.ticker = ticker;
+        this.windowNanos = rate.window().toNanos();
+        this.log = new long[(int) rate.requests()];
+    }
+
+    @Override
+    public Optional<Duration> accept(R request) {
+        return accept(request, 1L);
+    }
+
+    /**
+     * Every permit is stored as one entry of the log, so accepting the request is O(permits) in time
+     */
+    @Override
+    public long tryAccept(R request, long permits) {
+        if (Permits.check(permits) > log.length) {
+            return windowNanos;
+        }
+
+        // The time is read holding the lock, so the entries are appended in order
+        synchronized (lock) {
+            return acceptLocked(permits, nowNanos());
+        }
+    }
+
+    /**
+     * The lock is taken once for the whole batch, and all the requests are checked at the same time
+     */
+    @Override
+    public BatchResult acceptAll(List<? extends R> requests) {
+        final var waitNanos = new long[requests.size()];
+        if (log.length == 0) {
+            Arrays.fill(waitNanos, windowNanos);
+            return new BatchResult(waitNanos);
+        }
+
+        synchronized (lock) {
+            final var now = nowNanos();
+            for (var index = 0; index < waitNanos.length; index++) {
+                waitNanos[index] = acceptLocked(1L, now);
+            }
+        }
+        return new BatchResult(waitNanos);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        synchronized (lock) {
+            evict(nowNanos());
+            return size == 0;
+        }
+    }
+
+    /**
+     * @return {@link Decisions#ACCEPTED} or the nanoseconds to wait, which are always positive
+     */
+    private long acceptLocked(long permits, long now) {
+        evict(now);
+        final var excess = size + permits - log.length;
+        if (excess > 0) {
+            // The permits fit once the entry making the excess leaves the window
+            return log[index(head + excess - 1)] + windowNanos - now;
+        }
+
+        for (var i = 0; i < permits; i++) {
+            log[index((long) head + size)] = now;
+            size++;
+        }
+        return Decisions.ACCEPTED;
+    }
+
+    private void evict(long now) {
+        final var limit = now - windowNanos;
+        while (size > 0 && log[head] <= limit) {
+            head = index(head + 1L);
+            size--;
+        }
+    }
+
+    private int index(long position) {
+        return (int) (position >= log.length ? position - log.length : position);
+    }
+
+    private long nowNanos() {
+        return ticker.read();
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.airtasker.ratelimiter.core;
+
+import com.airtasker.ratelimiter.core.metrics.RateLimiterListener;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Rate Limiter based on Sliding Window Counter algorithm with blocking operations
+ *
+ * The window of the rate is divided in N sub windows (buckets) of the same size, and only the number of
+ * requests of each bucket is stored. The number of requests in the window is estimated adding the buckets
+ * fully inside the window plus a fraction of the oldest bucket, the one crossing the edge of the window,
+ * proportional to the part of it that is still inside the window.
+ *
+ * The interpolation assumes the requests of the oldest bucket were evenly distributed, which is where the
+ * imprecision of this algorithm comes from:
+ *
+ * * The memory used is N + 1 counters, no matter how big the number of requests of the rate is
+ * * The error of the estimation is bounded by the number of requests in one bucket, so with a uniform traffic
+ *   it is around {@code rate.requests() / N}. More buckets means more precision but more memory, and the
+ *   retry time calculated on rejections needs O(N) time
+ * * With N = 1 this is the classic approximation that weights the previous window
+ *
+ * So caveats:
+ *
+ * * Accept function is not multi thread, not very suitable for high parallel services
+ * * It is an approximation, so it could accept or reject some requests that an exact sliding log would not
+ * * The accept() function is O(1) (constant) in time when the request is accepted, ignoring the time
+ *   spend blocking
+ *
+ * The decisions are reported to a {@link RateLimiterListener}, in case one is provided.
+ *
+ * @param <R> The type of requests
+ */
+public class SlidingWindowCounterRateLimiter<R> implements RateLimiter<R> {
+
+    private final Rate rate;
+    private final Ticker ticker;
+    private final int subWindows;
+    private final long bucketNanos;
+    private final long[] counters;
+    private final Object lock = new Object();
+    private final RateLimiterListener listener;
+
+    private long currentBucket = Long.MIN_VALUE;
+    private long fullBucketsCount = 0L;
+
+    /**
+     * Build a rate limiter using the provided parameters
+     *
+     * @param rate The rate limit
+     * @param subWindows Number of buckets the window is divided in, it has to be positive
+     * @param clock The clock used to obtain current time
+     */
+    public SlidingWindowCounterRateLimiter(Rate rate, int subWindows, Clock clock) {
+        this(rate, subWindows, Ticker.fromClock(clock));
+    }
+
+    /**
+     * Build a rate limiter using the provided parameters
+     *
+     * @param rate The rate limit
+     * @param subWindows Number of buckets the window is divided in, it has to be positive
+     * @param ticker The ticker used to obtain current time
+     */
+    public SlidingWindowCounterRateLimiter(Rate rate, int subWindows, Ticker ticker) {
+        this(rate, subWindows, ticker, RateLimiterListener.NO_OP);
+    }
+
+    /**
+     * Build a rate limiter using the provided parameters, reporting its decisions to the provided listener
+     *
+     * @param rate The rate limit
+     * @param subWindows Number of buckets the window is divided in, it has to be positive
+     * @param ticker The ticker used to obtain current time
+     * @param listener The listener of the decisions of the rate limiter
+     */
+    public SlidingWindowCounterRateLimiter(Rate rate, int subWindows, Ticker ticker, RateLimiterListener listener) {
+        if (subWindows <= 0) {
+            throw new IllegalArgumentException("Sub windows should be bigger than 0");
+        }
+        this.rate = rate;
+        this.ticker = ticker;
+        this.subWindows = subWindows;
+        this.bucketNanos = Math.max(1L, rate.window().toNanos() / subWindows);
+        this.counters = new long[subWindows + 1];
+        this.listener = listener;
+    }
+
+    @Override
+    public Optional<Duration> accept(R request) {
+        return accept(request, 1L);
+    }
+
+    @Override
+    public long tryAccept(R request, long permits) {
+        if (listener == RateLimiterListener.NO_OP) {
+            return decide(permits);
+        }
+        final var start = System.nanoTime();
+        final var waitNanos = decide(permits);
+        listener.onDecision(waitNanos, System.nanoTime() - start);
+        return waitNanos;
+    }
+
+    private long decide(long permits) {
+        if (Permits.check(permits) > rate.requests()) {
+            return rate.window().toNanos();
+        }
+
+        final var now = nowNanos();
+        synchronized (lock) {
+            return acceptLocked(permits, now);
+        }
+    }
+
+    /**
+     * The lock is taken once for the whole batch, and all the requests are checked at the same time
+     */
+    @Override
+    public BatchResult acceptAll(List<? extends R> requests) {
+        final var start = listener == RateLimiterListener.NO_OP ? 0L : System.nanoTime();
+        final var waitNanos = new long[requests.size()];
+        if (rate.requests() == 0) {
+            Arrays.fill(waitNanos, rate.window().toNanos());
+        } else {
+            final var now = nowNanos();
+            synchronized (lock) {
+                for (var index = 0; index < waitNanos.length; index++) {
+                    waitNanos[index] = acceptLocked(1L, now);
+                }
+            }
+        }
+        if (listener != RateLimiterListener.NO_OP && waitNanos.length > 0) {
+            // The latency of the batch is shared by all its requests
+            final var latencyNanos = (System.nanoTime() - start) / waitNanos.length;
+            for (final var wait : waitNanos) {
+                listener.onDecision(wait, latencyNanos);
+            }
+        }
+        return new BatchResult(waitNanos);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        final var now = nowNanos();
+        synchronized (lock) {
+            advance(now);
+            return fullBucketsCount == 0 && counters[oldestIndex()] == 0;
+        }
+    }
+
+    /**
+     * @return {@link Decisions#ACCEPTED} or the nanoseconds to wait, which are always positive
+     */
+    private long acceptLocked(long permits, long now) {
+        advance(now);
+        final var offset = Math.floorMod(now, bucketNanos);
+        final var estimation = fullBucketsCount + oldestBucketWeight(offset) * counters[oldestIndex()];
+
+        if (estimation + permits > rate.requests()) {
+            return timeToWait(offset, estimation + permits - rate.requests());
+        }
+
+        counters[index(currentBucket)] += permits;
+        fullBucketsCount += permits;
+        return Decisions.ACCEPTED;
+    }
+
+    /**
+     * Moves the current bucket to the one of the provided time, resetting the buckets that are reused
+     * and removing from the count the bucket that becomes the oldest one
+     */
+    private void advance(long now) {
+        final var bucket = Math.floorDiv(now, bucketNanos);
+        if (bucket <= currentBucket) {
+            return;
+        }
+        if (currentBucket == Long.MIN_VALUE || bucket - currentBucket > subWindows) {
+            Arrays.fill(counters, 0L);
+            fullBucketsCount = 0L;
+        } else {
+            for (var next = currentBucket + 1; next <= bucket; next++) {
+                fullBucketsCount -= counters[index(next - subWindows)];
+                counters[index(next)] = 0L;
+            }
+        }
+        currentBucket = bucket;
+    }
+
+    /**
+     * Walks the buckets from the oldest one, as they slide out of the window, until the estimation has
+     * decreased in the provided excess
+     */
+    private long timeToWait(long offset, double excess) {
+        var remaining = excess;
+        var waited = 0.0;
+        var available = (double) (bucketNanos - offset);
+        for (var i = 0; i <= subWindows; i++) {
+            final var count = (double) counters[index(currentBucket - subWindows + i)];
+            final var contribution = count * available / bucketNanos;
+            if (count > 0 && contribution >= remaining) {
+                return Math.max(1L, (long) Math.ceil(waited + remaining * bucketNanos / count));
+            }
+            remaining -= contribution;
+            waited += available;
+            available = bucketNanos;
+        }
+        return rate.window().toNanos();
+    }
+
+    private double oldestBucketWeight(long offset) {
+        return (double) (bucketNanos - offset) / bucketNanos;
+    }
+
+    private int oldestIndex() {
+        return index(currentBucket - subWindows);
+    }
+
+    private int index(long bucket) {
+        return (int) Math.floorMod(bucket, (long) counters.length);
+    }
+
+    private long nowNanos() {
+        return ticker.read();
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.airtasker.ratelimiter.core;
+
+/**
+ * {@link LongKeyStateStore} keeping the records inline in primitive arrays
+ *
+ * The keys are split in stripes by their hash, every stripe being an open addressing hash table with linear
+ * probing stored in a single {@code long[]}, guarded by its own lock. Every slot of the table holds the key
+ * followed by its record, so there is no object per key and the garbage collector does not need to trace
+ * any of them, no matter how many keys are stored.
+ *
+ * Expired records are not removed, their slot is reused by the next new key probing through it. When a stripe
+ * is too full it is rebuilt dropping the expired records, and it only grows in case the records that did not
+ * expire still fill half of it. Once a stripe cannot grow any more, the records of new keys of that stripe are
+ * not kept.
+ *
+ * So caveats:
+ *
+ * * The memory used is {@code (recordSize + 1) * 8} bytes per slot, and a stripe never shrinks
+ * * Rebuilding a stripe blocks the keys of that stripe for a time proportional to its size
+ */
+public class StripedLongKeyStateStore implements LongKeyStateStore {
+
+    private static final int DEFAULT_STRIPES = 64;
+    private static final int DEFAULT_STRIPE_CAPACITY = 64;
+    private static final int MAX_STRIPE_CAPACITY = 1 << 30;
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final int recordSize;
+    private final int stripeShift;
+    private final Stripe[] stripes;
+
+    /**
+     * Build a store with default number of stripes and capacity
+     *
+     * @param recordSize Number of words of every record, including the expiration time
+     */
+    public StripedLongKeyStateStore(int recordSize) {
+        this(recordSize, DEFAULT_STRIPES, DEFAULT_STRIPE_CAPACITY);
+    }
+
+    /**
+     * Build a store using the provided parameters
+     *
+     * @param recordSize Number of words of every record, including the expiration time
+     * @param stripes Number of stripes, it is rounded up to a power of two
+     * @param initialStripeCapacity Initial number of slots of every stripe, it is rounded up to a power of two
+     */
+    public StripedLongKeyStateStore(int recordSize, int stripes, int initialStripeCapacity) {
+        if (recordSize <= 0) {
+            throw new IllegalArgumentException("Record size should be bigger than 0");
+        }
+        if (stripes <= 0 || initialStripeCapacity <= 0) {
+            throw new IllegalArgumentException("Stripes and capacity should be positive");
+        }
+        final var stripeCount = powerOfTwo(stripes);
+        this.recordSize = recordSize;
+        this.stripeShift = Long.SIZE - Integer.numberOfTrailingZeros(stripeCount);
+        this.stripes = new Stripe[stripeCount];
+        for (var i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe(recordSize, powerOfTwo(initialStripeCapacity));
+        }
+    }
+
+    @Override
+    public int recordSize() {
+        return recordSize;
+    }
+
+    @Override
+    public long compute(long key, long now, long argument, RecordFunction function) {
+        final var hash = LongKeyTable.mix(key);
+        final var stripe = stripes[stripeShift == Long.SIZE ? 0 : (int) (hash >>> stripeShift)];
+        synchronized (stripe) {
+            return stripe.compute(key, (int) hash, now, argument, function);
+        }
+    }
+
+    @Override
+    public boolean isEmpty(long now) {
+        for (final var stripe : stripes) {
+            synchronized (stripe) {
+                if (!stripe.isEmpty(now)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long size() {
+        var size = 0L;
+        for (final var stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.used();
+            }
+        }
+        return size;
+    }
+
+    private static int powerOfTwo(int value) {
+        final var highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+
+    /**
+     * Table stored in a single {@code long[]}, replaced by a new array when it is rebuilt
+     */
+    private static final class Stripe extends LongKeyTable {
+
+        private final int maxCapacity;
+        private long[] table;
+
+        private Stripe(int recordSize, int capacity) {
+            super(recordSize);
+            this.maxCapacity = Math.min(MAX_STRIPE_CAPACITY, Integer.highestOneBit(MAX_ARRAY_SIZE / stride()));
+            allocate(capacity);
+            attach(capacity);
+        }
+
+        @Override
+        protected long word(int index) {
+            return table[index];
+        }
+
+        @Override
+        protected void word(int index, long value) {
+            table[index] = value;
+        }
+
+        @Override
+        protected void allocate(int slots) {
+            table = new long[slots * stride()];
+        }
+
+        @Override
+        protected int maxCapacity() {
+            return maxCapacity;
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+package com.airtasker.ratelimiter.core;
+
+/**
+ * See {@link Ticker#systemTicker()}
+ */
+enum SystemTicker implements Ticker {
+
+    INSTANCE;
+
+    private static final long ORIGIN = System.nanoTime();
+
+    @Override
+    public long read() {
+        return System.nanoTime() - ORIGIN;
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.airtasker.ratelimiter.core;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source of time of the rate limiters, in nanoseconds
+ *
+ * Only the difference between two values is meaningful, so a ticker does not need to be related to the wall
+ * clock. The rate limiters only use the time to calculate windows, so a monotonic source like
+ * {@link #systemTicker()} is not affected by adjustments of the wall clock, like the ones done by NTP.
+ */
+@FunctionalInterface
+public interface Ticker {
+
+    /**
+     * @return Current time in nanoseconds
+     */
+    long read();
+
+    /**
+     * Ticker based on {@link System#nanoTime()}, which is monotonic and does not allocate anything
+     *
+     * The values start at 0 when this class is loaded, so they are never negative.
+     *
+     * @return The system ticker
+     */
+    static Ticker systemTicker() {
+        return SystemTicker.INSTANCE;
+    }
+
+    /**
+     * Ticker based on the milliseconds of a clock, which is only useful when the time needs to be related to the
+     * wall clock, like when the state of the rate limiter survives a restart of the process
+     *
+     * @param clock The clock used to obtain current time
+     * @return A ticker with the resolution of milliseconds
+     */
+    static Ticker fromClock(Clock clock) {
+        return () -> TimeUnit.MILLISECONDS.toNanos(clock.millis());
+    }
+
+}
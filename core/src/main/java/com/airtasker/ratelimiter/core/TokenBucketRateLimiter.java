@@ -0,0 +1,151 @@
+package com.airtasker.ratelimiter.core;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate Limiter based on Token Bucket algorithm with lock free operations
+ *
+ * The bucket holds at most {@code rate.requests()} tokens and it gets one token back every
+ * {@code rate.window() / rate.requests()}. Every accepted request takes one token from the bucket, or as many
+ * tokens as permits it costs.
+ *
+ * The whole state of the bucket is a single {@code long}, the tick at which the bucket had no tokens, as the
+ * tokens available are the ticks elapsed since then, up to the capacity. It is updated with a compare and set
+ * loop, so no lock is taken and nothing is allocated when a request is accepted. There is no log to clean up,
+ * hence no cleanup thread is needed. The tick is never truncated, so a bucket idle for any time is full.
+ *
+ * Refills happen on a fixed grid of ticks that starts when the rate limiter is created, so a token taken
+ * just before a tick is given back on that tick. When the clock goes backwards no token is refilled, the
+ * bucket has less tokens until the clock is back where it was.
+ *
+ * So caveats:
+ *
+ * * The bucket allows a burst of {@code rate.requests()} and then refills smoothly, so in the worst case
+ *   a window can see up to twice the requests of the rate (the burst plus the refilled tokens)
+ * * The number of requests of the rate cannot be bigger than {@link #MAX_REQUESTS}
+ * * The accept() function is O(1) (constant) in time, though under heavy contention the compare and set
+ *   could be retried several times
+ *
+ * @param <R> The type of requests
+ */
+public class TokenBucketRateLimiter<R> implements RateLimiter<R> {
+
+    /**
+     * Maximum number of requests for the rate that this rate limiter supports
+     */
+    public static final long MAX_REQUESTS = (1L << 24) - 1;
+
+    private final Ticker ticker;
+    private final long capacity;
+    private final long windowNanos;
+    private final long refillNanos;
+    private final long originNanos;
+    private final AtomicLong emptyTick;
+
+    public TokenBucketRateLimiter(Rate rate, Clock clock) {
+        this(rate, Ticker.fromClock(clock));
+    }
+
+    public TokenBucketRateLimiter(Rate rate, Ticker ticker) {
+        if (rate.requests() > MAX_REQUESTS) {
+            throw new IllegalArgumentException("Requests should not be bigger than " + MAX_REQUESTS);
+        }
+        this.ticker = ticker;
+        this.capacity = rate.requests();
+        this.windowNanos = rate.window().toNanos();
+        this.refillNanos = capacity == 0
+                ? rate.window().toNanos()
+                : Math.max(1L, rate.window().toNanos() / capacity);
+        this.originNanos = nowNanos();
+        this.emptyTick = new AtomicLong(-capacity);
+    }
+
+    @Override
+    public Optional<Duration> accept(R request) {
+        return accept(request, 1L);
+    }
+
+    @Override
+    public long tryAccept(R request, long permits) {
+        if (Permits.check(permits) > capacity) {
+            return windowNanos;
+        }
+
+        while (true) {
+            final var current = emptyTick.get();
+            final var elapsedNanos = nowNanos() - originNanos;
+            final var nowTick = Math.floorDiv(elapsedNanos, refillNanos);
+            final var tokens = tokens(current, nowTick);
+
+            if (tokens < permits) {
+                final var nextRefillNanos = refillNanos - Math.floorMod(elapsedNanos, refillNanos);
+                return (permits - tokens - 1) * refillNanos + nextRefillNanos;
+            }
+
+            if (emptyTick.compareAndSet(current, nowTick - (tokens - permits))) {
+                return Decisions.ACCEPTED;
+            }
+        }
+    }
+
+    /**
+     * The tokens of the whole batch are taken with a single compare and set, the first requests taking the
+     * available tokens and the rest being rejected until the next refill
+     */
+    @Override
+    public BatchResult acceptAll(List<? extends R> requests) {
+        final var waitNanos = new long[requests.size()];
+        if (capacity == 0) {
+            Arrays.fill(waitNanos, windowNanos);
+            return new BatchResult(waitNanos);
+        }
+
+        while (true) {
+            final var current = emptyTick.get();
+            final var elapsedNanos = nowNanos() - originNanos;
+            final var nowTick = Math.floorDiv(elapsedNanos, refillNanos);
+            final var tokens = Math.max(0L, tokens(current, nowTick));
+            final var accepted = (int) Math.min(waitNanos.length, tokens);
+
+            if (accepted == 0 || emptyTick.compareAndSet(current, nowTick - (tokens - accepted))) {
+                Arrays.fill(waitNanos, accepted, waitNanos.length,
+                        refillNanos - Math.floorMod(elapsedNanos, refillNanos));
+                return new BatchResult(waitNanos);
+            }
+        }
+    }
+
+    @Override
+    public Optional<QuotaStatus> quota(R request) {
+        final var elapsedNanos = nowNanos() - originNanos;
+        final var nowTick = Math.floorDiv(elapsedNanos, refillNanos);
+        final var tokens = Math.max(0L, tokens(emptyTick.get(), nowTick));
+        final var resetNanos = tokens == capacity
+                ? 0L
+                : (capacity - tokens - 1) * refillNanos + refillNanos - Math.floorMod(elapsedNanos, refillNanos);
+        return Optional.of(new QuotaStatus(capacity, tokens, resetNanos));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        final var nowTick = Math.floorDiv(nowNanos() - originNanos, refillNanos);
+        return tokens(emptyTick.get(), nowTick) >= capacity;
+    }
+
+    /**
+     * @return The tokens available at the provided tick, negative when the clock went back before the empty tick
+     */
+    private long tokens(long emptyTick, long nowTick) {
+        return Math.min(capacity, nowTick - emptyTick);
+    }
+
+    private long nowNanos() {
+        return ticker.read();
+    }
+
+}
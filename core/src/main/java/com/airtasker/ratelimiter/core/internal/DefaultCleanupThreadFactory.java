@@ -6,20 +6,29 @@ import java.util.concurrent.atomic.AtomicLong;
 
 public class DefaultCleanupThreadFactory implements ThreadFactory {
 
-    public static final DefaultCleanupThreadFactory INSTANCE = new DefaultCleanupThreadFactory();
-
     private static final String THREAD_TEMPLATE = "airtasker-ratelimiter-cleanup-thread-%d";
 
+    public static final DefaultCleanupThreadFactory INSTANCE = new DefaultCleanupThreadFactory(THREAD_TEMPLATE);
+
     private final ThreadFactory delegate = Executors.defaultThreadFactory();
     private final AtomicLong counter = new AtomicLong(0);
-
-    private DefaultCleanupThreadFactory() {}
+    private final String threadTemplate;
+
+    /**
+     * Factory of daemon threads named after a template, like the timers and the background threads of the library
+     *
+     * @param threadTemplate Format of the name of the threads, with the number of the thread as its only argument,
+     * like {@code "some-thread-%d"}
+     */
+    public DefaultCleanupThreadFactory(String threadTemplate) {
+        this.threadTemplate = threadTemplate;
+    }
 
     @Override
     public Thread newThread(Runnable r) {
 
         final var current = counter.incrementAndGet();
-        final var threadName = String.format(THREAD_TEMPLATE, current);
+        final var threadName = String.format(threadTemplate, current);
 
         final var thread = delegate.newThread(r);
         thread.setName(threadName);
@@ -0,0 +1,109 @@
+package com.airtasker.ratelimiter.core.internal;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch estimating how many times every element was seen recently, as used by the TinyLFU admission
+ * policy
+ *
+ * Every element is counted in 4 counters of 4 bits, and its frequency is the minimum of them, so it can be
+ * overestimated when elements collide but never underestimated. Counters saturate at 15, and once the number
+ * of increments reaches ten times the maximum number of elements, all the counters are halved, so the
+ * frequencies reflect the recent history.
+ *
+ * The counters are packed 16 per {@code long} and updated with compare and set. Counters that are saturated
+ * are not written at all, so the most frequent elements do not produce any contention.
+ */
+public class FrequencySketch {
+
+    private static final int MAX_COUNT = 15;
+    private static final long HALVE_MASK = 0x7777777777777777L;
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private final AtomicLongArray table;
+    private final int counterMask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * Build a sketch for the provided number of elements
+     *
+     * @param maximumSize Maximum number of elements tracked at the same time, it takes 8 bytes per element
+     */
+    public FrequencySketch(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size should be positive");
+        }
+        final var capped = Math.min(maximumSize, 1 << 26);
+        final var length = Integer.highestOneBit(capped) == capped ? capped : Integer.highestOneBit(capped) << 1;
+        this.table = new AtomicLongArray(length);
+        this.counterMask = length * 16 - 1;
+        this.sampleSize = Math.min(capped, Integer.MAX_VALUE / 10) * 10;
+    }
+
+    /**
+     * Counts one more occurrence of the element
+     *
+     * @param hash The hash code of the element
+     */
+    public void increment(int hash) {
+        var added = false;
+        for (var i = 0; i < SEEDS.length; i++) {
+            added |= incrementAt(index(hash, i));
+        }
+        if (added && additions.incrementAndGet() == sampleSize) {
+            halve();
+        }
+    }
+
+    /**
+     * @param hash The hash code of the element
+     * @return Estimated number of recent occurrences of the element, between 0 and 15
+     */
+    public int frequency(int hash) {
+        var frequency = MAX_COUNT;
+        for (var i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, count(index(hash, i)));
+        }
+        return frequency;
+    }
+
+    private int index(int hash, int seed) {
+        var spread = (hash + SEEDS[seed]) * SEEDS[seed];
+        spread ^= spread >>> 32;
+        return (int) spread & counterMask;
+    }
+
+    private int count(int index) {
+        return (int) (table.get(index >>> 4) >>> ((index & 15) << 2)) & MAX_COUNT;
+    }
+
+    private boolean incrementAt(int index) {
+        final var slot = index >>> 4;
+        final var shift = (index & 15) << 2;
+        for (;;) {
+            final var value = table.get(slot);
+            if (((value >>> shift) & MAX_COUNT) == MAX_COUNT) {
+                return false;
+            }
+            if (table.compareAndSet(slot, value, value + (1L << shift))) {
+                return true;
+            }
+        }
+    }
+
+    private void halve() {
+        for (var slot = 0; slot < table.length(); slot++) {
+            for (;;) {
+                final var value = table.get(slot);
+                if (table.compareAndSet(slot, value, (value >>> 1) & HALVE_MASK)) {
+                    break;
+                }
+            }
+        }
+        additions.addAndGet(-sampleSize / 2);
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.airtasker.ratelimiter.core.internal;
+
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel used to index elements by their deadline
+ *
+ * Time is divided in ticks, and every element is stored in the bucket of the tick of its deadline, modulo the
+ * number of buckets. Expiring elements only visits the buckets of the ticks elapsed since the last call, so the
+ * work done depends on the elements that are due (plus the ones sharing bucket from future rounds), not on
+ * the total number of elements.
+ *
+ * Elements are expired as soon as the tick of their deadline starts, so they could be expired up to one tick
+ * before their deadline. Elements can be scheduled from any thread, but {@link #expire(long, Consumer)} should
+ * be called from a single thread. An element scheduled concurrently with the expiration of its tick could be
+ * found one round later than its deadline.
+ *
+ * @param <T> The type of the elements
+ */
+public class HashedTimingWheel<T> {
+
+    private final long tickNanos;
+    private final int mask;
+    private final Queue<Timeout<T>>[] buckets;
+
+    private volatile long cursor;
+
+    /**
+     * Build a timing wheel
+     *
+     * @param buckets Number of buckets of the wheel, it is rounded up to a power of two
+     * @param tickNanos Duration of every tick in nanoseconds
+     * @param nowNanos Current time in nanoseconds, the first tick to expire
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HashedTimingWheel(int buckets, long tickNanos, long nowNanos) {
+        if (buckets <= 0 || tickNanos <= 0) {
+            throw new IllegalArgumentException("Buckets and tick should be positive");
+        }
+        final var size = Integer.highestOneBit(buckets) == buckets ? buckets : Integer.highestOneBit(buckets) << 1;
+        this.tickNanos = tickNanos;
+        this.mask = size - 1;
+        this.buckets = new Queue[size];
+        for (var i = 0; i < size; i++) {
+            this.buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.cursor = Math.floorDiv(nowNanos, tickNanos);
+    }
+
+    /**
+     * Adds an element to the wheel, deadlines that already passed will be expired in the next call
+     * to {@link #expire(long, Consumer)}
+     *
+     * @param element The element to add
+     * @param deadlineNanos The time in nanoseconds when the element expires
+     * @return The handle of the scheduled element, which can be used to cancel it
+     */
+    public Timeout<T> schedule(T element, long deadlineNanos) {
+        final var tick = Math.max(Math.floorDiv(deadlineNanos, tickNanos), cursor);
+        final var timeout = new Timeout<>(element, tick);
+        buckets[(int) (tick & mask)].add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Removes from the wheel all the elements whose deadline is before the provided time, passing them to the
+     * provided consumer. The consumer is allowed to schedule the elements again.
+     *
+     * @param nowNanos Current time in nanoseconds
+     * @param onExpired Consumer for the expired elements
+     */
+    public void expire(long nowNanos, Consumer<T> onExpired) {
+        final var nowTick = Math.floorDiv(nowNanos, tickNanos);
+        final var expired = new ArrayList<Timeout<T>>();
+        var tick = cursor;
+        var visited = 0;
+
+        while (tick <= nowTick && visited <= mask) {
+            final var bucket = buckets[(int) (tick & mask)];
+            for (var timeout = bucket.poll(); timeout != null; timeout = bucket.poll()) {
+                expired.add(timeout);
+            }
+            tick++;
+            visited++;
+        }
+        cursor = Math.max(tick, nowTick + 1);
+
+        for (final var timeout : expired) {
+            final var element = timeout.element;
+            if (element == null) {
+                continue;
+            }
+            if (timeout.tick <= nowTick) {
+                onExpired.accept(element);
+            } else {
+                buckets[(int) (timeout.tick & mask)].add(timeout);
+            }
+        }
+    }
+
+    /**
+     * Handle of an element scheduled in the wheel
+     *
+     * @param <T> The type of the element
+     */
+    public static final class Timeout<T> {
+
+        private final long tick;
+        private volatile T element;
+
+        private Timeout(T element, long tick) {
+            this.element = element;
+            this.tick = tick;
+        }
+
+        /**
+         * Releases the element, so it is not going to be expired. The handle itself is kept in the wheel until
+         * the tick of its deadline
+         */
+        public void cancel() {
+            element = null;
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.airtasker.ratelimiter.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values with fixed buckets of powers of two
+ *
+ * Bucket 0 counts the value 0 and bucket {@code i} counts the values between {@code 2^(i-1)} and
+ * {@code 2^i - 1}, so every value is recorded with an error of at most 2x. Every bucket is a striped counter,
+ * so recording a value does not allocate nor contend with other threads.
+ */
+public final class Histogram {
+
+    /**
+     * Number of buckets of the histogram
+     */
+    public static final int BUCKETS = Long.SIZE;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+    public Histogram() {
+        for (var i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param value The value to record, negative values are recorded as 0
+     */
+    public void record(long value) {
+        counts[bucketOf(value)].increment();
+    }
+
+    /**
+     * @return Number of values recorded
+     */
+    public long count() {
+        var count = 0L;
+        for (final var bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @param bucket The index of the bucket
+     * @return Number of values recorded in the bucket
+     */
+    public long bucketCount(int bucket) {
+        return counts[bucket].sum();
+    }
+
+    /**
+     * @param bucket The index of the bucket
+     * @return The biggest value counted in the bucket
+     */
+    public static long upperBound(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    /**
+     * @param percentile The percentile, between 0 and 100
+     * @return The upper bound of the bucket where the percentile is, or 0 when there are no values
+     */
+    public long valueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile should be between 0 and 100");
+        }
+        final var snapshot = new long[BUCKETS];
+        var total = 0L;
+        for (var i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0L;
+        }
+
+        final var target = Math.max(1L, (long) Math.ceil(total * percentile / 100));
+        var accumulated = 0L;
+        for (var i = 0; i < BUCKETS; i++) {
+            accumulated += snapshot[i];
+            if (accumulated >= target) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    private static int bucketOf(long value) {
+        return value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value);
+    }
+
+}
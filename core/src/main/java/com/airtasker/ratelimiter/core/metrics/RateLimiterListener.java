@@ -0,0 +1,42 @@
+package com.airtasker.ratelimiter.core.metrics;
+
+/**
+ * Listener of the events of the rate limiters, to collect metrics about them
+ *
+ * The methods are called in the path of the requests, so implementations should be fast, not block and not
+ * allocate, like {@link RateLimiterMetrics}. All the methods do nothing by default.
+ */
+public interface RateLimiterListener {
+
+    /**
+     * Listener ignoring all the events, the rate limiters do not measure anything when they use it
+     */
+    RateLimiterListener NO_OP = new RateLimiterListener() { };
+
+    /**
+     * Called for every request checked
+     *
+     * @param waitNanos 0 if the request is accepted, otherwise the nanoseconds to wait returned
+     * @param latencyNanos Time taken to decide whether the request is accepted
+     */
+    default void onDecision(long waitNanos, long latencyNanos) { }
+
+    /**
+     * Called when a rate limiter starts tracking a new key
+     */
+    default void onKeyAdded() { }
+
+    /**
+     * Called when a rate limiter stops tracking a key, because it is cleaned up or evicted
+     */
+    default void onKeyRemoved() { }
+
+    /**
+     * Called after every run of a cleanup task
+     *
+     * @param durationNanos Time taken by the cleanup
+     * @param removed Number of entries removed by the cleanup
+     */
+    default void onCleanup(long durationNanos, long removed) { }
+
+}
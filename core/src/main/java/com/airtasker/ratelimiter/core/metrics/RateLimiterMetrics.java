@@ -0,0 +1,89 @@
+package com.airtasker.ratelimiter.core.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Listener keeping the metrics of the rate limiters in striped counters and fixed bucket histograms, so
+ * nothing is allocated when an event is recorded
+ *
+ * The same instance can be shared by several rate limiters to aggregate their metrics. The values can be read
+ * at any time, for example to publish them periodically to a monitoring system.
+ */
+public class RateLimiterMetrics implements RateLimiterListener {
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder trackedKeys = new LongAdder();
+    private final Histogram retryAfterNanos = new Histogram();
+    private final Histogram latencyNanos = new Histogram();
+    private final Histogram cleanupNanos = new Histogram();
+
+    @Override
+    public void onDecision(long waitNanos, long latencyNanos) {
+        if (waitNanos == 0) {
+            accepted.increment();
+        } else {
+            rejected.increment();
+            retryAfterNanos.record(waitNanos);
+        }
+        this.latencyNanos.record(latencyNanos);
+    }
+
+    @Override
+    public void onKeyAdded() {
+        trackedKeys.increment();
+    }
+
+    @Override
+    public void onKeyRemoved() {
+        trackedKeys.decrement();
+    }
+
+    @Override
+    public void onCleanup(long durationNanos, long removed) {
+        cleanupNanos.record(durationNanos);
+    }
+
+    /**
+     * @return Number of requests accepted
+     */
+    public long accepted() {
+        return accepted.sum();
+    }
+
+    /**
+     * @return Number of requests rejected
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return Number of keys currently tracked
+     */
+    public long trackedKeys() {
+        return trackedKeys.sum();
+    }
+
+    /**
+     * @return Distribution of the nanoseconds to wait returned to the rejected requests
+     */
+    public Histogram retryAfterNanos() {
+        return retryAfterNanos;
+    }
+
+    /**
+     * @return Distribution of the nanoseconds taken to decide whether a request is accepted
+     */
+    public Histogram latencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * @return Distribution of the nanoseconds taken by the cleanup tasks
+     */
+    public Histogram cleanupNanos() {
+        return cleanupNanos;
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.airtasker.ratelimiter.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class AcquisitionTest {
+
+    private static final Clock CLOCK = mock(Clock.class);
+    private static final long DEFAULT_MILLIS = 1_000_000L;
+
+    @BeforeEach
+    public void resetMocks() {
+        reset(CLOCK);
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS);
+    }
+
+    @Test
+    public void shouldCompleteRightAwayWhenAccepted() {
+        final var unit = new GcraRateLimiter<String>(Rate.of(1, Duration.ofSeconds(1)), CLOCK);
+        assertThat(unit.acquire("request").toCompletableFuture()).isCompleted();
+    }
+
+    @Test
+    public void shouldFailRightAwayWhenWaitIsLongerThanMaximum() {
+        final var unit = new GcraRateLimiter<String>(Rate.of(1, Duration.ofSeconds(1)), CLOCK);
+        unit.accept("request");
+
+        final var future = unit.acquire("request", Duration.ofMillis(500)).toCompletableFuture();
+        assertThat(future).isCompletedExceptionally();
+        assertThatThrownBy(future::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RateLimitExceededException.class);
+    }
+
+    @Test
+    public void shouldCompleteOncePermitIsGranted() throws Exception {
+        final var unit = new GcraRateLimiter<String>(Rate.of(1, Duration.ofMillis(50)), Clock.systemUTC());
+        unit.accept("request");
+
+        final var future = unit.acquire("request", Duration.ofSeconds(5)).toCompletableFuture();
+        assertThat(future.get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(unit.accept("request")).isPresent();
+    }
+
+    @Test
+    public void shouldStopRetryingWhenCancelled() throws Exception {
+        final var unit = spy(new GcraRateLimiter<String>(Rate.of(1, Duration.ofMillis(20)), CLOCK));
+        unit.accept("request");
+
+        final var future = unit.acquire("request").toCompletableFuture();
+        future.cancel(false);
+        Thread.sleep(100);
+        verify(unit, times(2)).tryAccept("request", 1L);
+    }
+
+    @Test
+    public void shouldFailRightAwayWhenPermitsExceedLimit() {
+        final var unit = spy(new GcraRateLimiter<String>(Rate.of(2, Duration.ofSeconds(1)), CLOCK));
+
+        final var future = unit.acquire("request", 3L, Duration.ofSeconds(Long.MAX_VALUE)).toCompletableFuture();
+        assertThat(future).isCompletedExceptionally();
+        assertThatThrownBy(future::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RateLimitExceededException.class);
+        verify(unit, times(1)).tryAccept("request", 3L);
+    }
+
+    @Test
+    public void shouldFailWithNegativeMaximumWait() {
+        final var unit = new GcraRateLimiter<String>(Rate.of(1, Duration.ofSeconds(1)), CLOCK);
+        assertThatThrownBy(() -> unit.acquire("request", Duration.ofMillis(-1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
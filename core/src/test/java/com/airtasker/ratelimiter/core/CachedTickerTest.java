@@ -0,0 +1,39 @@
+package com.airtasker.ratelimiter.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+public class CachedTickerTest {
+
+    @Test
+    public void shouldCacheTimeOfSource() {
+        final var source = new ManualTicker(100L);
+        try (final var unit = new CachedTicker(source, Duration.ofMillis(1))) {
+            assertThat(unit.read()).isEqualTo(100L);
+
+            source.advance(Duration.ofSeconds(1));
+            await().atMost(org.awaitility.Duration.ONE_SECOND)
+                    .until(() -> unit.read() == 100L + Duration.ofSeconds(1).toNanos());
+        }
+    }
+
+    @Test
+    public void shouldFailWithoutPositiveResolution() {
+        assertThatThrownBy(() -> new CachedTicker(Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldReadMonotonicSystemTime() {
+        final var ticker = Ticker.systemTicker();
+        final var first = ticker.read();
+        assertThat(first).isNotNegative();
+        assertThat(ticker.read()).isGreaterThanOrEqualTo(first);
+    }
+
+}
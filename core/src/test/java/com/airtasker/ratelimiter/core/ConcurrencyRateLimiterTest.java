@@ -0,0 +1,100 @@
+package com.airtasker.ratelimiter.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConcurrencyRateLimiterTest {
+
+    @Test
+    public void shouldRejectWhenMaxConcurrentIs0() {
+        final var unit = new ConcurrencyRateLimiter<String>(0);
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(ConcurrencyRateLimiter.DEFAULT_RETRY_DELAY));
+    }
+
+    @Test
+    public void shouldRejectUntilPermitsAreReleased() {
+        final var unit = new ConcurrencyRateLimiter<String>(2, Duration.ofMillis(50));
+
+        assertThat(unit.accept("request")).isEmpty();
+        assertThat(unit.accept("request")).isEmpty();
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofMillis(50)));
+        assertThat(unit.inFlight()).isEqualTo(2);
+
+        unit.release("request", 1L);
+        assertThat(unit.accept("request")).isEmpty();
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofMillis(50)));
+    }
+
+    @Test
+    public void shouldTakeAllPermitsOrNone() {
+        final var unit = new ConcurrencyRateLimiter<String>(5);
+
+        assertThat(unit.tryAccept("request", 3L)).isZero();
+        assertThat(unit.tryAccept("request", 3L)).isPositive();
+        assertThat(unit.tryAccept("request", 2L)).isZero();
+        assertThat(unit.tryAccept("request", 6L)).isPositive();
+        assertThat(unit.inFlight()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldNotReleaseMorePermitsThanTaken() {
+        final var unit = new ConcurrencyRateLimiter<String>(1);
+
+        unit.release("request", 3L);
+
+        assertThat(unit.isEmpty()).isTrue();
+        assertThat(unit.accept("request")).isEmpty();
+        assertThat(unit.accept("request")).isPresent();
+    }
+
+    @Test
+    public void shouldReportQuota() {
+        final var unit = new ConcurrencyRateLimiter<String>(4);
+        unit.tryAccept("request", 3L);
+
+        assertThat(unit.quota("request")).hasValueSatisfying(quota -> {
+            assertThat(quota.limit()).isEqualTo(4);
+            assertThat(quota.remaining()).isEqualTo(1);
+        });
+    }
+
+    @Test
+    public void shouldNeverExceedMaxConcurrentWithConcurrentRequests() {
+        final var unit = new ConcurrencyRateLimiter<String>(4);
+        final var maxSeen = new AtomicLong(0);
+        final var executor = Executors.newFixedThreadPool(8);
+
+        try {
+            CompletableFuture.allOf(IntStream.range(0, 8)
+                    .mapToObj(ignored -> CompletableFuture.runAsync(() -> {
+                        for (var i = 0; i < 10_000; i++) {
+                            if (unit.tryAccept("request", 1L) == 0) {
+                                maxSeen.accumulateAndGet(unit.inFlight(), Math::max);
+                                unit.release("request", 1L);
+                            }
+                        }
+                    }, executor))
+                    .toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(maxSeen.get()).isLessThanOrEqualTo(4);
+        assertThat(unit.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldRejectNegativeMaxConcurrent() {
+        assertThatThrownBy(() -> new ConcurrencyRateLimiter<String>(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
@@ -0,0 +1,182 @@
+package com.airtasker.ratelimiter.core;
+
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class GcraRateLimiterTest {
+
+    private static final Clock CLOCK = mock(Clock.class);
+    private static final long DEFAULT_MILLIS = 1_000_000L;
+
+    @BeforeEach
+    public void prepareMocks() {
+        reset(CLOCK);
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS);
+    }
+
+    @Test
+    public void shouldRejectWhenRequestsRateIs0() {
+        final var unit = new GcraRateLimiter<String>(Rate.of(0, Duration.ofSeconds(1)), CLOCK);
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    public void shouldAcceptWhenNumberOfRequestIsNotReached() {
+        final var rate = Rate.of(RandomUtils.nextLong(1, 100), Duration.ofSeconds(1));
+        final var unit = new GcraRateLimiter<String>(rate, CLOCK);
+
+        LongStream.range(0, rate.requests())
+                .forEach(ignored -> assertThat(unit.accept("request")).isEmpty());
+    }
+
+    @Test
+    public void shouldRejectWhenRateIsReachedUntilNextEmission() {
+        final var unit = new GcraRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), CLOCK);
+
+        LongStream.range(0, 10).forEach(ignored -> assertThat(unit.accept("request")).isEmpty());
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofMillis(100)));
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 40);
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofMillis(60)));
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 100);
+        assertThat(unit.accept("request")).isEmpty();
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofMillis(100)));
+    }
+
+    @Test
+    public void shouldAllowFullBurstAfterWindowElapsed() {
+        final var unit = new GcraRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), CLOCK);
+        LongStream.range(0, 10).forEach(ignored -> unit.accept("request"));
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + Duration.ofHours(1).toMillis());
+        LongStream.range(0, 10).forEach(ignored -> assertThat(unit.accept("request")).isEmpty());
+        assertThat(unit.accept("request")).isPresent();
+    }
+
+    @Test
+    public void shouldBeEmptyWithNoRequests() {
+        final var unit = new GcraRateLimiter<String>(Rate.of(1, Duration.ofMillis(1)), CLOCK);
+        assertThat(unit.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldBeEmptyOnlyAfterTheoreticalArrivalTime() {
+        final var unit = new GcraRateLimiter<String>(Rate.of(2, Duration.ofSeconds(1)), CLOCK);
+        unit.accept("request");
+        unit.accept("request");
+        assertThat(unit.isEmpty()).isFalse();
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 999);
+        assertThat(unit.isEmpty()).isFalse();
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 1000);
+        assertThat(unit.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldMoveTheoreticalArrivalTimeOneIntervalPerPermit() {
+        final var unit = new GcraRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), CLOCK);
+
+        assertThat(unit.accept("request", 8)).isEmpty();
+        assertThat(unit.accept("request", 4)).isEqualTo(Optional.of(Duration.ofMillis(200)));
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 200);
+        assertThat(unit.accept("request", 4)).isEmpty();
+    }
+
+    @Test
+    public void shouldRejectMorePermitsThanRequests() {
+        final var unit = new GcraRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), CLOCK);
+        assertThat(unit.accept("request", 11)).isEqualTo(Optional.of(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    public void shouldAcceptBatchLikeSequentialRequests() {
+        final var unit = new GcraRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), CLOCK);
+        unit.accept("request");
+
+        final var result = unit.acceptAll(Collections.nCopies(12, "request"));
+        assertThat(result.size()).isEqualTo(12);
+        assertThat(result.acceptedCount()).isEqualTo(9);
+        assertThat(result.isAccepted(8)).isTrue();
+        assertThat(result.get(9)).isEqualTo(Optional.of(Duration.ofMillis(100)));
+        assertThat(result.get(11)).isEqualTo(Optional.of(Duration.ofMillis(100)));
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofMillis(100)));
+    }
+
+    @Test
+    public void shouldRejectBatchWhenRequestsRateIs0() {
+        final var unit = new GcraRateLimiter<String>(Rate.of(0, Duration.ofSeconds(1)), CLOCK);
+        final var result = unit.acceptAll(List.of("request", "request"));
+        assertThat(result.acceptedCount()).isZero();
+        assertThat(result.get(1)).isEqualTo(Optional.of(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    public void shouldReturnNanosToWait() {
+        final var unit = new GcraRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), CLOCK);
+
+        LongStream.range(0, 10).forEach(ignored -> assertThat(unit.tryAccept("request", 1L)).isZero());
+        assertThat(unit.tryAccept("request", 1L)).isEqualTo(Duration.ofMillis(100).toNanos());
+        assertThat(unit.tryAccept("request", 11L)).isEqualTo(Duration.ofSeconds(1).toNanos());
+    }
+
+    @Test
+    public void shouldTakeTimeFromTicker() {
+        final var ticker = new ManualTicker();
+        final var unit = new GcraRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), ticker);
+
+        LongStream.range(0, 10).forEach(ignored -> assertThat(unit.accept("request")).isEmpty());
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofMillis(100)));
+
+        ticker.advance(Duration.ofMillis(100));
+        assertThat(unit.accept("request")).isEmpty();
+    }
+
+    @Test
+    public void shouldGiveBackPermitsOfCancelledReservation() {
+        final var unit = new GcraRateLimiter<String>(Rate.of(2, Duration.ofSeconds(1)), CLOCK);
+
+        final var first = unit.reserve("request", 1L);
+        final var second = unit.reserve("request", 1L);
+        assertThat(first.isGranted()).isTrue();
+        assertThat(second.isGranted()).isTrue();
+        assertThat(unit.reserve("request", 1L).waitNanos()).isEqualTo(Duration.ofMillis(500).toNanos());
+
+        assertThat(first.cancel()).isTrue();
+        assertThat(first.commit()).isFalse();
+        assertThat(second.commit()).isTrue();
+        assertThat(unit.accept("request")).isEmpty();
+        assertThat(unit.accept("request")).isPresent();
+    }
+
+    @Test
+    public void shouldReportQuotaWithoutTakingPermits() {
+        final var unit = new GcraRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), CLOCK);
+        assertThat(unit.quota("request")).hasValueSatisfying(quota -> {
+            assertThat(quota.limit()).isEqualTo(10);
+            assertThat(quota.remaining()).isEqualTo(10);
+            assertThat(quota.reset()).isEqualTo(Duration.ZERO);
+        });
+
+        LongStream.range(0, 4).forEach(ignored -> assertThat(unit.accept("request")).isEmpty());
+        assertThat(unit.quota("request")).hasValueSatisfying(quota -> {
+            assertThat(quota.remaining()).isEqualTo(6);
+            assertThat(quota.reset()).isEqualTo(Duration.ofMillis(400));
+        });
+        assertThat(unit.quota("request")).hasValueSatisfying(quota -> assertThat(quota.remaining()).isEqualTo(6));
+    }
+
+}
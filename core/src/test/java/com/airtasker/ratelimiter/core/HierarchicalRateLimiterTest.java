@@ -0,0 +1,112 @@
+package com.airtasker.ratelimiter.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class HierarchicalRateLimiterTest {
+
+    private static final Clock CLOCK = mock(Clock.class);
+    private static final long DEFAULT_MILLIS = 1_000_000L;
+
+    @BeforeEach
+    public void prepareMocks() {
+        reset(CLOCK);
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS);
+    }
+
+    @Test
+    public void shouldNotConsumeKeyPermitsWhenGlobalLimitRejects() {
+        final var global = new GcraRateLimiter<Long>(Rate.of(3, Duration.ofSeconds(1)), CLOCK);
+        final var perKey = new LongKeyBasedRateLimiter<Long>(Long::longValue, Rate.of(1, Duration.ofMinutes(1)),
+                new StripedLongKeyStateStore(1), CLOCK);
+        final var unit = new HierarchicalRateLimiter<>(global, perKey);
+
+        LongStream.range(1, 4).forEach(key -> assertThat(unit.accept(key)).isEmpty());
+        LongStream.range(0, 3).forEach(ignored -> assertThat(unit.accept(4L)).isPresent());
+        assertThat(unit.accept(1L)).isEqualTo(Optional.of(Duration.ofMinutes(1)));
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 1000);
+        assertThat(unit.accept(4L)).isEmpty();
+    }
+
+    @Test
+    public void shouldReleaseInnerPermitsWhenOuterRejects() {
+        @SuppressWarnings("unchecked")
+        final RateLimiter<String> outer = mock(RateLimiter.class);
+        @SuppressWarnings("unchecked")
+        final RateLimiter<String> inner = mock(RateLimiter.class);
+        final var innerRelease = mock(Runnable.class);
+        when(inner.reserve("request", 2L)).thenReturn(new Reservation(0L, innerRelease));
+        when(outer.tryAccept("request", 2L)).thenReturn(5L);
+        final var unit = new HierarchicalRateLimiter<>(outer, inner);
+
+        assertThat(unit.tryAccept("request", 2L)).isEqualTo(5L);
+        verify(innerRelease).run();
+    }
+
+    @Test
+    public void shouldReleaseInnerPermitsWhenOuterFails() {
+        @SuppressWarnings("unchecked")
+        final RateLimiter<String> outer = mock(RateLimiter.class);
+        @SuppressWarnings("unchecked")
+        final RateLimiter<String> inner = mock(RateLimiter.class);
+        final var innerRelease = mock(Runnable.class);
+        when(inner.reserve("request", 1L)).thenReturn(new Reservation(0L, innerRelease));
+        when(outer.tryAccept("request", 1L)).thenThrow(new IllegalStateException("outer failed"));
+        final var unit = new HierarchicalRateLimiter<>(outer, inner);
+
+        assertThatThrownBy(() -> unit.tryAccept("request", 1L)).isInstanceOf(IllegalStateException.class);
+        verify(innerRelease).run();
+    }
+
+    @Test
+    public void shouldNotCheckOuterWhenInnerRejects() {
+        @SuppressWarnings("unchecked")
+        final RateLimiter<String> outer = mock(RateLimiter.class);
+        @SuppressWarnings("unchecked")
+        final RateLimiter<String> inner = mock(RateLimiter.class);
+        final var innerRelease = mock(Runnable.class);
+        when(inner.reserve("request", 1L)).thenReturn(new Reservation(7L, innerRelease));
+        final var unit = new HierarchicalRateLimiter<>(outer, inner);
+
+        assertThat(unit.tryAccept("request", 1L)).isEqualTo(7L);
+        verifyNoInteractions(outer);
+        verifyNoInteractions(innerRelease);
+    }
+
+    @Test
+    public void shouldCancelBothReservations() {
+        final var global = new GcraRateLimiter<Long>(Rate.of(2, Duration.ofSeconds(1)), CLOCK);
+        final var perKey = new GcraRateLimiter<Long>(Rate.of(1, Duration.ofSeconds(1)), CLOCK);
+        final var unit = new HierarchicalRateLimiter<>(global, perKey);
+
+        final var reservation = unit.reserve(1L, 1L);
+        assertThat(reservation.isGranted()).isTrue();
+        assertThat(global.quota(1L)).hasValueSatisfying(quota -> assertThat(quota.remaining()).isEqualTo(1));
+
+        assertThat(reservation.cancel()).isTrue();
+        assertThat(global.quota(1L)).hasValueSatisfying(quota -> assertThat(quota.remaining()).isEqualTo(2));
+        assertThat(perKey.accept(1L)).isEmpty();
+    }
+
+    @Test
+    public void shouldFailBeforeTakingPermitsWhenInnerCanNotRelease() {
+        final var global = new GcraRateLimiter<String>(Rate.of(1, Duration.ofSeconds(1)), CLOCK);
+        final var perKey = new TokenBucketRateLimiter<String>(Rate.of(1, Duration.ofSeconds(1)), CLOCK);
+        final var unit = new HierarchicalRateLimiter<>(global, perKey);
+
+        assertThatThrownBy(() -> unit.accept("request")).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(perKey.accept("request")).isEmpty();
+        assertThat(global.accept("request")).isEmpty();
+    }
+
+}
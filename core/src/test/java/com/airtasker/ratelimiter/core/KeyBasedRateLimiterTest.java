@@ -1,14 +1,20 @@
 package com.airtasker.ratelimiter.core;
 
+import com.airtasker.ratelimiter.core.metrics.RateLimiterMetrics;
 import org.apache.commons.lang3.RandomUtils;
 import org.awaitility.Duration;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.lang.ref.WeakReference;
+import java.time.Clock;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -21,10 +27,14 @@ import static org.mockito.Mockito.*;
 public class KeyBasedRateLimiterTest {
 
     private static final ScheduledExecutorService EXECUTOR_SERVICE = mock(ScheduledExecutorService.class);
+    private static final Clock CLOCK = mock(Clock.class);
+    private static final long DEFAULT_MILLIS = 1_000_000L;
+    private static final java.time.Duration IDLE_TIMEOUT = java.time.Duration.ofSeconds(1);
 
     @BeforeEach
     public void resetMocks() {
-        reset(EXECUTOR_SERVICE);
+        reset(EXECUTOR_SERVICE, CLOCK);
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS);
     }
 
     @Test
@@ -69,6 +79,24 @@ public class KeyBasedRateLimiterTest {
         assertThat(unit.accept(requestedKey)).isSameAs(returnValue);
     }
 
+    @Test
+    public void shouldPassPermitsToDelegated() {
+
+        final var requestedKey = RandomUtils.nextInt();
+        final RateLimiter<Integer> delegated = mock(RateLimiter.class);
+
+        final var unit = new KeyBasedRateLimiter<Integer, Integer>(
+                Function.identity(),
+                ignored -> delegated,
+                EXECUTOR_SERVICE
+        );
+
+        final var returnValue = Optional.of(java.time.Duration.ofMillis(1000));
+
+        when(delegated.accept(requestedKey, 5L)).thenReturn(returnValue);
+        assertThat(unit.accept(requestedKey, 5L)).isSameAs(returnValue);
+    }
+
     @Test
     public void cleanupTaskShouldCleanReferences() {
 
@@ -118,4 +146,243 @@ public class KeyBasedRateLimiterTest {
     }
 
 
+    @Test
+    public void cleanupTaskShouldOnlyCheckIdleKeys() {
+        final var emptyChecks = new AtomicInteger();
+        final var unit = new KeyBasedRateLimiter<String, String>(
+                Function.identity(),
+                ignored -> countingRateLimiter(emptyChecks, true),
+                IDLE_TIMEOUT, CLOCK, EXECUTOR_SERVICE
+        );
+        final var cleanupTask = captureCleanupTask();
+
+        unit.accept("key");
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 500);
+        cleanupTask.run();
+        assertThat(emptyChecks).hasValue(0);
+        assertThat(unit.isEmpty()).isFalse();
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + IDLE_TIMEOUT.toMillis());
+        cleanupTask.run();
+        assertThat(emptyChecks).hasValue(1);
+        assertThat(unit.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void cleanupTaskShouldWaitIdleTimeoutSinceLastAccess() {
+        final var emptyChecks = new AtomicInteger();
+        final var unit = new KeyBasedRateLimiter<String, String>(
+                Function.identity(),
+                ignored -> countingRateLimiter(emptyChecks, true),
+                IDLE_TIMEOUT, CLOCK, EXECUTOR_SERVICE
+        );
+        final var cleanupTask = captureCleanupTask();
+
+        unit.accept("key");
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 500);
+        unit.accept("key");
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + IDLE_TIMEOUT.toMillis());
+        cleanupTask.run();
+        assertThat(emptyChecks).hasValue(0);
+        assertThat(unit.isEmpty()).isFalse();
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 500 + IDLE_TIMEOUT.toMillis());
+        cleanupTask.run();
+        assertThat(emptyChecks).hasValue(1);
+        assertThat(unit.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void cleanupTaskShouldCheckAgainRateLimitersNotEmpty() {
+        final var emptyChecks = new AtomicInteger();
+        final var unit = new KeyBasedRateLimiter<String, String>(
+                Function.identity(),
+                ignored -> countingRateLimiter(emptyChecks, false),
+                IDLE_TIMEOUT, CLOCK, EXECUTOR_SERVICE
+        );
+        final var cleanupTask = captureCleanupTask();
+
+        unit.accept("key");
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + IDLE_TIMEOUT.toMillis());
+        cleanupTask.run();
+        assertThat(emptyChecks).hasValue(1);
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 2 * IDLE_TIMEOUT.toMillis());
+        cleanupTask.run();
+        assertThat(emptyChecks).hasValue(2);
+        assertThat(unit.isEmpty()).isFalse();
+    }
+
+    @Test
+    public void shouldCancelCleanupTaskWhenClosed() {
+        final ScheduledFuture<?> cleanupFuture = mock(ScheduledFuture.class);
+        doReturn(cleanupFuture).when(EXECUTOR_SERVICE)
+                .scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class));
+        final var unit = new KeyBasedRateLimiter<String, String>(
+                Function.identity(),
+                ignored -> countingRateLimiter(new AtomicInteger(), true),
+                IDLE_TIMEOUT, CLOCK, EXECUTOR_SERVICE
+        );
+
+        unit.close();
+
+        verify(cleanupFuture).cancel(false);
+    }
+
+    @Test
+    public void shouldKeepHotKeysWhenFloodedWithNewKeys() {
+        final var created = new AtomicInteger();
+        final var unit = new KeyBasedRateLimiter<String, String>(
+                Function.identity(),
+                ignored -> {
+                    created.incrementAndGet();
+                    return countingRateLimiter(new AtomicInteger(), true);
+                },
+                IDLE_TIMEOUT, 10, CLOCK, EXECUTOR_SERVICE
+        );
+
+        IntStream.range(0, 10_000).forEach(i -> {
+            unit.accept("random-" + i);
+            unit.accept("hot-" + (i % 10));
+        });
+        assertThat(created.get() - unit.evictionCount()).isEqualTo(10L);
+
+        final var createdBefore = created.get();
+        IntStream.range(0, 10).forEach(i -> unit.accept("hot-" + i));
+        assertThat(created).hasValue(createdBefore);
+    }
+
+    @Test
+    public void shouldAdmitNewKeyUsedMoreFrequentlyThanEvictedOne() {
+        final var created = new AtomicInteger();
+        final var unit = new KeyBasedRateLimiter<String, String>(
+                Function.identity(),
+                ignored -> {
+                    created.incrementAndGet();
+                    return countingRateLimiter(new AtomicInteger(), true);
+                },
+                IDLE_TIMEOUT, 1, CLOCK, EXECUTOR_SERVICE
+        );
+
+        unit.accept("old");
+        unit.accept("new");
+        assertThat(unit.evictionCount()).isEqualTo(1L);
+
+        unit.accept("new");
+        assertThat(unit.evictionCount()).isEqualTo(2L);
+
+        unit.accept("new");
+        assertThat(created).hasValue(3);
+    }
+
+    @Test
+    public void shouldLimitFloodingKeyWhichIsNotAdmitted() {
+        final var unit = new KeyBasedRateLimiter<String, String>(
+                Function.identity(),
+                ignored -> new GcraRateLimiter<>(Rate.of(1, java.time.Duration.ofMinutes(1)), CLOCK),
+                IDLE_TIMEOUT, 10, CLOCK, EXECUTOR_SERVICE
+        );
+        IntStream.range(0, 20).forEach(ignored -> IntStream.range(0, 10).forEach(key -> unit.accept("hot-" + key)));
+
+        assertThat(unit.accept("flooding")).isEmpty();
+
+        // It shares the overflow rate limiter until it is used more than the hot keys, then it keeps its own one
+        final var accepted = IntStream.range(0, 100)
+                .filter(ignored -> unit.accept("flooding").isEmpty())
+                .count();
+        assertThat(accepted).isLessThanOrEqualTo(1L);
+    }
+
+    @Test
+    public void shouldNotCleanupEvictedKeys() {
+        final var emptyChecks = new AtomicInteger();
+        final var unit = new KeyBasedRateLimiter<String, String>(
+                Function.identity(),
+                ignored -> countingRateLimiter(emptyChecks, true),
+                IDLE_TIMEOUT, 1, CLOCK, EXECUTOR_SERVICE
+        );
+        final var cleanupTask = captureCleanupTask();
+
+        unit.accept("first");
+        unit.accept("second");
+        unit.accept("second");
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + IDLE_TIMEOUT.toMillis());
+        cleanupTask.run();
+        assertThat(emptyChecks).hasValue(1);
+        assertThat(unit.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldReportEventsToListener() {
+        final var ticker = new ManualTicker();
+        final var metrics = new RateLimiterMetrics();
+        final var unit = new KeyBasedRateLimiter<String, String>(
+                Function.identity(),
+                ignored -> new GcraRateLimiter<>(Rate.of(1, IDLE_TIMEOUT), ticker),
+                IDLE_TIMEOUT, KeyBasedRateLimiter.UNBOUNDED, ticker, EXECUTOR_SERVICE, metrics
+        );
+        final var cleanupTask = captureCleanupTask();
+
+        unit.accept("first");
+        unit.accept("first");
+        unit.accept("second");
+        assertThat(metrics.accepted()).isEqualTo(2L);
+        assertThat(metrics.rejected()).isEqualTo(1L);
+        assertThat(metrics.retryAfterNanos().count()).isEqualTo(1L);
+        assertThat(metrics.latencyNanos().count()).isEqualTo(3L);
+        assertThat(metrics.trackedKeys()).isEqualTo(2L);
+
+        ticker.advance(IDLE_TIMEOUT.plusMillis(20));
+        cleanupTask.run();
+        assertThat(metrics.trackedKeys()).isZero();
+        assertThat(metrics.cleanupNanos().count()).isEqualTo(1L);
+    }
+
+    private Runnable captureCleanupTask() {
+        final var executorInvocations = mockingDetails(EXECUTOR_SERVICE).getInvocations();
+        return executorInvocations.iterator().next().getArgument(0, Runnable.class);
+    }
+
+    private static RateLimiter<String> countingRateLimiter(AtomicInteger emptyChecks, boolean empty) {
+        return new RateLimiter<>() {
+
+            @Override
+            public Optional<java.time.Duration> accept(String request) {
+                return Optional.empty();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                emptyChecks.incrementAndGet();
+                return empty;
+            }
+        };
+    }
+
+    @Test
+    public void shouldCallDelegatedOnceForEveryKeyOfBatch() {
+
+        final var calls = new AtomicInteger();
+        final var unit = new KeyBasedRateLimiter<String, String>(
+                request -> request.substring(0, 1),
+                ignored -> new GcraRateLimiter<>(Rate.of(2, java.time.Duration.ofSeconds(1)), CLOCK) {
+                    @Override
+                    public BatchResult acceptAll(List<? extends String> requests) {
+                        calls.incrementAndGet();
+                        return super.acceptAll(requests);
+                    }
+                },
+                IDLE_TIMEOUT, CLOCK, EXECUTOR_SERVICE
+        );
+
+        final var result = unit.acceptAll(List.of("a1", "b1", "a2", "a3", "b2", "c1"));
+        assertThat(calls.get()).isEqualTo(3);
+        assertThat(IntStream.range(0, result.size()).mapToObj(result::isAccepted))
+                .containsExactly(true, true, true, false, true, true);
+        assertThat(unit.accept("b3")).isPresent();
+    }
 }
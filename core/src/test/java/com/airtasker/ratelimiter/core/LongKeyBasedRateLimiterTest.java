@@ -0,0 +1,115 @@
+package com.airtasker.ratelimiter.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class LongKeyBasedRateLimiterTest {
+
+    private static final Clock CLOCK = mock(Clock.class);
+    private static final long DEFAULT_MILLIS = 1_000_000L;
+    private static final Rate RATE = Rate.of(10, Duration.ofSeconds(1));
+
+    @BeforeEach
+    public void prepareMocks() {
+        reset(CLOCK);
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS);
+    }
+
+    @Test
+    public void shouldLimitEveryKeyIndependently() {
+        final var unit = new LongKeyBasedRateLimiter<Long>(Long::longValue, RATE,
+                new StripedLongKeyStateStore(1), CLOCK);
+
+        LongStream.range(0, 10).forEach(ignored -> assertThat(unit.accept(1L)).isEmpty());
+        assertThat(unit.accept(1L)).isEqualTo(Optional.of(Duration.ofMillis(100)));
+
+        LongStream.range(0, 10).forEach(ignored -> assertThat(unit.accept(2L)).isEmpty());
+        assertThat(unit.accept(2L)).isEqualTo(Optional.of(Duration.ofMillis(100)));
+    }
+
+    @Test
+    public void shouldAcceptAgainAfterEmissionInterval() {
+        final var unit = new LongKeyBasedRateLimiter<Long>(Long::longValue, RATE,
+                new StripedLongKeyStateStore(1), CLOCK);
+        LongStream.range(0, 10).forEach(ignored -> unit.accept(1L));
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 100);
+        assertThat(unit.accept(1L)).isEmpty();
+        assertThat(unit.accept(1L)).isPresent();
+    }
+
+    @Test
+    public void shouldRejectWhenRequestsRateIs0() {
+        final var unit = new LongKeyBasedRateLimiter<Long>(Long::longValue, Rate.of(0, Duration.ofSeconds(1)),
+                new StripedLongKeyStateStore(1), CLOCK);
+        assertThat(unit.accept(1L)).isEqualTo(Optional.of(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    public void shouldBeEmptyOnceAllKeysExpired() {
+        final var unit = new LongKeyBasedRateLimiter<Long>(Long::longValue, RATE,
+                new StripedLongKeyStateStore(1), CLOCK);
+        assertThat(unit.isEmpty()).isTrue();
+
+        unit.accept(1L);
+        unit.accept(2L);
+        assertThat(unit.isEmpty()).isFalse();
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 100);
+        assertThat(unit.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldHashStringKeys() {
+        final var unit = new LongKeyBasedRateLimiter<String>(LongKeyBasedRateLimiter::hashKey, RATE,
+                new StripedLongKeyStateStore(1), CLOCK);
+
+        LongStream.range(0, 10).forEach(ignored -> assertThat(unit.accept("api-key-1")).isEmpty());
+        assertThat(unit.accept("api-key-1")).isPresent();
+        assertThat(unit.accept("api-key-2")).isEmpty();
+        assertThat(LongKeyBasedRateLimiter.hashKey("api-key-1"))
+                .isEqualTo(LongKeyBasedRateLimiter.hashKey(new StringBuilder("api-key-1")));
+    }
+
+    @Test
+    public void shouldTakeAllPermitsOfRequest() {
+        final var unit = new LongKeyBasedRateLimiter<Long>(Long::longValue, RATE,
+                new StripedLongKeyStateStore(1), CLOCK);
+
+        assertThat(unit.accept(1L, 10)).isEmpty();
+        assertThat(unit.accept(1L)).isEqualTo(Optional.of(Duration.ofMillis(100)));
+        assertThat(unit.accept(2L, 11)).isEqualTo(Optional.of(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    public void shouldCheckAllRatesOfPolicy() {
+        final var policy = Rate.of(2, Duration.ofSeconds(1)).and(Rate.of(3, Duration.ofMinutes(1)));
+        final var unit = new LongKeyBasedRateLimiter<Long>(Long::longValue, policy,
+                new StripedLongKeyStateStore(LongKeyBasedRateLimiter.recordSize(policy)), Ticker.fromClock(CLOCK));
+
+        LongStream.range(0, 2).forEach(ignored -> assertThat(unit.accept(1L)).isEmpty());
+        assertThat(unit.accept(1L)).isEqualTo(Optional.of(Duration.ofMillis(500)));
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 1000);
+        assertThat(unit.accept(1L)).isEmpty();
+        assertThat(unit.accept(1L)).isEqualTo(Optional.of(Duration.ofSeconds(19)));
+    }
+
+    @Test
+    public void shouldFailWhenRecordsAreTooSmallForPolicy() {
+        final var policy = Rate.of(2, Duration.ofSeconds(1)).and(Rate.of(3, Duration.ofMinutes(1)));
+
+        assertThatThrownBy(() -> new LongKeyBasedRateLimiter<Long>(Long::longValue, policy,
+                new StripedLongKeyStateStore(1), Ticker.fromClock(CLOCK)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,74 @@
+package com.airtasker.ratelimiter.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongKeyTableTest {
+
+    private static final long NOW = 1_000L;
+
+    /**
+     * Keeps the record alive until now + argument
+     */
+    private static final LongKeyStateStore.RecordFunction KEEP_ALIVE = (record, now, argument) -> {
+        record.set(0, now + argument);
+        return record.isNew() ? 1L : 0L;
+    };
+
+    @Test
+    public void shouldNotRebuildFullTableUntilRecordsCanExpire() {
+        final var unit = new FixedTable(16);
+
+        LongStream.range(0, 100).forEach(key -> unit.compute(key, (int) LongKeyTable.mix(key), NOW, 100L, KEEP_ALIVE));
+        assertThat(unit.used()).isEqualTo(12);
+        assertThat(unit.rebuilds()).isEqualTo(1L);
+
+        LongStream.range(100, 200)
+                .forEach(key -> unit.compute(key, (int) LongKeyTable.mix(key), NOW + 99, 100L, KEEP_ALIVE));
+        assertThat(unit.rebuilds()).isEqualTo(1L);
+
+        // Once the records expire, the new keys are kept again
+        assertThat(unit.compute(200L, (int) LongKeyTable.mix(200L), NOW + 100, 100L, KEEP_ALIVE)).isEqualTo(1L);
+        assertThat(unit.compute(200L, (int) LongKeyTable.mix(200L), NOW + 150, 100L, KEEP_ALIVE)).isEqualTo(0L);
+    }
+
+    /**
+     * Table with a fixed number of slots, kept in an array
+     */
+    private static final class FixedTable extends LongKeyTable {
+
+        private final int slots;
+        private long[] words;
+
+        private FixedTable(int slots) {
+            super(1);
+            this.slots = slots;
+            this.words = new long[slots * stride()];
+            attach(slots);
+        }
+
+        @Override
+        protected long word(int index) {
+            return words[index];
+        }
+
+        @Override
+        protected void word(int index, long value) {
+            words[index] = value;
+        }
+
+        @Override
+        protected void allocate(int slots) {
+            words = new long[slots * stride()];
+        }
+
+        @Override
+        protected int maxCapacity() {
+            return slots;
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.airtasker.ratelimiter.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedLongKeyStateStoreTest {
+
+    private static final long NOW = 1_000L;
+
+    /**
+     * Keeps the record alive until now + argument and counts the calls in the second word,
+     * returning the previous count or -1 for new records
+     */
+    private static final LongKeyStateStore.RecordFunction COUNTING = (record, now, argument) -> {
+        final var previous = record.isNew() ? -1L : record.get(1);
+        record.set(0, now + argument);
+        record.set(1, previous + 1);
+        return previous;
+    };
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void shouldKeepRecordUntilItExpires() throws IOException {
+        try (final var unit = new MappedLongKeyStateStore(directory.resolve("state"), 2, 4, 16)) {
+            assertThat(unit.compute(42L, NOW, 100L, COUNTING)).isEqualTo(-1L);
+            assertThat(unit.compute(42L, NOW + 50, 100L, COUNTING)).isEqualTo(0L);
+            assertThat(unit.compute(42L, NOW + 149, 0L, COUNTING)).isEqualTo(1L);
+            assertThat(unit.compute(42L, NOW + 149, 0L, COUNTING)).isEqualTo(-1L);
+        }
+    }
+
+    @Test
+    public void shouldKeepRecordsAfterReopening() throws IOException {
+        final var file = directory.resolve("state");
+        try (final var unit = new MappedLongKeyStateStore(file, 2, 4, 16)) {
+            LongStream.range(0, 10).forEach(key -> unit.compute(key, NOW, 100L, COUNTING));
+        }
+
+        try (final var unit = new MappedLongKeyStateStore(file, 2, 4, 16)) {
+            assertThat(unit.size()).isEqualTo(10L);
+            LongStream.range(0, 10).forEach(key -> assertThat(unit.compute(key, NOW, 100L, COUNTING)).isEqualTo(0L));
+            assertThat(unit.compute(10L, NOW, 100L, COUNTING)).isEqualTo(-1L);
+        }
+    }
+
+    @Test
+    public void shouldKeepLimitOfRateLimiterAfterReopening() throws IOException {
+        final var file = directory.resolve("state");
+        final var rate = Rate.of(10, Duration.ofHours(1));
+        try (final var store = new MappedLongKeyStateStore(file, 1, 4, 16)) {
+            final var unit = AirtaskerRateLimiters.<Long>longKeyBasedRateLimiter(rate, Long::longValue, store);
+            LongStream.range(0, 10).forEach(ignored -> assertThat(unit.accept(1L)).isEmpty());
+        }
+
+        try (final var store = new MappedLongKeyStateStore(file, 1, 4, 16)) {
+            final var unit = AirtaskerRateLimiters.<Long>longKeyBasedRateLimiter(rate, Long::longValue, store);
+            assertThat(unit.accept(1L)).isPresent();
+            assertThat(unit.accept(2L)).isEmpty();
+        }
+    }
+
+    @Test
+    public void shouldNotKeepNewKeysWhenFull() throws IOException {
+        try (final var unit = new MappedLongKeyStateStore(directory.resolve("state"), 2, 1, 16)) {
+            LongStream.range(0, 100).forEach(key -> assertThat(unit.compute(key, NOW, 100L, COUNTING)).isEqualTo(-1L));
+            assertThat(unit.size()).isEqualTo(12L);
+            assertThat(unit.compute(99L, NOW, 100L, COUNTING)).isEqualTo(-1L);
+
+            assertThat(unit.compute(99L, NOW + 100, 100L, COUNTING)).isEqualTo(-1L);
+            assertThat(unit.compute(99L, NOW + 100, 100L, COUNTING)).isEqualTo(0L);
+        }
+    }
+
+    @Test
+    public void shouldFailWhenLayoutIsDifferent() throws IOException {
+        final var file = directory.resolve("state");
+        new MappedLongKeyStateStore(file, 2, 4, 16).close();
+
+        assertThatThrownBy(() -> new MappedLongKeyStateStore(file, 3, 4, 16))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldFailWhenFileIsNotAStateStore() throws IOException {
+        final var file = Files.writeString(directory.resolve("state"), "Not a state store");
+
+        assertThatThrownBy(() -> new MappedLongKeyStateStore(file, 2, 4, 16))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
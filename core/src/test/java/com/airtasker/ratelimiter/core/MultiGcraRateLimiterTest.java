@@ -0,0 +1,60 @@
+package com.airtasker.ratelimiter.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class MultiGcraRateLimiterTest {
+
+    private static final Clock CLOCK = mock(Clock.class);
+    private static final long DEFAULT_MILLIS = 1_000_000L;
+    private static final RatePolicy POLICY = Rate.of(2, Duration.ofSeconds(1)).and(Rate.of(3, Duration.ofMinutes(1)));
+
+    @BeforeEach
+    public void prepareMocks() {
+        reset(CLOCK);
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS);
+    }
+
+    @Test
+    public void shouldRejectWithLongestWaitOfTheRates() {
+        final var unit = new MultiGcraRateLimiter<String>(POLICY, CLOCK);
+
+        assertThat(unit.accept("request")).isEmpty();
+        assertThat(unit.accept("request")).isEmpty();
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofMillis(500)));
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 1000);
+        assertThat(unit.accept("request")).isEmpty();
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofSeconds(19)));
+    }
+
+    @Test
+    public void shouldNotConsumePermitsOfOtherRatesWhenRejected() {
+        final var unit = new MultiGcraRateLimiter<String>(POLICY, CLOCK);
+
+        assertThat(unit.accept("request", 2)).isEmpty();
+        for (var i = 0; i < 10; i++) {
+            assertThat(unit.accept("request")).isPresent();
+        }
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 1000);
+        assertThat(unit.accept("request")).isEmpty();
+    }
+
+    @Test
+    public void shouldRejectPermitsExceedingAnyRate() {
+        final var unit = new MultiGcraRateLimiter<String>(POLICY, CLOCK);
+
+        assertThat(unit.accept("request", 3)).isEqualTo(Optional.of(Duration.ofSeconds(1)));
+        assertThat(unit.accept("request", 4)).isEqualTo(Optional.of(Duration.ofMinutes(1)));
+        assertThat(unit.isEmpty()).isTrue();
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.airtasker.ratelimiter.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RateLimiterRegistryTest {
+
+    private static final Rate RATE = Rate.of(10, Duration.ofSeconds(1));
+
+    @Test
+    public void shouldShareRateLimitersWithTheSameName() {
+        try (final var unit = new RateLimiterRegistry()) {
+            final var created = new AtomicInteger(0);
+            final RateLimiter<String> first = unit.rateLimiter("shared", scheduler -> {
+                created.incrementAndGet();
+                return AirtaskerRateLimiters.slidingLogBlockingWithCleanup(RATE, scheduler);
+            });
+            final RateLimiter<String> second = unit.rateLimiter("shared", scheduler -> {
+                created.incrementAndGet();
+                return AirtaskerRateLimiters.slidingLogBlockingWithCleanup(RATE, scheduler);
+            });
+
+            assertThat(second).isSameAs(first);
+            assertThat(created.get()).isEqualTo(1);
+            assertThat(unit.names()).isEqualTo(Set.of("shared"));
+            assertThat(unit.<String>find("shared")).containsSame(first);
+            assertThat(unit.find("other")).isEmpty();
+        }
+    }
+
+    @Test
+    public void shouldStopSchedulerWhenClosed() {
+        final var unit = new RateLimiterRegistry();
+        unit.rateLimiter("name", scheduler -> AirtaskerRateLimiters.slidingLogBlockingWithCleanup(RATE, scheduler));
+
+        unit.close();
+
+        assertThat(unit.scheduler().isShutdown()).isTrue();
+        assertThat(unit.names()).isEmpty();
+        assertThatThrownBy(() -> unit.rateLimiter("name",
+                scheduler -> AirtaskerRateLimiters.slidingLogBlockingWithCleanup(RATE, scheduler)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void shouldNotStopSharedSchedulerWhenClosed() {
+        try (final var shared = new RateLimiterRegistry()) {
+            final var unit = RateLimiterRegistry.sharingScheduler(shared);
+            unit.rateLimiter("name",
+                    scheduler -> AirtaskerRateLimiters.gcraKeyBasedRateLimiter(RATE, Object::toString, 10, scheduler,
+                            Ticker.systemTicker()));
+
+            unit.close();
+
+            assertThat(unit.scheduler()).isSameAs(shared.scheduler());
+            assertThat(shared.scheduler().isShutdown()).isFalse();
+            assertThat(unit.names()).isEmpty();
+            assertThat(shared.names()).isEmpty();
+            assertThatThrownBy(() -> unit.rateLimiter("name",
+                    scheduler -> AirtaskerRateLimiters.slidingLogBlockingWithCleanup(RATE, scheduler)))
+                    .isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    public void shouldNotCloseDefaultRegistry() {
+        assertThatThrownBy(() -> RateLimiterRegistry.defaultRegistry().close())
+                .isInstanceOf(UnsupportedOperationException.class);
+        assertThat(RateLimiterRegistry.defaultRegistry().scheduler().isShutdown()).isFalse();
+    }
+
+}
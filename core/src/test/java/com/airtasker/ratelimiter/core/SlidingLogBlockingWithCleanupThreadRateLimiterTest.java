@@ -109,6 +109,17 @@ public class SlidingLogBlockingWithCleanupThreadRateLimiterTest {
         testSequence(rate, expectations);
     }
 
+    @Test
+    public void shouldGrantOrRefuseAllPermitsAtOnce() {
+        final var unit = new SlidingLogBlockingWithCleanupThreadRateLimiter<String>(
+                Rate.of(3, Duration.ofSeconds(1)), CLOCK, EXECUTOR_SERVICE);
+
+        assertThat(unit.accept("request", 2)).isEmpty();
+        assertThat(unit.accept("request", 2)).isEqualTo(Optional.of(Duration.ofSeconds(1)));
+        assertThat(unit.accept("request", 1)).isEmpty();
+        assertThat(unit.accept("request", 4)).isEqualTo(Optional.of(Duration.ofSeconds(1)));
+    }
+
     @Test
     public void shouldBeEmptyWithNoRequests() {
         final var unit = new SlidingLogBlockingWithCleanupThreadRateLimiter<String>(
@@ -0,0 +1,124 @@
+package com.airtasker.ratelimiter.core;
+
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class SlidingLogRingBufferRateLimiterTest {
+
+    private static final Clock CLOCK = mock(Clock.class);
+    private static final long DEFAULT_MILLIS = 1_000_000L;
+
+    @BeforeEach
+    public void prepareMocks() {
+        reset(CLOCK);
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS);
+    }
+
+    @Test
+    public void shouldRejectWhenRequestsRateIs0() {
+        final var unit = new SlidingLogRingBufferRateLimiter<String>(Rate.of(0, Duration.ofSeconds(1)), CLOCK);
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    public void shouldAcceptWhenNumberOfRequestIsNotReached() {
+        final var rate = Rate.of(RandomUtils.nextLong(1, 100), Duration.ofSeconds(1));
+        final var unit = new SlidingLogRingBufferRateLimiter<String>(rate, CLOCK);
+
+        LongStream.range(0, rate.requests())
+                .forEach(ignored -> assertThat(unit.accept("request")).isEmpty());
+    }
+
+    @Test
+    public void shouldRejectUntilOldestRequestGoesOutOfWindow() {
+        final var unit = new SlidingLogRingBufferRateLimiter<String>(Rate.of(3, Duration.ofSeconds(1)), CLOCK);
+
+        assertThat(unit.accept("request")).isEmpty();
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 100);
+        assertThat(unit.accept("request")).isEmpty();
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 200);
+        assertThat(unit.accept("request")).isEmpty();
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 300);
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofMillis(700)));
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 1000);
+        assertThat(unit.accept("request")).isEmpty();
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofMillis(100)));
+    }
+
+    @Test
+    public void shouldWrapAroundTheLog() {
+        final var rate = Rate.of(RandomUtils.nextLong(1, 10), Duration.ofSeconds(1));
+        final var unit = new SlidingLogRingBufferRateLimiter<String>(rate, CLOCK);
+
+        LongStream.range(0, 5).forEach(window -> {
+            when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + window * 1000);
+            LongStream.range(0, rate.requests())
+                    .forEach(ignored -> assertThat(unit.accept("request")).isEmpty());
+            assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofSeconds(1)));
+        });
+    }
+
+    @Test
+    public void shouldBeEmptyWithNoRequests() {
+        final var unit = new SlidingLogRingBufferRateLimiter<String>(Rate.of(1, Duration.ofMillis(1)), CLOCK);
+        assertThat(unit.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldBeEmptyWhenLogGoesOutOfWindow() {
+        final var unit = new SlidingLogRingBufferRateLimiter<String>(Rate.of(1, Duration.ofSeconds(1)), CLOCK);
+        unit.accept("request");
+        assertThat(unit.isEmpty()).isFalse();
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 1000);
+        assertThat(unit.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldFailWhenRequestsAreTooBig() {
+        assertThatThrownBy(() -> new SlidingLogRingBufferRateLimiter<String>(
+                Rate.of(SlidingLogRingBufferRateLimiter.MAX_REQUESTS + 1, Duration.ofSeconds(1)), CLOCK))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldWaitUntilEnoughPermitsGoOutOfWindow() {
+        final var unit = new SlidingLogRingBufferRateLimiter<String>(Rate.of(4, Duration.ofSeconds(1)), CLOCK);
+
+        assertThat(unit.accept("request")).isEmpty();
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 100);
+        assertThat(unit.accept("request", 2)).isEmpty();
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 200);
+        assertThat(unit.accept("request", 3)).isEqualTo(Optional.of(Duration.ofMillis(900)));
+        assertThat(unit.accept("request", 5)).isEqualTo(Optional.of(Duration.ofSeconds(1)));
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 1100);
+        assertThat(unit.accept("request", 4)).isEmpty();
+    }
+
+    @Test
+    public void shouldAcceptBatchLikeSequentialRequests() {
+        final var unit = new SlidingLogRingBufferRateLimiter<String>(Rate.of(4, Duration.ofSeconds(1)), CLOCK);
+        assertThat(unit.accept("request")).isEmpty();
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 100);
+        final var result = unit.acceptAll(Collections.nCopies(5, "request"));
+        assertThat(result.acceptedCount()).isEqualTo(3);
+        assertThat(result.get(3)).isEqualTo(Optional.of(Duration.ofMillis(900)));
+        assertThat(result.get(4)).isEqualTo(Optional.of(Duration.ofMillis(900)));
+    }
+}
@@ -0,0 +1,114 @@
+package com.airtasker.ratelimiter.core;
+
+import com.airtasker.ratelimiter.core.metrics.RateLimiterMetrics;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class SlidingWindowCounterRateLimiterTest {
+
+    private static final Clock CLOCK = mock(Clock.class);
+    private static final long DEFAULT_MILLIS = 1_000_000L;
+
+    @BeforeEach
+    public void prepareMocks() {
+        reset(CLOCK);
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS);
+    }
+
+    @Test
+    public void shouldRejectWhenRequestsRateIs0() {
+        final var unit = new SlidingWindowCounterRateLimiter<String>(Rate.of(0, Duration.ofSeconds(1)), 10, CLOCK);
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    public void shouldReportDecisionsToListener() {
+        final var metrics = new RateLimiterMetrics();
+        final var unit = new SlidingWindowCounterRateLimiter<String>(Rate.of(2, Duration.ofSeconds(1)), 10,
+                Ticker.fromClock(CLOCK), metrics);
+
+        unit.accept("request");
+        unit.acceptAll(List.of("request", "request"));
+
+        assertThat(metrics.accepted()).isEqualTo(2L);
+        assertThat(metrics.rejected()).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldAcceptWhenNumberOfRequestIsNotReached() {
+        final var rate = Rate.of(RandomUtils.nextLong(1, 100), Duration.ofSeconds(1));
+        final var unit = new SlidingWindowCounterRateLimiter<String>(rate, RandomUtils.nextInt(1, 20), CLOCK);
+
+        LongStream.range(0, rate.requests())
+                .forEach(ignored -> assertThat(unit.accept("request")).isEmpty());
+    }
+
+    @Test
+    public void shouldRejectUntilOldestBucketSlidesOut() {
+        final var unit = new SlidingWindowCounterRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), 10, CLOCK);
+
+        LongStream.range(0, 10).forEach(ignored -> assertThat(unit.accept("request")).isEmpty());
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofMillis(1010)));
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 1010);
+        assertThat(unit.accept("request")).isEmpty();
+        assertThat(unit.accept("request")).isPresent();
+    }
+
+    @Test
+    public void shouldInterpolateOldestBucket() {
+        final var unit = new SlidingWindowCounterRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), 1, CLOCK);
+        LongStream.range(0, 10).forEach(ignored -> unit.accept("request"));
+
+        // Half of the previous window is still inside the current window
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 1500);
+        LongStream.range(0, 5).forEach(ignored -> assertThat(unit.accept("request")).isEmpty());
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofMillis(100)));
+    }
+
+    @Test
+    public void shouldBeEmptyWithNoRequests() {
+        final var unit = new SlidingWindowCounterRateLimiter<String>(Rate.of(1, Duration.ofSeconds(1)), 10, CLOCK);
+        assertThat(unit.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldBeEmptyWhenAllBucketsSlidOut() {
+        final var unit = new SlidingWindowCounterRateLimiter<String>(Rate.of(1, Duration.ofSeconds(1)), 10, CLOCK);
+        unit.accept("request");
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 1099);
+        assertThat(unit.isEmpty()).isFalse();
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 1100);
+        assertThat(unit.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldFailWithoutSubWindows() {
+        assertThatThrownBy(() -> new SlidingWindowCounterRateLimiter<String>(
+                Rate.of(1, Duration.ofSeconds(1)), 0, CLOCK))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldCountAllPermitsOfRequest() {
+        final var unit = new SlidingWindowCounterRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), 10, CLOCK);
+
+        assertThat(unit.accept("request", 6)).isEmpty();
+        assertThat(unit.accept("request", 5)).isPresent();
+        assertThat(unit.accept("request", 4)).isEmpty();
+        assertThat(unit.accept("request", 11)).isEqualTo(Optional.of(Duration.ofSeconds(1)));
+    }
+}
@@ -0,0 +1,88 @@
+package com.airtasker.ratelimiter.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StripedLongKeyStateStoreTest {
+
+    private static final long NOW = 1_000L;
+
+    /**
+     * Keeps the record alive until now + argument and counts the calls in the second word,
+     * returning the previous count or -1 for new records
+     */
+    private static final LongKeyStateStore.RecordFunction COUNTING = (record, now, argument) -> {
+        final var previous = record.isNew() ? -1L : record.get(1);
+        record.set(0, now + argument);
+        record.set(1, previous + 1);
+        return previous;
+    };
+
+    @Test
+    public void shouldCreateNewRecordWithZeroValues() {
+        final var unit = new StripedLongKeyStateStore(3);
+        final var result = unit.compute(42L, NOW, 0L, (record, now, argument) -> {
+            assertThat(record.isNew()).isTrue();
+            assertThat(record.get(0)).isEqualTo(NOW);
+            assertThat(record.get(1)).isZero();
+            assertThat(record.get(2)).isZero();
+            return 7L;
+        });
+        assertThat(result).isEqualTo(7L);
+    }
+
+    @Test
+    public void shouldKeepRecordUntilItExpires() {
+        final var unit = new StripedLongKeyStateStore(2);
+
+        assertThat(unit.compute(42L, NOW, 100L, COUNTING)).isEqualTo(-1L);
+        assertThat(unit.compute(42L, NOW + 50, 100L, COUNTING)).isEqualTo(0L);
+        assertThat(unit.compute(42L, NOW + 149, 0L, COUNTING)).isEqualTo(1L);
+        assertThat(unit.compute(42L, NOW + 149, 0L, COUNTING)).isEqualTo(-1L);
+    }
+
+    @Test
+    public void shouldKeepKeysIndependent() {
+        final var unit = new StripedLongKeyStateStore(2, 1, 2);
+
+        LongStream.range(0, 1000).forEach(key -> assertThat(unit.compute(key, NOW, 100L, COUNTING)).isEqualTo(-1L));
+        LongStream.range(0, 1000).forEach(key -> assertThat(unit.compute(key, NOW, 100L, COUNTING)).isEqualTo(0L));
+        assertThat(unit.size()).isEqualTo(1000L);
+    }
+
+    @Test
+    public void shouldReuseExpiredRecordsInsteadOfGrowing() {
+        final var unit = new StripedLongKeyStateStore(2, 1, 16);
+
+        LongStream.range(0, 10_000).forEach(key -> unit.compute(key, NOW + key, 0L, COUNTING));
+        assertThat(unit.size()).isLessThanOrEqualTo(16L);
+    }
+
+    @Test
+    public void shouldBeEmptyWhenAllRecordsExpired() {
+        final var unit = new StripedLongKeyStateStore(2);
+        assertThat(unit.isEmpty(NOW)).isTrue();
+
+        unit.compute(42L, NOW, 100L, COUNTING);
+        assertThat(unit.isEmpty(NOW + 99)).isFalse();
+        assertThat(unit.isEmpty(NOW + 100)).isTrue();
+    }
+
+    @Test
+    public void shouldFailWhenAccessingOutsideOfRecord() {
+        final var unit = new StripedLongKeyStateStore(1);
+        assertThatThrownBy(() -> unit.compute(42L, NOW, 0L, (record, now, argument) -> record.get(1)))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    public void shouldFailWithoutRecordSize() {
+        assertThatThrownBy(() -> new StripedLongKeyStateStore(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
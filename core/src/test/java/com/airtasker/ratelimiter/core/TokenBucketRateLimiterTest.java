@@ -0,0 +1,203 @@
+package com.airtasker.ratelimiter.core;
+
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class TokenBucketRateLimiterTest {
+
+    private static final Clock CLOCK = mock(Clock.class);
+    private static final long DEFAULT_MILLIS = 0L;
+
+    @BeforeEach
+    public void prepareMocks() {
+        reset(CLOCK);
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS);
+    }
+
+    @Test
+    public void shouldRejectWhenRequestsRateIs0() {
+        final var unit = new TokenBucketRateLimiter<String>(Rate.of(0, Duration.ofSeconds(1)), CLOCK);
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    public void shouldAcceptWhenNumberOfRequestIsNotReached() {
+        final var rate = Rate.of(RandomUtils.nextLong(1, 100), Duration.ofSeconds(1));
+        final var unit = new TokenBucketRateLimiter<String>(rate, CLOCK);
+
+        LongStream.range(0, rate.requests())
+                .forEach(ignored -> assertThat(unit.accept("request")).isEmpty());
+    }
+
+    @Test
+    public void shouldRejectWhenBucketIsEmptyUntilNextToken() {
+        final var unit = new TokenBucketRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), CLOCK);
+
+        LongStream.range(0, 10).forEach(ignored -> assertThat(unit.accept("request")).isEmpty());
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 40);
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofMillis(60)));
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 100);
+        assertThat(unit.accept("request")).isEmpty();
+        assertThat(unit.accept("request")).isEqualTo(Optional.of(Duration.ofMillis(100)));
+    }
+
+    @Test
+    public void shouldNotRefillMoreThanCapacity() {
+        final var unit = new TokenBucketRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), CLOCK);
+        unit.accept("request");
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + Duration.ofHours(1).toMillis());
+        LongStream.range(0, 10).forEach(ignored -> assertThat(unit.accept("request")).isEmpty());
+        assertThat(unit.accept("request")).isPresent();
+    }
+
+    @Test
+    public void shouldNotRefillWhenClockGoesBackwards() {
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 1000);
+        final var unit = new TokenBucketRateLimiter<String>(Rate.of(1, Duration.ofSeconds(1)), CLOCK);
+        assertThat(unit.accept("request")).isEmpty();
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS);
+        assertThat(unit.accept("request")).isPresent();
+    }
+
+    @Test
+    public void shouldRefillWholeBucketAfterLongIdle() {
+        // One token every nanosecond, so the idle times are longer than the range of a 40 bits tick
+        final var ticker = new ManualTicker();
+        final var unit = new TokenBucketRateLimiter<String>(Rate.of(1000, Duration.ofNanos(1000)), ticker);
+
+        assertThat(unit.accept("request", 1000)).isEmpty();
+        ticker.advance(Duration.ofMinutes(10));
+        assertThat(unit.accept("request", 1000)).isEmpty();
+
+        ticker.advance(Duration.ofNanos((1L << 40) + 1));
+        assertThat(unit.accept("request", 1000)).isEmpty();
+        assertThat(unit.accept("request")).isPresent();
+    }
+
+    @Test
+    public void shouldBeEmptyWhenBucketIsFull() {
+        final var unit = new TokenBucketRateLimiter<String>(Rate.of(2, Duration.ofSeconds(1)), CLOCK);
+        assertThat(unit.isEmpty()).isTrue();
+
+        unit.accept("request");
+        assertThat(unit.isEmpty()).isFalse();
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 500);
+        assertThat(unit.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldFailWhenRequestsAreTooBig() {
+        assertThatThrownBy(() -> new TokenBucketRateLimiter<String>(
+                Rate.of(TokenBucketRateLimiter.MAX_REQUESTS + 1, Duration.ofSeconds(1)), CLOCK))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldNotAcceptMoreThanCapacityWhenCalledConcurrently() {
+        final var capacity = 1000L;
+        final var threads = 8;
+        final var unit = new TokenBucketRateLimiter<String>(Rate.of(capacity, Duration.ofHours(1)), CLOCK);
+        final var accepted = new AtomicLong();
+        final var executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            final var futures = IntStream.range(0, threads)
+                    .mapToObj(ignored -> CompletableFuture.runAsync(() -> LongStream.range(0, capacity)
+                            .filter(i -> unit.accept("request").isEmpty())
+                            .forEach(i -> accepted.incrementAndGet()), executor))
+                    .collect(Collectors.toList());
+            futures.forEach(CompletableFuture::join);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(accepted).hasValue(capacity);
+    }
+
+    @Test
+    public void shouldTakeAllPermitsAtOnce() {
+        final var unit = new TokenBucketRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), CLOCK);
+
+        assertThat(unit.accept("request", 7)).isEmpty();
+        assertThat(unit.accept("request", 4)).isEqualTo(Optional.of(Duration.ofMillis(100)));
+        assertThat(unit.accept("request", 3)).isEmpty();
+        assertThat(unit.accept("request", 2)).isEqualTo(Optional.of(Duration.ofMillis(200)));
+    }
+
+    @Test
+    public void shouldRejectMorePermitsThanCapacity() {
+        final var unit = new TokenBucketRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), CLOCK);
+        assertThat(unit.accept("request", 11)).isEqualTo(Optional.of(Duration.ofSeconds(1)));
+        assertThat(unit.accept("request", 10)).isEmpty();
+    }
+
+    @Test
+    public void shouldFailWithoutPermits() {
+        final var unit = new TokenBucketRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), CLOCK);
+        assertThatThrownBy(() -> unit.accept("request", 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldTakeAvailableTokensForBatch() {
+        final var unit = new TokenBucketRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), CLOCK);
+        unit.accept("request", 7);
+
+        final var result = unit.acceptAll(Collections.nCopies(5, "request"));
+        assertThat(result.acceptedCount()).isEqualTo(3);
+        assertThat(result.isAccepted(2)).isTrue();
+        assertThat(result.get(3)).isEqualTo(Optional.of(Duration.ofMillis(100)));
+        assertThat(result.get(4)).isEqualTo(Optional.of(Duration.ofMillis(100)));
+
+        when(CLOCK.millis()).thenReturn(DEFAULT_MILLIS + 100);
+        assertThat(unit.accept("request")).isEmpty();
+        assertThat(unit.accept("request")).isPresent();
+    }
+
+    @Test
+    public void shouldReportQuotaWithoutTakingPermits() {
+        final var unit = new TokenBucketRateLimiter<String>(Rate.of(10, Duration.ofSeconds(1)), CLOCK);
+        assertThat(unit.quota("request")).hasValueSatisfying(quota -> {
+            assertThat(quota.limit()).isEqualTo(10);
+            assertThat(quota.remaining()).isEqualTo(10);
+            assertThat(quota.reset()).isEqualTo(Duration.ZERO);
+        });
+
+        LongStream.range(0, 4).forEach(ignored -> assertThat(unit.accept("request")).isEmpty());
+        assertThat(unit.quota("request")).hasValueSatisfying(quota -> {
+            assertThat(quota.remaining()).isEqualTo(6);
+            assertThat(quota.reset()).isEqualTo(Duration.ofMillis(400));
+        });
+        assertThat(unit.quota("request")).hasValueSatisfying(quota -> assertThat(quota.remaining()).isEqualTo(6));
+    }
+
+    @Test
+    public void shouldNotReservePermitsItCanNotRelease() {
+        final var unit = new TokenBucketRateLimiter<String>(Rate.of(1, Duration.ofSeconds(1)), CLOCK);
+
+        assertThatThrownBy(() -> unit.reserve("request", 1L)).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(unit.accept("request")).isEmpty();
+    }
+
+}
@@ -20,4 +20,12 @@ public class DefaultCleanupThreadFactoryTest {
         assertThat(thread2.getName()).isEqualTo("airtasker-ratelimiter-cleanup-thread-2");
     }
 
+    @Test
+    public void newThreadShouldFollowProvidedTemplate() {
+        final var unit = new DefaultCleanupThreadFactory("some-thread-%d");
+        final var thread = unit.newThread(() -> {});
+        assertThat(thread.getName()).isEqualTo("some-thread-1");
+        assertThat(thread.isDaemon()).isTrue();
+    }
+
 }
@@ -0,0 +1,43 @@
+package com.airtasker.ratelimiter.core.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FrequencySketchTest {
+
+    @Test
+    public void shouldCountOccurrences() {
+        final var unit = new FrequencySketch(1024);
+        assertThat(unit.frequency("key".hashCode())).isZero();
+
+        IntStream.range(0, 5).forEach(ignored -> unit.increment("key".hashCode()));
+        assertThat(unit.frequency("key".hashCode())).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldSaturateAt15() {
+        final var unit = new FrequencySketch(1024);
+        IntStream.range(0, 100).forEach(ignored -> unit.increment("key".hashCode()));
+        assertThat(unit.frequency("key".hashCode())).isEqualTo(15);
+    }
+
+    @Test
+    public void shouldHalveFrequenciesAfterSampleSize() {
+        final var unit = new FrequencySketch(16);
+        IntStream.range(0, 8).forEach(ignored -> unit.increment("key".hashCode()));
+
+        IntStream.range(0, 160 - 8).forEach(i -> unit.increment(("other-" + i).hashCode()));
+        assertThat(unit.frequency("key".hashCode())).isLessThan(8);
+    }
+
+    @Test
+    public void shouldFailWithoutMaximumSize() {
+        assertThatThrownBy(() -> new FrequencySketch(0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.airtasker.ratelimiter.core.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HashedTimingWheelTest {
+
+    private static final long TICK = 10L;
+
+    @Test
+    public void shouldOnlyExpireElementsWhoseDeadlineTickStarted() {
+        final var unit = new HashedTimingWheel<String>(8, TICK, 0L);
+        unit.schedule("first", 15L);
+        unit.schedule("second", 35L);
+
+        final var expired = new ArrayList<String>();
+        unit.expire(20L, expired::add);
+        assertThat(expired).containsExactly("first");
+
+        unit.expire(29L, expired::add);
+        assertThat(expired).containsExactly("first");
+
+        unit.expire(30L, expired::add);
+        assertThat(expired).containsExactly("first", "second");
+    }
+
+    @Test
+    public void shouldKeepElementsOfFutureRounds() {
+        final var unit = new HashedTimingWheel<String>(4, TICK, 0L);
+        unit.schedule("next-round", 45L);
+
+        final var expired = new ArrayList<String>();
+        unit.expire(39L, expired::add);
+        assertThat(expired).isEmpty();
+
+        unit.expire(40L, expired::add);
+        assertThat(expired).containsExactly("next-round");
+    }
+
+    @Test
+    public void shouldExpireEverythingAfterSeveralRounds() {
+        final var unit = new HashedTimingWheel<Integer>(4, TICK, 0L);
+        IntStream.range(0, 100).forEach(i -> unit.schedule(i, i * TICK));
+
+        final var expired = new ArrayList<Integer>();
+        unit.expire(100 * TICK, expired::add);
+        assertThat(expired).containsExactlyInAnyOrderElementsOf(() -> IntStream.range(0, 100).iterator());
+    }
+
+    @Test
+    public void shouldExpirePastDeadlinesInNextCall() {
+        final var unit = new HashedTimingWheel<String>(8, TICK, 100L);
+        unit.schedule("past", 0L);
+
+        final var expired = new ArrayList<String>();
+        unit.expire(100L, expired::add);
+        assertThat(expired).containsExactly("past");
+    }
+
+    @Test
+    public void shouldAllowToScheduleAgainFromConsumer() {
+        final var unit = new HashedTimingWheel<String>(8, TICK, 0L);
+        unit.schedule("element", 5L);
+
+        final var expired = new ArrayList<String>();
+        unit.expire(10L, element -> {
+            expired.add(element);
+            unit.schedule(element, 10L);
+        });
+        assertThat(expired).containsExactly("element");
+
+        unit.expire(20L, expired::add);
+        assertThat(expired).containsExactly("element", "element");
+    }
+
+    @Test
+    public void shouldNotExpireCancelledElements() {
+        final var unit = new HashedTimingWheel<String>(8, TICK, 0L);
+        unit.schedule("kept", 15L);
+        unit.schedule("cancelled", 15L).cancel();
+
+        final var expired = new ArrayList<String>();
+        unit.expire(20L, expired::add);
+        assertThat(expired).containsExactly("kept");
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.airtasker.ratelimiter.core.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HistogramTest {
+
+    @Test
+    public void shouldCountValuesInPowerOfTwoBuckets() {
+        final var unit = new Histogram();
+        unit.record(0L);
+        unit.record(1L);
+        unit.record(5L);
+        unit.record(7L);
+        unit.record(8L);
+
+        assertThat(unit.count()).isEqualTo(5L);
+        assertThat(unit.bucketCount(0)).isEqualTo(1L);
+        assertThat(unit.bucketCount(1)).isEqualTo(1L);
+        assertThat(unit.bucketCount(3)).isEqualTo(2L);
+        assertThat(unit.bucketCount(4)).isEqualTo(1L);
+        assertThat(Histogram.upperBound(3)).isEqualTo(7L);
+    }
+
+    @Test
+    public void shouldRecordExtremeValues() {
+        final var unit = new Histogram();
+        unit.record(-1L);
+        unit.record(Long.MAX_VALUE);
+
+        assertThat(unit.bucketCount(0)).isEqualTo(1L);
+        assertThat(unit.bucketCount(Histogram.BUCKETS - 1)).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldEstimatePercentilesWithinTwice() {
+        final var unit = new Histogram();
+        LongStream.rangeClosed(1, 1000).forEach(unit::record);
+
+        assertThat(unit.valueAtPercentile(50)).isBetween(500L, 1000L);
+        assertThat(unit.valueAtPercentile(100)).isEqualTo(1023L);
+    }
+
+    @Test
+    public void shouldReturnZeroWithoutValues() {
+        assertThat(new Histogram().valueAtPercentile(99)).isZero();
+    }
+
+    @Test
+    public void shouldFailWithInvalidPercentile() {
+        assertThatThrownBy(() -> new Histogram().valueAtPercentile(101))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
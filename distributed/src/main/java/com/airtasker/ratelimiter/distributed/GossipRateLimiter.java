@@ -0,0 +1,391 @@
+package com.airtasker.ratelimiter.distributed;
+
+import com.airtasker.ratelimiter.core.Rate;
+import com.airtasker.ratelimiter.core.RateLimiter;
+import com.airtasker.ratelimiter.core.Ticker;
+import com.airtasker.ratelimiter.core.internal.DefaultCleanupThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Rate Limiter sharing the limit of every key among several nodes by gossiping, without any central service
+ *
+ * Every node keeps, for every key, a G-counter CRDT for the current window and another for the previous one,
+ * which is a count per node where every node only increments its own count. The decisions are taken locally
+ * against the merged estimate, weighting the previous window like {@link
+ * com.airtasker.ratelimiter.core.SlidingWindowCounterRateLimiter} does with one sub window.
+ *
+ * On every gossip interval the node sends to its peers, by UDP, its own counts of the keys that changed since
+ * the last interval. The counts are absolute, so merging them is taking the maximum, which makes the merge
+ * idempotent and tolerant to duplicated or reordered datagrams.
+ *
+ * So caveats:
+ *
+ * * It is an approximation, every node ignores the requests accepted by the others since their last gossip, so
+ *   the cluster can accept up to the requests accepted by all the other nodes in one gossip interval (plus the
+ *   network delay) more than the rate. A shorter interval means a tighter bound but more traffic
+ * * A lost datagram is only repaired when the key changes again in the same node
+ * * The windows are aligned to the ticker, so the nodes need synchronized clocks, which is why the wall clock is
+ *   used by default
+ *
+ * @param <R> The type of requests
+ */
+public class GossipRateLimiter<R> implements RateLimiter<R>, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GossipRateLimiter.class);
+
+    /**
+     * Size after which a datagram is sent and a new one is started
+     */
+    static final int MAX_DATAGRAM = 1200;
+    private static final int MAX_PACKET = 65507;
+
+    private final Rate rate;
+    private final Function<R, String> keyProvider;
+    private final Ticker ticker;
+    private final long windowNanos;
+    private final long nodeId = ThreadLocalRandom.current().nextLong();
+    private final DatagramSocket socket;
+    private final List<InetSocketAddress> peers = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<String, Counters> counters = new ConcurrentHashMap<>();
+    private final ScheduledFuture<?> gossipTask;
+
+    /**
+     * Build a rate limiter taking the time from the wall clock
+     *
+     * See {@link #GossipRateLimiter(Rate, Function, InetSocketAddress, Duration, Ticker, ScheduledExecutorService)}.
+     */
+    public GossipRateLimiter(Rate rate, Function<R, String> keyProvider, InetSocketAddress bindAddress,
+                             Duration gossipInterval, ScheduledExecutorService executor) throws SocketException {
+        this(rate, keyProvider, bindAddress, gossipInterval, Ticker.fromClock(Clock.systemUTC()), executor);
+    }
+
+    /**
+     * @param rate The rate limit of every key, shared by all the nodes
+     * @param keyProvider A function to extract the key from the request, sent to the peers
+     * @param bindAddress The address to receive the counts of the peers, with port 0 to use any free port
+     * @param gossipInterval Time between two rounds of gossip, which bounds how much the cluster over admits
+     * @param ticker The ticker used to obtain current time, it should be synchronized among the nodes
+     * @param executor The executor where the gossip runs
+     * @throws SocketException In case the address can not be bound
+     */
+    public GossipRateLimiter(Rate rate, Function<R, String> keyProvider, InetSocketAddress bindAddress,
+                             Duration gossipInterval, Ticker ticker, ScheduledExecutorService executor)
+            throws SocketException {
+        if (gossipInterval.isNegative() || gossipInterval.isZero()) {
+            throw new IllegalArgumentException("Gossip interval should be positive");
+        }
+        this.rate = rate;
+        this.keyProvider = keyProvider;
+        this.ticker = ticker;
+        this.windowNanos = rate.window().toNanos();
+        this.socket = new DatagramSocket(bindAddress);
+        new DefaultCleanupThreadFactory("airtasker-gossip-receiver-%d").newThread(this::receive).start();
+        this.gossipTask = executor.scheduleAtFixedRate(this::gossip, gossipInterval.toNanos(),
+                gossipInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return The address where this node receives the counts of its peers
+     */
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) socket.getLocalSocketAddress();
+    }
+
+    /**
+     * @param peer The address of another node, where the counts of this node are sent
+     */
+    public void addPeer(InetSocketAddress peer) {
+        peers.add(peer);
+    }
+
+    @Override
+    public Optional<Duration> accept(R request) {
+        return accept(request, 1L);
+    }
+
+    @Override
+    public long tryAccept(R request, long permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("Permits should be at least 1, but were " + permits);
+        }
+        final var key = keyProvider.apply(request);
+        final var now = ticker.read();
+        final var window = Math.floorDiv(now, windowNanos);
+        final var offset = Math.floorMod(now, windowNanos);
+        while (true) {
+            final var state = counters.computeIfAbsent(key, ignored -> new Counters());
+            synchronized (state) {
+                if (!state.removed) {
+                    state.roll(window);
+                    return acceptLocked(state, permits, offset);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        final var window = Math.floorDiv(ticker.read(), windowNanos);
+        return counters.values().stream().allMatch(state -> {
+            synchronized (state) {
+                state.roll(window);
+                return state.isEmpty();
+            }
+        });
+    }
+
+    /**
+     * @param key The key of the requests
+     * @return Number of permits accepted by all the nodes in the current window, as known by this node
+     */
+    long countOf(String key) {
+        final var state = counters.get(key);
+        if (state == null) {
+            return 0L;
+        }
+        final var window = Math.floorDiv(ticker.read(), windowNanos);
+        synchronized (state) {
+            state.roll(window);
+            return state.currentTotal;
+        }
+    }
+
+    /**
+     * Stops gossiping and receiving the counts of the peers
+     */
+    @Override
+    public void close() {
+        gossipTask.cancel(false);
+        socket.close();
+    }
+
+    private long acceptLocked(Counters state, long permits, long offset) {
+        final var previousWeight = (double) (windowNanos - offset) / windowNanos;
+        final var estimate = state.previousTotal * previousWeight + state.currentTotal;
+        final var excess = estimate + permits - rate.requests();
+        if (excess > 0) {
+            return timeToWait(state, offset, excess);
+        }
+        state.current.merge(nodeId, permits, Long::sum);
+        state.currentTotal += permits;
+        state.dirty = true;
+        return 0;
+    }
+
+    /**
+     * Waits for the previous window to slide out until the estimation has decreased in the provided excess, and
+     * then for the current one
+     */
+    private long timeToWait(Counters state, long offset, double excess) {
+        final var available = (double) (windowNanos - offset);
+        final var previousContribution = state.previousTotal * available / windowNanos;
+        if (state.previousTotal > 0 && previousContribution >= excess) {
+            return Math.max(1L, (long) Math.ceil(excess * windowNanos / state.previousTotal));
+        }
+        final var remaining = excess - previousContribution;
+        if (state.currentTotal > 0 && state.currentTotal >= remaining) {
+            return Math.max(1L, (long) Math.ceil(available + remaining * windowNanos / state.currentTotal));
+        }
+        return windowNanos;
+    }
+
+    private void gossip() {
+        final var window = Math.floorDiv(ticker.read(), windowNanos);
+        final var writer = new DatagramWriter();
+        for (final var entry : counters.entrySet()) {
+            final var state = entry.getValue();
+            final long stateWindow;
+            final long currentCount;
+            final long previousCount;
+            synchronized (state) {
+                state.roll(window);
+                if (!state.dirty) {
+                    if (state.isEmpty()) {
+                        state.removed = true;
+                        counters.remove(entry.getKey(), state);
+                    }
+                    continue;
+                }
+                state.dirty = false;
+                stateWindow = state.window;
+                currentCount = state.current.getOrDefault(nodeId, 0L);
+                previousCount = state.previous.getOrDefault(nodeId, 0L);
+            }
+            writer.write(entry.getKey(), stateWindow, currentCount);
+            if (previousCount > 0) {
+                writer.write(entry.getKey(), stateWindow - 1, previousCount);
+            }
+        }
+        writer.flush();
+    }
+
+    private void receive() {
+        final var buffer = new byte[MAX_PACKET];
+        while (!socket.isClosed()) {
+            try {
+                final var packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+                merge(new DataInputStream(new ByteArrayInputStream(packet.getData(), packet.getOffset(),
+                        packet.getLength())));
+            } catch (IOException ex) {
+                if (!socket.isClosed()) {
+                    LOG.warn("Error receiving counts from peers", ex);
+                }
+            }
+        }
+    }
+
+    private void merge(DataInputStream in) throws IOException {
+        final var node = in.readLong();
+        if (node == nodeId) {
+            return;
+        }
+        final var window = Math.floorDiv(ticker.read(), windowNanos);
+        while (in.available() > 0) {
+            final var key = in.readUTF();
+            final var countWindow = in.readLong();
+            final var count = in.readLong();
+            var merged = false;
+            while (!merged) {
+                final var state = counters.computeIfAbsent(key, ignored -> new Counters());
+                synchronized (state) {
+                    if (!state.removed) {
+                        state.roll(window);
+                        state.merge(node, countWindow, count);
+                        merged = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private void send(byte[] data, int length) {
+        for (final var peer : peers) {
+            try {
+                socket.send(new DatagramPacket(data, length, peer));
+            } catch (IOException ex) {
+                LOG.warn("Error sending counts to {}", peer, ex);
+            }
+        }
+    }
+
+    /**
+     * Writes the counts in datagrams of at most around {@link #MAX_DATAGRAM} bytes, every one starting with the id
+     * of the node and followed by entries of {@code UTF key, long window, long count}
+     */
+    private final class DatagramWriter {
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(MAX_DATAGRAM * 2);
+        private final DataOutputStream out = new DataOutputStream(buffer);
+        private boolean hasEntries = false;
+
+        private void write(String key, long window, long count) {
+            try {
+                if (!hasEntries) {
+                    out.writeLong(nodeId);
+                    hasEntries = true;
+                }
+                out.writeUTF(key);
+                out.writeLong(window);
+                out.writeLong(count);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Writing to memory should not fail", ex);
+            }
+            if (buffer.size() >= MAX_DATAGRAM) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (hasEntries) {
+                send(buffer.toByteArray(), buffer.size());
+                buffer.reset();
+                hasEntries = false;
+            }
+        }
+    }
+
+    /**
+     * G-counters of a key for the current and the previous window, guarded by the lock of the instance
+     */
+    private static final class Counters {
+
+        private long window = Long.MIN_VALUE;
+        private Map<Long, Long> current = new HashMap<>();
+        private Map<Long, Long> previous = new HashMap<>();
+        private long currentTotal = 0L;
+        private long previousTotal = 0L;
+        private boolean dirty = false;
+        private boolean removed = false;
+
+        private void roll(long now) {
+            if (now <= window) {
+                return;
+            }
+            final var old = previous;
+            if (now == window + 1) {
+                previous = current;
+                previousTotal = currentTotal;
+                current = old;
+            } else {
+                previous.clear();
+                previousTotal = 0L;
+            }
+            current.clear();
+            currentTotal = 0L;
+            window = now;
+        }
+
+        /**
+         * Counts of windows other than the current and the previous ones are ignored
+         */
+        private void merge(long node, long countWindow, long count) {
+            if (countWindow == window) {
+                currentTotal += max(current, node, count);
+            } else if (countWindow == window - 1) {
+                previousTotal += max(previous, node, count);
+            }
+        }
+
+        private boolean isEmpty() {
+            return currentTotal == 0 && previousTotal == 0;
+        }
+
+        /**
+         * @return The increment of the count of the node
+         */
+        private static long max(Map<Long, Long> counts, long node, long count) {
+            final long old = counts.getOrDefault(node, 0L);
+            if (count <= old) {
+                return 0L;
+            }
+            counts.put(node, count);
+            return count - old;
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.airtasker.ratelimiter.distributed;
+
+/**
+ * Permits granted by the {@link QuotaServer} for a key
+ */
+public final class Grant {
+
+    private final long granted;
+    private final long waitNanos;
+
+    public Grant(long granted, long waitNanos) {
+        this.granted = granted;
+        this.waitNanos = waitNanos;
+    }
+
+    /**
+     * @return Number of permits granted, it can be less than the requested ones, even 0
+     */
+    public long granted() {
+        return granted;
+    }
+
+    /**
+     * @return When no permit is granted, nanoseconds that at least need to elapse until one can be granted,
+     * 0 otherwise
+     */
+    public long waitNanos() {
+        return waitNanos;
+    }
+
+}
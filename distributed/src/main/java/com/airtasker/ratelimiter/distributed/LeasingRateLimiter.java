@@ -0,0 +1,191 @@
+package com.airtasker.ratelimiter.distributed;
+
+import com.airtasker.ratelimiter.core.RateLimiter;
+import com.airtasker.ratelimiter.core.Ticker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Rate Limiter sharing the limit of every key among several nodes through a {@link QuotaServer}
+ *
+ * Instead of asking the server for every request, the node leases blocks of {@code leaseSize} permits for every
+ * key and consumes them locally with a compare and set, so the network is only touched when a lease runs out.
+ * When the permits left go below half of the lease, a new lease is requested asynchronously, so under a steady
+ * load the requests do not wait for the server. The permits of a lease expire after {@code leaseDuration} since
+ * they were granted, so a node does not hoard permits it does not use.
+ *
+ * So caveats:
+ *
+ * * The server counts the permits when they are leased, not when they are used, so in any window the nodes can
+ *   accept up to {@code leaseSize} permits per node more than the rate
+ * * In case the server can not be reached, the requests without leased permits are rejected
+ * * Checking {@link #isEmpty()} removes the expired leases, no other cleanup is done
+ *
+ * @param <R> The type of requests
+ */
+public class LeasingRateLimiter<R> implements RateLimiter<R> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LeasingRateLimiter.class);
+
+    /**
+     * Wait when the server can not be reached, or it grants less permits than the ones of the request
+     */
+    static final long RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Function<R, String> keyProvider;
+    private final QuotaClient client;
+    private final long leaseSize;
+    private final long lowWatermark;
+    private final long leaseNanos;
+    private final Ticker ticker;
+    private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+
+    public LeasingRateLimiter(Function<R, String> keyProvider, QuotaClient client, long leaseSize,
+                              Duration leaseDuration) {
+        this(keyProvider, client, leaseSize, leaseDuration, Ticker.systemTicker());
+    }
+
+    /**
+     * @param keyProvider A function to extract the key from the request, sent to the server
+     * @param client The client of the quota server
+     * @param leaseSize Number of permits requested on every lease
+     * @param leaseDuration Time the permits of a lease can be used since they were granted
+     * @param ticker The ticker used to obtain current time
+     */
+    public LeasingRateLimiter(Function<R, String> keyProvider, QuotaClient client, long leaseSize,
+                              Duration leaseDuration, Ticker ticker) {
+        if (leaseSize < 1) {
+            throw new IllegalArgumentException("Lease size should be at least 1");
+        }
+        if (leaseDuration.isNegative() || leaseDuration.isZero()) {
+            throw new IllegalArgumentException("Lease duration should be positive");
+        }
+        this.keyProvider = keyProvider;
+        this.client = client;
+        this.leaseSize = leaseSize;
+        this.lowWatermark = leaseSize / 2;
+        this.leaseNanos = leaseDuration.toNanos();
+        this.ticker = ticker;
+    }
+
+    @Override
+    public Optional<Duration> accept(R request) {
+        return accept(request, 1L);
+    }
+
+    @Override
+    public long tryAccept(R request, long permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("Permits should be at least 1, but were " + permits);
+        }
+        final var key = keyProvider.apply(request);
+        final var lease = leases.computeIfAbsent(key, ignored -> new Lease());
+        final var now = ticker.read();
+        if (lease.take(permits, now)) {
+            renewIfLow(key, lease, now);
+            return 0;
+        }
+        return fetch(key, lease, permits, now);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        final var now = ticker.read();
+        leases.values().removeIf(lease -> lease.isExpired(now) && !lease.renewing.get());
+        return leases.isEmpty();
+    }
+
+    /**
+     * Leases permits synchronously, only one thread per key does it while the others wait for its result
+     */
+    private long fetch(String key, Lease lease, long permits, long now) {
+        synchronized (lease) {
+            if (lease.take(permits, now)) {
+                return 0;
+            }
+            if (now < lease.retryAt) {
+                return lease.retryAt - now;
+            }
+
+            final Grant grant;
+            try {
+                grant = client.lease(key, Math.max(leaseSize, permits)).join();
+            } catch (CompletionException | CancellationException ex) {
+                LOG.warn("Could not lease permits for key {}", key, ex);
+                lease.retryAt = now + RETRY_NANOS;
+                return RETRY_NANOS;
+            }
+
+            final var after = ticker.read();
+            lease.add(grant, after, leaseNanos);
+            if (grant.granted() == 0) {
+                return Math.max(1, grant.waitNanos());
+            }
+            return lease.take(permits, after) ? 0 : RETRY_NANOS;
+        }
+    }
+
+    private void renewIfLow(String key, Lease lease, long now) {
+        if (lease.permits.get() > lowWatermark || now < lease.retryAt || !lease.renewing.compareAndSet(false, true)) {
+            return;
+        }
+        client.lease(key, leaseSize).whenComplete((grant, error) -> {
+            if (grant != null) {
+                lease.add(grant, ticker.read(), leaseNanos);
+            } else {
+                LOG.debug("Could not renew lease for key {}", key, error);
+            }
+            lease.renewing.set(false);
+        });
+    }
+
+    private static final class Lease {
+
+        private final AtomicLong permits = new AtomicLong(0);
+        private final AtomicBoolean renewing = new AtomicBoolean(false);
+        private volatile long expiresAt = Long.MIN_VALUE;
+        private volatile long retryAt = Long.MIN_VALUE;
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+
+        private boolean take(long requested, long now) {
+            if (isExpired(now)) {
+                return false;
+            }
+            var available = permits.get();
+            while (available >= requested) {
+                if (permits.compareAndSet(available, available - requested)) {
+                    return true;
+                }
+                available = permits.get();
+            }
+            return false;
+        }
+
+        private void add(Grant grant, long now, long leaseNanos) {
+            if (grant.granted() == 0) {
+                retryAt = now + grant.waitNanos();
+                return;
+            }
+            if (isExpired(now)) {
+                permits.set(grant.granted());
+            } else {
+                permits.addAndGet(grant.granted());
+            }
+            expiresAt = now + leaseNanos;
+        }
+    }
+
+}
@@ -0,0 +1,218 @@
+package com.airtasker.ratelimiter.distributed;
+
+import com.airtasker.ratelimiter.core.internal.DefaultCleanupThreadFactory;
+import com.airtasker.ratelimiter.distributed.QuotaProtocol.LeaseRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client of a {@link QuotaServer}, leasing permits for keys
+ *
+ * All the lease requests are sent through a single connection, opened lazily and opened again after any error.
+ * The requests are queued and written by a single thread, so the ones queued while it is writing are batched in
+ * the same frame. The responses are read by another thread, which completes the futures of the leases.
+ *
+ * So caveats:
+ *
+ * * When the connection fails, all the leases waiting for a response fail, even the ones not sent yet
+ */
+public class QuotaClient implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuotaClient.class);
+
+    private final InetSocketAddress address;
+    private final long timeoutNanos;
+    private final AtomicLong ids = new AtomicLong(0);
+    private final Map<Long, CompletableFuture<Grant>> pending = new ConcurrentHashMap<>();
+    private final Queue<LeaseRequest> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final ExecutorService executor =
+            Executors.newCachedThreadPool(new DefaultCleanupThreadFactory("airtasker-quota-client-%d"));
+
+    private Connection connection;
+    private volatile boolean closed = false;
+
+    /**
+     * @param address Address of the quota server
+     * @param timeout Maximum time to connect to the server and to receive the response of every lease
+     */
+    public QuotaClient(InetSocketAddress address, Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Timeout should be positive");
+        }
+        this.address = address;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    /**
+     * Requests permits for the key to the server
+     *
+     * @param key The key to lease permits for
+     * @param permits The permits requested, at least 1
+     * @return A future completed with the permits granted, or exceptionally in case of error or timeout
+     */
+    public CompletableFuture<Grant> lease(String key, long permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("Permits should be at least 1, but were " + permits);
+        }
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Quota client is closed"));
+        }
+
+        final var id = ids.incrementAndGet();
+        final var future = new CompletableFuture<Grant>();
+        pending.put(id, future);
+        future.orTimeout(timeoutNanos, TimeUnit.NANOSECONDS).whenComplete((grant, error) -> pending.remove(id));
+
+        queue.add(new LeaseRequest(id, key, permits));
+        if (flushScheduled.compareAndSet(false, true)) {
+            executor.execute(this::flush);
+        }
+        return future;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        disconnect(null, new IllegalStateException("Quota client is closed"));
+        executor.shutdownNow();
+    }
+
+    private void flush() {
+        do {
+            var batch = drain();
+            while (!batch.isEmpty()) {
+                send(batch);
+                batch = drain();
+            }
+            flushScheduled.set(false);
+        } while (!queue.isEmpty() && flushScheduled.compareAndSet(false, true));
+    }
+
+    private List<LeaseRequest> drain() {
+        final var batch = new ArrayList<LeaseRequest>();
+        LeaseRequest request;
+        while (batch.size() < QuotaProtocol.MAX_BATCH && (request = queue.poll()) != null) {
+            batch.add(request);
+        }
+        return batch;
+    }
+
+    private void send(List<LeaseRequest> batch) {
+        Connection current = null;
+        try {
+            current = connection();
+            QuotaProtocol.writeRequests(current.out, batch);
+        } catch (IOException ex) {
+            LOG.warn("Error sending leases to {}", address, ex);
+            disconnect(current, ex);
+            batch.forEach(request -> fail(request.id, ex));
+        }
+    }
+
+    private synchronized Connection connection() throws IOException {
+        if (closed) {
+            throw new IOException("Quota client is closed");
+        }
+        if (connection == null) {
+            final var socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.connect(address, (int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeoutNanos)));
+                connection = new Connection(socket);
+            } catch (IOException ex) {
+                socket.close();
+                throw ex;
+            }
+            final var opened = connection;
+            executor.execute(() -> read(opened));
+        }
+        return connection;
+    }
+
+    /**
+     * Closes the connection, when it is still the current one or null is provided, and fails all the pending leases
+     */
+    private synchronized void disconnect(Connection failed, Exception cause) {
+        if (failed != null && failed != connection) {
+            return;
+        }
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+        pending.keySet().forEach(id -> fail(id, cause));
+    }
+
+    private void read(Connection current) {
+        try {
+            while (true) {
+                final var count = QuotaProtocol.readCount(current.in);
+                for (var i = 0; i < count; i++) {
+                    final var id = current.in.readLong();
+                    final var granted = current.in.readLong();
+                    final var waitNanos = current.in.readLong();
+                    final var future = pending.remove(id);
+                    if (future != null) {
+                        future.complete(new Grant(granted, waitNanos));
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            if (!closed) {
+                LOG.warn("Error reading grants from {}", address, ex);
+            }
+            disconnect(current, ex);
+        }
+    }
+
+    private void fail(long id, Exception cause) {
+        final var future = pending.remove(id);
+        if (future != null) {
+            future.completeExceptionally(cause);
+        }
+    }
+
+    private static final class Connection {
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                LOG.debug("Error closing connection", ex);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.airtasker.ratelimiter.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Binary protocol between {@link QuotaClient} and {@link QuotaServer}
+ *
+ * Both directions exchange frames of entries, so the client can batch lease requests of several keys in a single
+ * write. Every request frame gets a response frame with the same number of entries, matched by their ids:
+ *
+ * * Request frame: {@code int count}, then for every entry {@code long id, UTF key, long permits}
+ * * Response frame: {@code int count}, then for every entry {@code long id, long granted, long waitNanos}
+ */
+final class QuotaProtocol {
+
+    /**
+     * Maximum number of entries of a frame
+     */
+    static final int MAX_BATCH = 1024;
+
+    private QuotaProtocol() { /* Not to be instantiated */ }
+
+    static final class LeaseRequest {
+
+        final long id;
+        final String key;
+        final long permits;
+
+        LeaseRequest(long id, String key, long permits) {
+            this.id = id;
+            this.key = key;
+            this.permits = permits;
+        }
+    }
+
+    static void writeRequests(DataOutputStream out, List<LeaseRequest> requests) throws IOException {
+        out.writeInt(requests.size());
+        for (final var request : requests) {
+            out.writeLong(request.id);
+            out.writeUTF(request.key);
+            out.writeLong(request.permits);
+        }
+        out.flush();
+    }
+
+    static LeaseRequest[] readRequests(DataInputStream in) throws IOException {
+        final var requests = new LeaseRequest[readCount(in)];
+        for (var i = 0; i < requests.length; i++) {
+            final var id = in.readLong();
+            final var key = in.readUTF();
+            final var permits = in.readLong();
+            if (permits < 1) {
+                throw new IOException("Permits should be at least 1, but were " + permits);
+            }
+            requests[i] = new LeaseRequest(id, key, permits);
+        }
+        return requests;
+    }
+
+    static int readCount(DataInputStream in) throws IOException {
+        final var count = in.readInt();
+        if (count < 0 || count > MAX_BATCH) {
+            throw new IOException("Invalid number of entries in frame: " + count);
+        }
+        return count;
+    }
+
+}
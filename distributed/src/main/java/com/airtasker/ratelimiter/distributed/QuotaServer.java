@@ -0,0 +1,187 @@
+package com.airtasker.ratelimiter.distributed;
+
+import com.airtasker.ratelimiter.core.AirtaskerRateLimiters;
+import com.airtasker.ratelimiter.core.Rate;
+import com.airtasker.ratelimiter.core.RateLimiter;
+import com.airtasker.ratelimiter.core.internal.DefaultCleanupThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Standalone TCP server owning the authoritative counts of a rate limit shared by several nodes
+ *
+ * The nodes do not ask for every request, they lease blocks of permits for a key with {@link QuotaClient}, which
+ * are consumed locally by {@link LeasingRateLimiter}. The server grants as many of the requested permits as its
+ * rate limiter accepts, halving them until they fit, so a lease can be partially granted when the key is close
+ * to its limit.
+ *
+ * Every connection is served by its own thread, reading a frame of lease requests and writing the frame of
+ * grants, see {@link QuotaProtocol}.
+ *
+ * So caveats:
+ *
+ * * The counts are kept only in memory, restarting the server resets all the limits
+ * * The server is a single point of failure, the nodes reject the requests they can not lease permits for
+ */
+public class QuotaServer implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuotaServer.class);
+
+    private final RateLimiter<String> quotas;
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor =
+            Executors.newCachedThreadPool(new DefaultCleanupThreadFactory("airtasker-quota-server-%d"));
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a server listening in all the interfaces, limiting every key with a GCRA rate limiter
+     *
+     * @param rate The rate limit of every key, shared by all the nodes
+     * @param port The port to listen, 0 to use any free port
+     * @throws IOException In case the port can not be bound
+     */
+    public QuotaServer(Rate rate, int port) throws IOException {
+        this(AirtaskerRateLimiters.gcraKeyBasedRateLimiter(rate, Function.identity()), new InetSocketAddress(port));
+    }
+
+    /**
+     * @param quotas The rate limiter with the authoritative counts, it must support requests of several permits
+     * @param address The address to listen
+     * @throws IOException In case the address can not be bound
+     */
+    public QuotaServer(RateLimiter<String> quotas, InetSocketAddress address) throws IOException {
+        this.quotas = quotas;
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(address);
+        executor.execute(this::acceptConnections);
+    }
+
+    /**
+     * @return The port the server is listening
+     */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Grants up to the provided permits for the key
+     *
+     * @param key The key to lease permits for
+     * @param permits The permits requested, at least 1
+     * @return The permits granted
+     */
+    public Grant grant(String key, long permits) {
+        var wait = quotas.tryAccept(key, permits);
+        if (wait == 0) {
+            return new Grant(permits, 0);
+        }
+        // A rejected request does not change the counts, so the permits are halved until they fit
+        for (var attempt = permits / 2; attempt > 0; attempt /= 2) {
+            wait = quotas.tryAccept(key, attempt);
+            if (wait == 0) {
+                return new Grant(attempt, 0);
+            }
+        }
+        return new Grant(0, wait);
+    }
+
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException ex) {
+            LOG.warn("Error closing quota server", ex);
+        }
+        connections.forEach(QuotaServer::closeQuietly);
+        executor.shutdownNow();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final var socket = serverSocket.accept();
+                connections.add(socket);
+                executor.execute(() -> serve(socket));
+            } catch (IOException ex) {
+                if (!serverSocket.isClosed()) {
+                    LOG.warn("Error accepting connection", ex);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            final var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            while (true) {
+                final var requests = QuotaProtocol.readRequests(in);
+                out.writeInt(requests.length);
+                for (final var request : requests) {
+                    final var grant = grant(request.key, request.permits);
+                    out.writeLong(request.id);
+                    out.writeLong(grant.granted());
+                    out.writeLong(grant.waitNanos());
+                }
+                out.flush();
+            }
+        } catch (EOFException ex) {
+            LOG.debug("Connection closed by {}", socket.getRemoteSocketAddress());
+        } catch (IOException ex) {
+            if (!serverSocket.isClosed()) {
+                LOG.warn("Error serving connection {}", socket.getRemoteSocketAddress(), ex);
+            }
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            LOG.debug("Error closing connection", ex);
+        }
+    }
+
+    /**
+     * Runs a server until the process is stopped
+     *
+     * @param args The port, the requests and the window in milliseconds of the rate of every key
+     * @throws Exception In case the server can not be started
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 3) {
+            System.err.println("Usage: QuotaServer <port> <requests> <windowMillis>");
+            System.exit(1);
+        }
+        final var rate = Rate.of(Long.parseLong(args[1]), Duration.ofMillis(Long.parseLong(args[2])));
+        final var server = new QuotaServer(rate, Integer.parseInt(args[0]));
+        final var stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            stopped.countDown();
+        }));
+        LOG.info("Quota server listening in port {}", server.port());
+        stopped.await();
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.airtasker.ratelimiter.distributed;
+
+import com.airtasker.ratelimiter.core.ManualTicker;
+import com.airtasker.ratelimiter.core.Rate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class GossipRateLimiterTest {
+
+    private static final Rate RATE = Rate.of(30, Duration.ofHours(1));
+
+    private final ManualTicker ticker = new ManualTicker();
+    private final List<GossipRateLimiter<String>> nodes = new ArrayList<>();
+    private ScheduledExecutorService executor;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        for (var i = 0; i < 3; i++) {
+            nodes.add(new GossipRateLimiter<>(RATE, request -> request, new InetSocketAddress("localhost", 0),
+                    Duration.ofMillis(10), ticker, executor));
+        }
+        for (final var node : nodes) {
+            for (final var peer : nodes) {
+                if (peer != node) {
+                    node.addPeer(peer.localAddress());
+                }
+            }
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        nodes.forEach(GossipRateLimiter::close);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldShareTheLimitAmongNodes() {
+        IntStream.range(0, 30).forEach(i -> assertThat(nodes.get(0).accept("key")).isEmpty());
+
+        await().until(() -> nodes.get(1).countOf("key") == 30 && nodes.get(2).countOf("key") == 30);
+
+        assertThat(nodes.get(0).accept("key")).isPresent();
+        assertThat(nodes.get(1).accept("key")).isPresent();
+        assertThat(nodes.get(2).accept("key")).isPresent();
+        assertThat(nodes.get(1).accept("other")).isEmpty();
+    }
+
+    @Test
+    public void shouldMergeCountsOfAllTheNodes() {
+        IntStream.range(0, 10).forEach(i -> assertThat(nodes.get(0).accept("key")).isEmpty());
+        IntStream.range(0, 10).forEach(i -> assertThat(nodes.get(1).accept("key")).isEmpty());
+        IntStream.range(0, 5).forEach(i -> assertThat(nodes.get(2).accept("key")).isEmpty());
+
+        await().until(() -> nodes.get(2).countOf("key") == 25);
+
+        assertThat(nodes.get(2).tryAccept("key", 6)).isPositive();
+        assertThat(nodes.get(2).tryAccept("key", 5)).isZero();
+    }
+
+    @Test
+    public void shouldForgetCountsAfterTwoWindows() {
+        IntStream.range(0, 30).forEach(i -> assertThat(nodes.get(0).accept("key")).isEmpty());
+        await().until(() -> nodes.get(1).countOf("key") == 30);
+
+        ticker.advance(RATE.window().multipliedBy(2));
+
+        assertThat(nodes.get(0).isEmpty()).isTrue();
+        assertThat(nodes.get(1).accept("key")).isEmpty();
+    }
+
+}
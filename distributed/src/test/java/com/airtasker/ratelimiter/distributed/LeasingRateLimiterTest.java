@@ -0,0 +1,82 @@
+package com.airtasker.ratelimiter.distributed;
+
+import com.airtasker.ratelimiter.core.ManualTicker;
+import com.airtasker.ratelimiter.core.Rate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class LeasingRateLimiterTest {
+
+    private static final Rate RATE = Rate.of(10, Duration.ofHours(1));
+
+    private QuotaServer server;
+    private QuotaClient firstClient;
+    private QuotaClient secondClient;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new QuotaServer(RATE, 0);
+        firstClient = new QuotaClient(new InetSocketAddress("localhost", server.port()), Duration.ofSeconds(5));
+        secondClient = new QuotaClient(new InetSocketAddress("localhost", server.port()), Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        firstClient.close();
+        secondClient.close();
+        server.close();
+    }
+
+    @Test
+    public void shouldShareTheLimitAmongNodes() {
+        final var first = new LeasingRateLimiter<String>(request -> request, firstClient, 2, Duration.ofHours(1));
+        final var second = new LeasingRateLimiter<String>(request -> request, secondClient, 2, Duration.ofHours(1));
+        final var accepted = new AtomicInteger(0);
+
+        await().until(() -> {
+            for (final var node : List.of(first, second)) {
+                if (node.accept("key").isEmpty()) {
+                    accepted.incrementAndGet();
+                }
+            }
+            return accepted.get() == RATE.requests();
+        });
+
+        for (var i = 0; i < 20; i++) {
+            assertThat(first.accept("key")).isPresent();
+            assertThat(second.accept("key")).isPresent();
+        }
+        assertThat(first.accept("other")).isEmpty();
+    }
+
+    @Test
+    public void shouldExpireLeasedPermits() {
+        final var ticker = new ManualTicker();
+        final var unit = new LeasingRateLimiter<String>(request -> request, firstClient, 4,
+                Duration.ofMinutes(1), ticker);
+
+        assertThat(unit.accept("key")).isEmpty();
+        assertThat(unit.isEmpty()).isFalse();
+
+        ticker.advance(Duration.ofMinutes(1));
+        assertThat(unit.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldRejectWhenServerIsNotAvailable() {
+        server.close();
+        final var unit = new LeasingRateLimiter<String>(request -> request, firstClient, 4, Duration.ofHours(1));
+
+        assertThat(unit.tryAccept("key", 1)).isEqualTo(LeasingRateLimiter.RETRY_NANOS);
+    }
+
+}
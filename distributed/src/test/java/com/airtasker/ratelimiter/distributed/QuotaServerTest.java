@@ -0,0 +1,57 @@
+package com.airtasker.ratelimiter.distributed;
+
+import com.airtasker.ratelimiter.core.Rate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class QuotaServerTest {
+
+    private QuotaServer server;
+    private QuotaClient client;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = new QuotaServer(Rate.of(10, Duration.ofHours(1)), 0);
+        client = new QuotaClient(new InetSocketAddress("localhost", server.port()), Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void shouldGrantPermitsUntilTheLimit() {
+        assertThat(client.lease("a", 4).join().granted()).isEqualTo(4);
+        assertThat(client.lease("a", 10).join().granted()).isEqualTo(5);
+        assertThat(client.lease("a", 10).join().granted()).isEqualTo(1);
+
+        final var rejected = client.lease("a", 1).join();
+        assertThat(rejected.granted()).isZero();
+        assertThat(rejected.waitNanos()).isPositive();
+    }
+
+    @Test
+    public void shouldGrantPermitsForEveryKey() {
+        assertThat(client.lease("a", 10).join().granted()).isEqualTo(10);
+        assertThat(client.lease("b", 10).join().granted()).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldFailLeasesWhenServerIsClosed() {
+        server.close();
+
+        assertThatThrownBy(() -> client.lease("a", 1).join())
+                .isInstanceOf(CompletionException.class);
+    }
+
+}
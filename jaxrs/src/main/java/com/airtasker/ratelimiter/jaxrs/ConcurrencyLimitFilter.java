@@ -0,0 +1,80 @@
+package com.airtasker.ratelimiter.jaxrs;
+
+import com.airtasker.ratelimiter.core.ConcurrencyRateLimiter;
+import com.airtasker.ratelimiter.core.RateLimiter;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+
+/**
+ * Bounds the requests in flight with a {@link ConcurrencyRateLimiter}, or any rate limiter releasing permits
+ *
+ * The request filter takes a permit, rejecting the request with a {@code 429 Too Many Requests} response when
+ * there are too many requests in flight. The permit is released once Jersey finishes processing the request, after
+ * the entity of the response is written, no matter whether the resource failed with an exception mapped to a
+ * response or not. A request only releases its permit once, as it is tracked in a property of the request.
+ *
+ * So caveats:
+ *
+ * * The filter listens to the requests as a Jersey {@link ApplicationEventListener}, so it should be registered in
+ *   the application, like in its {@code ResourceConfig}, and not only for some resource methods
+ */
+public class ConcurrencyLimitFilter implements ContainerRequestFilter, ApplicationEventListener {
+
+    /**
+     * Property of the request taking a permit, removed once the permit is released
+     */
+    static final String PERMIT_PROPERTY = ConcurrencyLimitFilter.class.getName() + ".permit";
+
+    private final RateLimiter<ContainerRequestContext> rateLimiter;
+    private final RejectionResponses rejections;
+    private final RequestEventListener releaseListener = this::onRequestEvent;
+
+    public ConcurrencyLimitFilter(long maxConcurrent) {
+        this(new ConcurrencyRateLimiter<>(maxConcurrent), false);
+    }
+
+    /**
+     * @param rateLimiter The rate limiter taking the permits of the requests, which should support releasing them
+     * @param emptyBody true to reject the requests without any message in the body
+     */
+    public ConcurrencyLimitFilter(RateLimiter<ContainerRequestContext> rateLimiter, boolean emptyBody) {
+        this.rateLimiter = rateLimiter;
+        this.rejections = new RejectionResponses(emptyBody);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        final var waitNanos = rateLimiter.tryAccept(requestContext, 1L);
+        if (waitNanos > 0) {
+            requestContext.abortWith(rejections.response(waitNanos, rateLimiter.quota(requestContext)));
+        } else {
+            requestContext.setProperty(PERMIT_PROPERTY, Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public void onEvent(ApplicationEvent event) {
+    }
+
+    @Override
+    public RequestEventListener onRequest(RequestEvent requestEvent) {
+        return releaseListener;
+    }
+
+    private void onRequestEvent(RequestEvent event) {
+        if (event.getType() != RequestEvent.Type.FINISHED) {
+            return;
+        }
+        final var requestContext = event.getContainerRequest();
+        if (requestContext.getProperty(PERMIT_PROPERTY) != null) {
+            requestContext.removeProperty(PERMIT_PROPERTY);
+            rateLimiter.release(requestContext, 1L);
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+package com.airtasker.ratelimiter.jaxrs;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * Part of the request the key of a {@link RateLimited} resource method is taken from, so every key has its own limit
+ *
+ * Every source compiles, once per resource method, an extractor specialized for the name of the key, which does
+ * not use reflection nor copies the values of the request. Requests without the key share the limit of the
+ * {@link #ANONYMOUS} key.
+ */
+public enum KeySource {
+
+    /**
+     * The resource method has a single limit for all the requests
+     */
+    NONE {
+        @Override
+        Function<ContainerRequestContext, String> extractor(String name) {
+            return ignored -> ANONYMOUS;
+        }
+    },
+
+    /**
+     * Value of the header with the provided name, with all its values joined by commas
+     */
+    HEADER {
+        @Override
+        Function<ContainerRequestContext, String> extractor(String name) {
+            final var header = requireName(name);
+            return request -> orAnonymous(request.getHeaderString(header));
+        }
+    },
+
+    /**
+     * First value of the query parameter with the provided name, decoded, or raw when it is not properly encoded
+     */
+    QUERY_PARAM {
+        @Override
+        Function<ContainerRequestContext, String> extractor(String name) {
+            final var prefix = requireName(name) + "=";
+            return request -> queryParameter(request.getUriInfo().getRequestUri().getRawQuery(), prefix);
+        }
+    },
+
+    /**
+     * Value of the path parameter with the provided name, decoded
+     */
+    PATH_PARAM {
+        @Override
+        Function<ContainerRequestContext, String> extractor(String name) {
+            final var parameter = requireName(name);
+            return request -> orAnonymous(request.getUriInfo().getPathParameters().getFirst(parameter));
+        }
+    },
+
+    /**
+     * Property of the request with the provided name, like one set by an authentication filter
+     */
+    PROPERTY {
+        @Override
+        Function<ContainerRequestContext, String> extractor(String name) {
+            final var property = requireName(name);
+            return request -> {
+                final var value = request.getProperty(property);
+                return value == null ? ANONYMOUS : value.toString();
+            };
+        }
+    },
+
+    /**
+     * Address of the client, taken from the header with the provided name, by default {@value #FORWARDED_FOR_HEADER}.
+     * Every proxy appends the address of its peer to the header, and clients can send any entry they like, so the
+     * address is the one appended by the farthest trusted proxy: the rightmost entry behind a single proxy, or the
+     * one skipping the other trusted proxies from the right. JAX-RS does not expose the address of the peer, so
+     * requests without the header take it from the {@value #REMOTE_ADDRESS_PROPERTY} property, which a
+     * container specific filter can set.
+     */
+    REMOTE_ADDRESS {
+        @Override
+        Function<ContainerRequestContext, String> extractor(String name) {
+            return extractor(name, DEFAULT_TRUSTED_PROXIES);
+        }
+
+        @Override
+        Function<ContainerRequestContext, String> extractor(String name, int trustedProxies) {
+            if (trustedProxies <= 0) {
+                throw new IllegalArgumentException("Trusted proxies should be positive");
+            }
+            final var header = name.isEmpty() ? FORWARDED_FOR_HEADER : name;
+            return request -> {
+                final var forwardedFor = request.getHeaderString(header);
+                if (forwardedFor == null) {
+                    final var address = request.getProperty(REMOTE_ADDRESS_PROPERTY);
+                    return address == null ? ANONYMOUS : address.toString();
+                }
+                return forwardedAddress(forwardedFor, trustedProxies);
+            };
+        }
+    };
+
+    /**
+     * Key of the requests without the key of the source
+     */
+    public static final String ANONYMOUS = "";
+
+    /**
+     * Header read by {@link #REMOTE_ADDRESS} unless another one is provided
+     */
+    public static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+
+    /**
+     * Property of the request with the address of the peer, read by {@link #REMOTE_ADDRESS} without the header
+     */
+    public static final String REMOTE_ADDRESS_PROPERTY = KeySource.class.getName() + ".remoteAddress";
+
+    /**
+     * Number of proxies in front of the application trusted by {@link #REMOTE_ADDRESS} unless another one is provided
+     */
+    public static final int DEFAULT_TRUSTED_PROXIES = 1;
+
+    /**
+     * @param name The name of the key in the request, like the name of the header
+     * @return A function extracting the key from the requests
+     * @throws IllegalArgumentException In case the source needs a name and it is empty
+     */
+    abstract Function<ContainerRequestContext, String> extractor(String name);
+
+    /**
+     * @param name The name of the key in the request, like the name of the header
+     * @param trustedProxies Number of proxies in front of the application, only used by {@link #REMOTE_ADDRESS}
+     * @return A function extracting the key from the requests
+     * @throws IllegalArgumentException In case the source needs a name and it is empty, or the proxies are not
+     * positive
+     */
+    Function<ContainerRequestContext, String> extractor(String name, int trustedProxies) {
+        return extractor(name);
+    }
+
+    String requireName(String name) {
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Key source " + name() + " needs the name of the key");
+        }
+        return name;
+    }
+
+    private static String orAnonymous(String value) {
+        return value == null ? ANONYMOUS : value;
+    }
+
+    /**
+     * Looks for the parameter in the raw query, only decoding its value
+     */
+    static String queryParameter(String rawQuery, String prefix) {
+        if (rawQuery == null) {
+            return ANONYMOUS;
+        }
+        var start = 0;
+        while (start < rawQuery.length()) {
+            var end = rawQuery.indexOf('&', start);
+            if (end < 0) {
+                end = rawQuery.length();
+            }
+            if (rawQuery.startsWith(prefix, start)) {
+                return decode(rawQuery.substring(start + prefix.length(), end));
+            }
+            start = end + 1;
+        }
+        return ANONYMOUS;
+    }
+
+    /**
+     * Clients can send malformed percent escapes, which are kept as they are instead of failing the request
+     */
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            return value;
+        }
+    }
+
+    /**
+     * Takes the entry appended by the farthest trusted proxy, or the leftmost one when there are less entries, as
+     * all of them were appended by trusted proxies
+     */
+    private static String forwardedAddress(String forwardedFor, int trustedProxies) {
+        var end = forwardedFor.length();
+        for (var hop = 1; ; hop++) {
+            final var comma = forwardedFor.lastIndexOf(',', end - 1);
+            if (hop == trustedProxies || comma < 0) {
+                return forwardedFor.substring(comma + 1, end).trim();
+            }
+            end = comma;
+        }
+    }
+
+}
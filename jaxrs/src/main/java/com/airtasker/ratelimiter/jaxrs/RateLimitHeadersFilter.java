@@ -0,0 +1,53 @@
+package com.airtasker.ratelimiter.jaxrs;
+
+import com.airtasker.ratelimiter.core.QuotaStatus;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds the {@code RateLimit-Limit}, {@code RateLimit-Remaining} and {@code RateLimit-Reset} headers to the responses
+ * of the requests accepted by a {@link RateLimiterRequestFilter}, so the clients can pace themselves
+ *
+ * The request filter stores the quota left in the property {@link #QUOTA_PROPERTY} of the request, so the rate
+ * limiter is not queried again. Responses of requests without the property, because their rate limiter can not
+ * report its quota, are not modified. The rejected requests get the same headers from the request filter.
+ */
+public class RateLimitHeadersFilter implements ContainerResponseFilter {
+
+    /**
+     * Property of the request with the {@link QuotaStatus} left after accepting it
+     */
+    public static final String QUOTA_PROPERTY = RateLimitHeadersFilter.class.getName() + ".quota";
+
+    public static final String LIMIT_HEADER = "RateLimit-Limit";
+    public static final String REMAINING_HEADER = "RateLimit-Remaining";
+    public static final String RESET_HEADER = "RateLimit-Reset";
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        final var quota = requestContext.getProperty(QUOTA_PROPERTY);
+        if (quota instanceof QuotaStatus) {
+            addHeaders(responseContext.getHeaders(), (QuotaStatus) quota);
+        }
+    }
+
+    static void addHeaders(MultivaluedMap<String, Object> headers, QuotaStatus quota) {
+        headers.putSingle(LIMIT_HEADER, quota.limit());
+        headers.putSingle(REMAINING_HEADER, quota.remaining());
+        headers.putSingle(RESET_HEADER, resetSeconds(quota));
+    }
+
+    /**
+     * @return The whole seconds until the quota is reset, rounded up so clients do not come back too early
+     */
+    static long resetSeconds(QuotaStatus quota) {
+        return (quota.resetNanos() + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND;
+    }
+
+}
@@ -8,7 +8,61 @@ import java.lang.annotation.Target;
 @Target({ElementType.METHOD})
 @Retention(RetentionPolicy.RUNTIME)
 public @interface RateLimited {
+
+    /**
+     * Value of {@link #defaultCost()} making the cost header required
+     */
+    long REQUIRED_COST = 0L;
+
+    /**
+     * Default value of {@link #maxKeys()}
+     */
+    int DEFAULT_MAX_KEYS = 10_000;
+
     long requests();
 
     long timeMillis();
+
+    /**
+     * Name of the header with the number of permits every request costs, like the number of items of a bulk
+     * request. Requests without the header are rejected with {@code 400 Bad Request}, unless there is a
+     * {@link #defaultCost()}. By default every request costs one permit.
+     */
+    String costHeader() default "";
+
+    /**
+     * Number of permits of the requests without the {@link #costHeader()}, or {@link #REQUIRED_COST} to reject them.
+     * The header is set by the client, so it should be the cost of the most expensive request.
+     */
+    long defaultCost() default REQUIRED_COST;
+
+    /**
+     * Name of the rate limiter in the {@link com.airtasker.ratelimiter.core.RateLimiterRegistry}. Resource methods
+     * with the same name share the same limit, configured by the first of them. By default every resource method
+     * has its own limit, which is not registered.
+     */
+    String name() default "";
+
+    /**
+     * Part of the request with the key, so every key has its own limit. By default all the requests share the
+     * same limit.
+     */
+    KeySource keySource() default KeySource.NONE;
+
+    /**
+     * Name of the key in its source, like the name of the header or of the query parameter
+     */
+    String keyName() default "";
+
+    /**
+     * Number of proxies in front of the application, so {@link KeySource#REMOTE_ADDRESS} takes the address of the
+     * client from the entry of the forwarded header appended by the farthest one
+     */
+    int trustedProxies() default KeySource.DEFAULT_TRUSTED_PROXIES;
+
+    /**
+     * Maximum number of keys with their own limit. Once there are more, the less frequently used keys are evicted,
+     * and the requests of the keys which are not admitted share a single limit.
+     */
+    int maxKeys() default DEFAULT_MAX_KEYS;
 }
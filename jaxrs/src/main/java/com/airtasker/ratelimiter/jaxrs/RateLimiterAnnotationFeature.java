@@ -2,34 +2,107 @@ package com.airtasker.ratelimiter.jaxrs;
 
 import com.airtasker.ratelimiter.core.AirtaskerRateLimiters;
 import com.airtasker.ratelimiter.core.Rate;
-import com.airtasker.ratelimiter.core.SlidingLogBlockingWithCleanupThreadRateLimiter;
+import com.airtasker.ratelimiter.core.RateLimiter;
+import com.airtasker.ratelimiter.core.RateLimiterRegistry;
+import com.airtasker.ratelimiter.core.Ticker;
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
 
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.DynamicFeature;
 import javax.ws.rs.container.ResourceInfo;
 import javax.ws.rs.core.FeatureContext;
-import java.time.Clock;
 import java.time.Duration;
 import java.util.Optional;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
-public class RateLimiterAnnotationFeature implements DynamicFeature {
+/**
+ * Adds a {@link RateLimiterRequestFilter} and a {@link RateLimitHeadersFilter} to every resource method annotated
+ * with {@link RateLimited}
+ *
+ * The rate limiters use the scheduler of a {@link RateLimiterRegistry}, so all of them share a single cleanup
+ * thread. The ones with a {@link RateLimited#name()} are registered in it, so they are shared by all the resource
+ * methods with the same name. By default every feature has its own registry, using the scheduler of the
+ * {@link RateLimiterRegistry#defaultRegistry()}, which is closed along with the application. A registry provided
+ * is not closed by the feature, but closing it stops all of its rate limiters.
+ *
+ * Resource methods with a {@link RateLimited#keySource()} have a limit for every key, extracted by a function
+ * compiled once when the resource method is configured. The limits are kept by a GCRA rate limiter bounded to
+ * {@link RateLimited#maxKeys()}, so every key takes a fixed amount of memory and clients can not exhaust it
+ * sending new keys.
+ */
+public class RateLimiterAnnotationFeature implements DynamicFeature, ContainerLifecycleListener {
+
+    private final RateLimiterRegistry registry;
+    private final boolean ownsRegistry;
+    // The rate limiters without a name, only registered to be closed along with the application
+    private final RateLimiterRegistry unnamed;
+    private final AtomicLong unnamedCount = new AtomicLong();
+
+    public RateLimiterAnnotationFeature() {
+        this(RateLimiterRegistry.sharingScheduler(RateLimiterRegistry.defaultRegistry()), true);
+    }
+
+    public RateLimiterAnnotationFeature(RateLimiterRegistry registry) {
+        this(registry, false);
+    }
+
+    private RateLimiterAnnotationFeature(RateLimiterRegistry registry, boolean ownsRegistry) {
+        this.registry = registry;
+        this.ownsRegistry = ownsRegistry;
+        this.unnamed = RateLimiterRegistry.sharingScheduler(registry);
+    }
 
     @Override
     public void configure(ResourceInfo resourceInfo, FeatureContext context) {
         final var maybeRateLimited = Optional.ofNullable(
                 resourceInfo.getResourceMethod().getAnnotation(RateLimited.class));
 
-        maybeRateLimited.ifPresent(rateLimited ->
-            context.register(createRateLimiter(rateLimited))
-        );
+        maybeRateLimited.ifPresent(rateLimited -> {
+            context.register(createRateLimiter(rateLimited));
+            context.register(new RateLimitHeadersFilter());
+        });
     }
 
     private RateLimiterRequestFilter createRateLimiter(RateLimited rateLimited) {
-        return new RateLimiterRequestFilter(
-                AirtaskerRateLimiters.slidingLogBlockingWithCleanup(
-                        Rate.of(rateLimited.requests(),  Duration.ofMillis(rateLimited.timeMillis()))));
+        final var rate = Rate.of(rateLimited.requests(),  Duration.ofMillis(rateLimited.timeMillis()));
+        final Function<ScheduledExecutorService, RateLimiter<ContainerRequestContext>> factory;
+        if (rateLimited.keySource() == KeySource.NONE) {
+            factory = scheduler -> AirtaskerRateLimiters.slidingLogBlockingWithCleanup(rate, scheduler);
+        } else {
+            final var keyExtractor = rateLimited.keySource().extractor(rateLimited.keyName(),
+                    rateLimited.trustedProxies());
+            factory = scheduler -> AirtaskerRateLimiters.gcraKeyBasedRateLimiter(rate, keyExtractor,
+                    rateLimited.maxKeys(), scheduler, Ticker.systemTicker());
+        }
+        final var rateLimiter = rateLimited.name().isEmpty()
+                ? unnamed.rateLimiter(Long.toString(unnamedCount.incrementAndGet()), factory)
+                : registry.rateLimiter(rateLimited.name(), factory);
+        final ToLongFunction<ContainerRequestContext> costProvider = rateLimited.costHeader().isEmpty()
+                ? request -> 1L
+                : RateLimiterRequestFilter.costFromHeader(rateLimited.costHeader(), rateLimited.defaultCost());
+        return new RateLimiterRequestFilter(rateLimiter, costProvider, false, true);
+    }
+
+    @Override
+    public void onStartup(Container container) {
+    }
+
+    @Override
+    public void onReload(Container container) {
+    }
+
+    /**
+     * Closes the rate limiters of the feature, and its registry unless it was provided
+     */
+    @Override
+    public void onShutdown(Container container) {
+        unnamed.close();
+        if (ownsRegistry) {
+            registry.close();
+        }
     }
 }
@@ -2,31 +2,141 @@ package com.airtasker.ratelimiter.jaxrs;
 
 import com.airtasker.ratelimiter.core.RateLimiter;
 
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
-import javax.ws.rs.core.Response;
-import java.time.Duration;
+import java.util.Optional;
+import java.util.function.ToLongFunction;
 
+/**
+ * Rejects the requests exceeding the rate limit with a {@code 429 Too Many Requests} response
+ *
+ * The rejections have the {@code Retry-After} header. In case the quota headers are enabled and the rate limiter can
+ * report its quota, they also have the {@code RateLimit-*} headers, and the quota of the accepted requests is stored
+ * for the {@link RateLimitHeadersFilter} to add the same headers to their responses. Otherwise, the quota is never
+ * read, so accepting a request does not allocate.
+ *
+ * The decisions are not reported by the filter, metrics are collected with a listener of the rate limiter, like
+ * {@link com.airtasker.ratelimiter.core.KeyBasedRateLimiter}, so every request is counted once.
+ */
 public class RateLimiterRequestFilter implements ContainerRequestFilter {
 
-    private static final String RATE_MESSAGE_TEMPLATE = "Rate limit exceeded. Try again in %d seconds";
+    private static final ToLongFunction<ContainerRequestContext> SINGLE_PERMIT = ignored -> 1L;
 
     private final RateLimiter<ContainerRequestContext> rateLimiter;
+    private final ToLongFunction<ContainerRequestContext> costProvider;
+    private final RejectionResponses rejections;
+    private final boolean quotaHeaders;
 
     public RateLimiterRequestFilter(RateLimiter<ContainerRequestContext> rateLimiter) {
+        this(rateLimiter, SINGLE_PERMIT);
+    }
+
+    /**
+     * Build a filter for requests which can cost more than one permit
+     *
+     * @param rateLimiter The rate limiter to check the requests
+     * @param costProvider A function to extract from the request the number of permits it costs
+     */
+    public RateLimiterRequestFilter(RateLimiter<ContainerRequestContext> rateLimiter,
+                                    ToLongFunction<ContainerRequestContext> costProvider) {
+        this(rateLimiter, costProvider, false);
+    }
+
+    /**
+     * Build a filter which can reject the requests without any body, for the cheapest possible shedding
+     *
+     * The rejected requests always have the {@code Retry-After} header, with the whole seconds to wait.
+     *
+     * @param rateLimiter The rate limiter to check the requests
+     * @param costProvider A function to extract from the request the number of permits it costs
+     * @param emptyBody true to reject the requests without any message in the body
+     */
+    public RateLimiterRequestFilter(RateLimiter<ContainerRequestContext> rateLimiter,
+                                    ToLongFunction<ContainerRequestContext> costProvider, boolean emptyBody) {
+        this(rateLimiter, costProvider, emptyBody, false);
+    }
+
+    /**
+     * Build a filter which can add the {@code RateLimit-*} headers with the quota of the requests
+     *
+     * @param rateLimiter The rate limiter to check the requests
+     * @param costProvider A function to extract from the request the number of permits it costs
+     * @param emptyBody true to reject the requests without any message in the body
+     * @param quotaHeaders true to read the quota of every request, for the headers of the rejections and of the
+     * {@link RateLimitHeadersFilter}
+     */
+    public RateLimiterRequestFilter(RateLimiter<ContainerRequestContext> rateLimiter,
+                                    ToLongFunction<ContainerRequestContext> costProvider,
+                                    boolean emptyBody, boolean quotaHeaders) {
         this.rateLimiter = rateLimiter;
+        this.costProvider = costProvider;
+        this.rejections = new RejectionResponses(emptyBody);
+        this.quotaHeaders = quotaHeaders;
     }
 
     @Override
     public void filter(ContainerRequestContext requestContext) {
-        final var maybeNextChance = rateLimiter.accept(requestContext);
-        maybeNextChance.ifPresent(timeToWait -> requestContext.abortWith(rateLimitReachedResponse(timeToWait)));
+        final var permits = costProvider.applyAsLong(requestContext);
+        final var waitNanos = rateLimiter.tryAccept(requestContext, permits);
+        if (!quotaHeaders) {
+            if (waitNanos > 0) {
+                requestContext.abortWith(rejections.response(waitNanos, Optional.empty()));
+            }
+            return;
+        }
+        final var quota = rateLimiter.quota(requestContext);
+        if (waitNanos > 0) {
+            requestContext.abortWith(rejections.response(waitNanos, quota));
+        } else if (quota.isPresent()) {
+            requestContext.setProperty(RateLimitHeadersFilter.QUOTA_PROPERTY, quota.get());
+        }
+    }
+
+    /**
+     * Cost of the requests taken from a header, which every request needs to have
+     *
+     * @param header The name of the header with the number of permits
+     * @return A function to extract the cost of the requests, which throws {@link BadRequestException} when
+     * the header is missing or its value is not a positive number
+     */
+    public static ToLongFunction<ContainerRequestContext> costFromHeader(String header) {
+        return costFromHeader(header, RateLimited.REQUIRED_COST);
     }
 
-    private Response rateLimitReachedResponse(Duration timeToWait) {
-        final var durationInSeconds = Math.max(1, timeToWait.toSeconds());
-        return Response.status(Response.Status.TOO_MANY_REQUESTS)
-                .entity(String.format(RATE_MESSAGE_TEMPLATE, durationInSeconds))
-                .build();
+    /**
+     * Cost of the requests taken from a header, requests without the header cost the default cost
+     *
+     * The cost is provided by the client, so the default cost should be the price of the most expensive request
+     * the client could send without the header, otherwise clients can pay less just by omitting it.
+     *
+     * @param header The name of the header with the number of permits
+     * @param defaultCost The permits of the requests without the header, or {@link RateLimited#REQUIRED_COST} to
+     * reject them
+     * @return A function to extract the cost of the requests, which throws {@link BadRequestException} when
+     * the value of the header is not a positive number, or it is missing and there is no default cost
+     */
+    public static ToLongFunction<ContainerRequestContext> costFromHeader(String header, long defaultCost) {
+        if (defaultCost < 0) {
+            throw new IllegalArgumentException("Default cost should not be negative");
+        }
+        return requestContext -> {
+            final var value = requestContext.getHeaderString(header);
+            if (value == null) {
+                if (defaultCost == RateLimited.REQUIRED_COST) {
+                    throw new BadRequestException("Header " + header + " is required");
+                }
+                return defaultCost;
+            }
+            try {
+                final var permits = Long.parseLong(value.trim());
+                if (permits >= 1) {
+                    return permits;
+                }
+            } catch (NumberFormatException ex) {
+                // Reported below as a bad request
+            }
+            throw new BadRequestException("Header " + header + " should be a positive number");
+        };
     }
 }
@@ -0,0 +1,89 @@
+package com.airtasker.ratelimiter.jaxrs;
+
+import com.airtasker.ratelimiter.core.QuotaStatus;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Responses of the rejected requests, with the entity and the headers cached by whole seconds to retry after
+ *
+ * The {@link Response} itself is built for every rejection, as the containers can modify it, but its entity is
+ * encoded only once for every number of seconds up to {@link #CACHED_SECONDS}, so a rejection does not format
+ * nor encode anything. In the empty body mode there is no entity at all.
+ */
+final class RejectionResponses {
+
+    /**
+     * Maximum number of seconds to retry after with its response cached
+     */
+    static final int CACHED_SECONDS = 3600;
+
+    private static final String RATE_MESSAGE_TEMPLATE = "Rate limit exceeded. Try again in %d seconds";
+    private static final String TEXT_PLAIN_UTF8 = "text/plain; charset=UTF-8";
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean emptyBody;
+    // Races are benign, a rejection is immutable and at worst computed twice
+    private final Rejection[] cache = new Rejection[CACHED_SECONDS + 1];
+
+    RejectionResponses(boolean emptyBody) {
+        this.emptyBody = emptyBody;
+    }
+
+    /**
+     * @param waitNanos Nanoseconds to wait until the request could be accepted
+     * @param quota The quota left for the request, if the rate limiter can report it
+     * @return A new response for the rejected request
+     */
+    Response response(long waitNanos, Optional<QuotaStatus> quota) {
+        final var rejection = rejection(retryAfterSeconds(waitNanos));
+        final var builder = Response.status(Response.Status.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, rejection.retryAfter);
+        if (rejection.entity != null) {
+            builder.entity(rejection.entity).type(TEXT_PLAIN_UTF8);
+        }
+        if (quota.isPresent()) {
+            builder.header(RateLimitHeadersFilter.LIMIT_HEADER, quota.get().limit())
+                    .header(RateLimitHeadersFilter.REMAINING_HEADER, quota.get().remaining())
+                    .header(RateLimitHeadersFilter.RESET_HEADER, RateLimitHeadersFilter.resetSeconds(quota.get()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return The whole seconds to wait, rounded up so clients do not come back too early, at least 1
+     */
+    static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1L, (waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+    }
+
+    private Rejection rejection(long seconds) {
+        if (seconds > CACHED_SECONDS) {
+            return new Rejection(seconds, emptyBody);
+        }
+        var rejection = cache[(int) seconds];
+        if (rejection == null) {
+            rejection = new Rejection(seconds, emptyBody);
+            cache[(int) seconds] = rejection;
+        }
+        return rejection;
+    }
+
+    private static final class Rejection {
+
+        private final String retryAfter;
+        private final byte[] entity;
+
+        private Rejection(long seconds, boolean emptyBody) {
+            this.retryAfter = Long.toString(seconds);
+            this.entity = emptyBody
+                    ? null
+                    : String.format(RATE_MESSAGE_TEMPLATE, seconds).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+}
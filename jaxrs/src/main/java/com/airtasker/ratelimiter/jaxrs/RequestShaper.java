@@ -0,0 +1,164 @@
+package com.airtasker.ratelimiter.jaxrs;
+
+import com.airtasker.ratelimiter.core.RateLimitExceededException;
+import com.airtasker.ratelimiter.core.RateLimiter;
+
+import javax.ws.rs.container.AsyncResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Shapes the requests of asynchronous resource methods, delaying the ones over the limit instead of rejecting them
+ *
+ * The resource method suspends the request with {@link javax.ws.rs.container.Suspended} and passes its
+ * {@link AsyncResponse} to {@link #shape(Object, long, AsyncResponse, Supplier)}. A request over the limit does not
+ * block any container thread: it waits with {@link RateLimiter#acquire(Object, long, Duration)}, so it is retried
+ * on the timer shared by all the rate limiters and resumed once its permits are granted. A request is rejected
+ * with a {@code 429 Too Many Requests} response when its permits can not be granted within the maximum wait, or
+ * when there are already as many requests waiting for its key as the maximum queue depth.
+ *
+ * So caveats:
+ *
+ * * The handlers of the delayed requests run in the common {@link ForkJoinPool} unless an executor is provided,
+ *   so blocking handlers need an executor of their own. The delayed requests are always resumed in the executor,
+ *   also when they are rejected, never in the timer shared by all the rate limiters
+ * * Waiting requests are not granted in the order they arrived, see {@link RateLimiter#acquire(Object)}
+ *
+ * @param <R> The type of requests
+ * @param <K> The type of the keys the queue depth is bounded by
+ */
+public class RequestShaper<R, K> {
+
+    private final RateLimiter<R> rateLimiter;
+    private final Function<R, K> keyProvider;
+    private final Duration maxWait;
+    private final long maxWaitNanos;
+    private final int maxQueueDepth;
+    private final Executor executor;
+    private final ConcurrentMap<K, Integer> queueDepths = new ConcurrentHashMap<>();
+    private final RejectionResponses rejections = new RejectionResponses(false);
+
+    /**
+     * Build a shaper running the handlers of the delayed requests in the common {@link ForkJoinPool}
+     *
+     * See {@link #RequestShaper(RateLimiter, Function, Duration, int, Executor)}.
+     */
+    public RequestShaper(RateLimiter<R> rateLimiter, Function<R, K> keyProvider, Duration maxWait,
+                         int maxQueueDepth) {
+        this(rateLimiter, keyProvider, maxWait, maxQueueDepth, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param rateLimiter The rate limiter to check the requests
+     * @param keyProvider A function to extract from the request the key its queue depth is bounded by
+     * @param maxWait The maximum time a request waits for its permits
+     * @param maxQueueDepth The maximum number of requests waiting for every key
+     * @param executor The executor resuming the delayed requests, instead of the shared timer
+     */
+    public RequestShaper(RateLimiter<R> rateLimiter, Function<R, K> keyProvider, Duration maxWait,
+                         int maxQueueDepth, Executor executor) {
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("Maximum wait should not be negative");
+        }
+        if (maxQueueDepth < 0) {
+            throw new IllegalArgumentException("Maximum queue depth should not be negative");
+        }
+        this.rateLimiter = rateLimiter;
+        this.keyProvider = keyProvider;
+        this.maxWait = maxWait;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.maxQueueDepth = maxQueueDepth;
+        this.executor = executor;
+    }
+
+    /**
+     * Resumes the response with the result of the handler once the permits of the request are granted, or with a
+     * rejection in case they can not be granted
+     *
+     * The handler runs right away in the calling thread when the permits are available.
+     *
+     * @param request The request to shape
+     * @param permits The number of permits the request costs, at least 1
+     * @param asyncResponse The suspended response of the request
+     * @param handler The function handling the request, returning the entity or the response to resume with
+     */
+    public void shape(R request, long permits, AsyncResponse asyncResponse, Supplier<?> handler) {
+        final var waitNanos = rateLimiter.tryAccept(request, permits);
+        if (waitNanos == 0) {
+            handle(asyncResponse, handler);
+            return;
+        }
+        if (waitNanos > maxWaitNanos) {
+            reject(request, asyncResponse, waitNanos);
+            return;
+        }
+
+        final var key = keyProvider.apply(request);
+        if (!enqueue(key)) {
+            reject(request, asyncResponse, waitNanos);
+            return;
+        }
+        rateLimiter.acquire(request, permits, maxWait).whenComplete((ignored, error) -> {
+            dequeue(key);
+            executor.execute(() -> resume(request, asyncResponse, handler, error));
+        });
+    }
+
+    /**
+     * @return Number of requests waiting for the key
+     */
+    int queueDepth(K key) {
+        return queueDepths.getOrDefault(key, 0);
+    }
+
+    /**
+     * @return true when the request is queued, otherwise the queue of the key is full
+     */
+    private boolean enqueue(K key) {
+        if (queueDepths.merge(key, 1, Integer::sum) > maxQueueDepth) {
+            dequeue(key);
+            return false;
+        }
+        return true;
+    }
+
+    private void dequeue(K key) {
+        queueDepths.computeIfPresent(key, (ignored, depth) -> depth == 1 ? null : depth - 1);
+    }
+
+    /**
+     * Resumes a delayed request, resuming the response writes it in the calling thread so it never runs in the timer
+     */
+    private void resume(R request, AsyncResponse asyncResponse, Supplier<?> handler, Throwable error) {
+        if (error == null) {
+            handle(asyncResponse, handler);
+        } else if (unwrap(error) instanceof RateLimitExceededException) {
+            reject(request, asyncResponse, ((RateLimitExceededException) unwrap(error)).retryAfter().toNanos());
+        } else {
+            asyncResponse.resume(unwrap(error));
+        }
+    }
+
+    private void handle(AsyncResponse asyncResponse, Supplier<?> handler) {
+        try {
+            asyncResponse.resume(handler.get());
+        } catch (RuntimeException ex) {
+            asyncResponse.resume(ex);
+        }
+    }
+
+    private void reject(R request, AsyncResponse asyncResponse, long waitNanos) {
+        asyncResponse.resume(rejections.response(waitNanos, rateLimiter.quota(request)));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.airtasker.ratelimiter.jaxrs;
+
+import com.airtasker.ratelimiter.core.ConcurrencyRateLimiter;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.Response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ConcurrencyLimitFilterTest {
+
+    @Test
+    public void shouldRejectWhenTooManyRequestsInFlight() {
+        final var rateLimiter = new ConcurrencyRateLimiter<ContainerRequestContext>(1);
+        final var unit = new ConcurrencyLimitFilter(rateLimiter, false);
+
+        final var first = mock(ContainerRequestContext.class);
+        final var second = mock(ContainerRequestContext.class);
+        unit.filter(first);
+        unit.filter(second);
+
+        verify(first, times(1)).setProperty(ConcurrencyLimitFilter.PERMIT_PROPERTY, Boolean.TRUE);
+        verify(first, never()).abortWith(any());
+
+        final var responseCaptor = ArgumentCaptor.forClass(Response.class);
+        verify(second, times(1)).abortWith(responseCaptor.capture());
+        assertThat(responseCaptor.getValue().getStatus()).isEqualTo(429);
+        assertThat(rateLimiter.inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReleasePermitWhenRequestIsFinished() {
+        final var rateLimiter = new ConcurrencyRateLimiter<ContainerRequestContext>(1);
+        final var unit = new ConcurrencyLimitFilter(rateLimiter, false);
+
+        final var context = mock(ContainerRequest.class);
+        unit.filter(context);
+        when(context.getProperty(ConcurrencyLimitFilter.PERMIT_PROPERTY)).thenReturn(Boolean.TRUE);
+
+        final var listener = unit.onRequest(event(RequestEvent.Type.START, context));
+        listener.onEvent(event(RequestEvent.Type.RESP_FILTERS_FINISHED, context));
+        assertThat(rateLimiter.inFlight()).isEqualTo(1);
+
+        listener.onEvent(event(RequestEvent.Type.FINISHED, context));
+        verify(context, times(1)).removeProperty(ConcurrencyLimitFilter.PERMIT_PROPERTY);
+        assertThat(rateLimiter.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldNotReleasePermitOfRejectedRequest() {
+        final var rateLimiter = new ConcurrencyRateLimiter<ContainerRequestContext>(1);
+        final var unit = new ConcurrencyLimitFilter(rateLimiter, false);
+
+        unit.filter(mock(ContainerRequest.class));
+        final var rejected = mock(ContainerRequest.class);
+        unit.filter(rejected);
+
+        unit.onRequest(event(RequestEvent.Type.START, rejected))
+                .onEvent(event(RequestEvent.Type.FINISHED, rejected));
+
+        assertThat(rateLimiter.inFlight()).isEqualTo(1);
+    }
+
+    private static RequestEvent event(RequestEvent.Type type, ContainerRequest context) {
+        final var event = mock(RequestEvent.class);
+        when(event.getType()).thenReturn(type);
+        when(event.getContainerRequest()).thenReturn(context);
+        return event;
+    }
+
+}
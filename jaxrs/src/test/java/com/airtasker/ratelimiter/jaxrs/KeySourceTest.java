@@ -0,0 +1,105 @@
+package com.airtasker.ratelimiter.jaxrs;
+
+import org.junit.jupiter.api.Test;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriInfo;
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("unchecked")
+public class KeySourceTest {
+
+    @Test
+    public void shouldExtractKeyFromHeader() {
+        final var context = mock(ContainerRequestContext.class);
+        when(context.getHeaderString("Api-Key")).thenReturn("key-1");
+
+        assertThat(KeySource.HEADER.extractor("Api-Key").apply(context)).isEqualTo("key-1");
+        assertThat(KeySource.HEADER.extractor("Other").apply(context)).isEqualTo(KeySource.ANONYMOUS);
+    }
+
+    @Test
+    public void shouldExtractKeyFromQueryParameter() {
+        final var context = mock(ContainerRequestContext.class);
+        final var uriInfo = mock(UriInfo.class);
+        when(context.getUriInfo()).thenReturn(uriInfo);
+        when(uriInfo.getRequestUri()).thenReturn(URI.create("http://localhost/sample?client_id=a&client=b%20c"));
+
+        assertThat(KeySource.QUERY_PARAM.extractor("client").apply(context)).isEqualTo("b c");
+        assertThat(KeySource.QUERY_PARAM.extractor("client_id").apply(context)).isEqualTo("a");
+        assertThat(KeySource.QUERY_PARAM.extractor("other").apply(context)).isEqualTo(KeySource.ANONYMOUS);
+    }
+
+    @Test
+    public void shouldTakeRawValueOfMalformedQueryParameter() {
+        assertThat(KeySource.queryParameter("client=%25zz&k=%zz", "k=")).isEqualTo("%zz");
+        assertThat(KeySource.queryParameter("client=%25zz&k=%zz", "client=")).isEqualTo("%zz");
+        assertThat(KeySource.queryParameter("k=%2", "k=")).isEqualTo("%2");
+    }
+
+    @Test
+    public void shouldExtractKeyFromPathParameter() {
+        final var context = mock(ContainerRequestContext.class);
+        final var uriInfo = mock(UriInfo.class);
+        final var pathParameters = (MultivaluedMap<String, String>) mock(MultivaluedMap.class);
+        when(context.getUriInfo()).thenReturn(uriInfo);
+        when(uriInfo.getPathParameters()).thenReturn(pathParameters);
+        when(pathParameters.getFirst("user")).thenReturn("user-1");
+
+        assertThat(KeySource.PATH_PARAM.extractor("user").apply(context)).isEqualTo("user-1");
+    }
+
+    @Test
+    public void shouldExtractKeyFromProperty() {
+        final var context = mock(ContainerRequestContext.class);
+        when(context.getProperty("principal")).thenReturn(42L);
+
+        assertThat(KeySource.PROPERTY.extractor("principal").apply(context)).isEqualTo("42");
+    }
+
+    @Test
+    public void shouldExtractForwardedAddressAppendedByTrustedProxy() {
+        final var context = mock(ContainerRequestContext.class);
+        when(context.getHeaderString(KeySource.FORWARDED_FOR_HEADER)).thenReturn(" 10.0.0.1 , 10.0.0.2");
+
+        assertThat(KeySource.REMOTE_ADDRESS.extractor("").apply(context)).isEqualTo("10.0.0.2");
+        assertThat(KeySource.REMOTE_ADDRESS.extractor("", 2).apply(context)).isEqualTo("10.0.0.1");
+        assertThat(KeySource.REMOTE_ADDRESS.extractor("", 3).apply(context)).isEqualTo("10.0.0.1");
+    }
+
+    @Test
+    public void shouldNotTakeSpoofedForwardedAddress() {
+        final var context = mock(ContainerRequestContext.class);
+        final var extractor = KeySource.REMOTE_ADDRESS.extractor("");
+
+        when(context.getHeaderString(KeySource.FORWARDED_FOR_HEADER)).thenReturn("10.0.0.1");
+        final var key = extractor.apply(context);
+        when(context.getHeaderString(KeySource.FORWARDED_FOR_HEADER)).thenReturn("1.2.3.4, 10.0.0.1");
+
+        assertThat(extractor.apply(context)).isEqualTo(key);
+    }
+
+    @Test
+    public void shouldTakeRemoteAddressFromPropertyWithoutForwardedHeader() {
+        final var context = mock(ContainerRequestContext.class);
+        when(context.getProperty(KeySource.REMOTE_ADDRESS_PROPERTY)).thenReturn("10.0.0.3");
+
+        assertThat(KeySource.REMOTE_ADDRESS.extractor("").apply(context)).isEqualTo("10.0.0.3");
+        assertThat(KeySource.REMOTE_ADDRESS.extractor("").apply(mock(ContainerRequestContext.class)))
+                .isEqualTo(KeySource.ANONYMOUS);
+    }
+
+    @Test
+    public void shouldFailWithoutNameOfKey() {
+        assertThatThrownBy(() -> KeySource.HEADER.extractor(""))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> KeySource.REMOTE_ADDRESS.extractor("", 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
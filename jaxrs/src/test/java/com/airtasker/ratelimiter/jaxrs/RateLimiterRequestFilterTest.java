@@ -1,6 +1,12 @@
 package com.airtasker.ratelimiter.jaxrs;
 
+import com.airtasker.ratelimiter.core.GcraRateLimiter;
+import com.airtasker.ratelimiter.core.KeyBasedRateLimiter;
+import com.airtasker.ratelimiter.core.ManualTicker;
+import com.airtasker.ratelimiter.core.QuotaStatus;
+import com.airtasker.ratelimiter.core.Rate;
 import com.airtasker.ratelimiter.core.RateLimiter;
+import com.airtasker.ratelimiter.core.metrics.RateLimiterMetrics;
 import org.assertj.core.api.InstanceOfAssertFactories;
 import org.assertj.core.api.InstanceOfAssertFactory;
 import org.junit.jupiter.api.Test;
@@ -8,14 +14,20 @@ import org.mockito.ArgumentCaptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @SuppressWarnings("unchecked")
@@ -26,28 +38,30 @@ public class RateLimiterRequestFilterTest {
     @Test
     public void shouldDoNothingIfRateLimiterNotReached() {
         final var rateLimiter = (RateLimiter<ContainerRequestContext>) mock(RateLimiter.class);
-        when(rateLimiter.accept(any())).thenReturn(Optional.empty());
+        when(rateLimiter.tryAccept(any(), anyLong())).thenReturn(0L);
 
         final var context = mock(ContainerRequestContext.class);
 
         final var unit = new RateLimiterRequestFilter(rateLimiter);
         unit.filter(context);
 
-        verify(rateLimiter, times(1)).accept(same(context));
+        verify(rateLimiter, times(1)).tryAccept(same(context), eq(1L));
+        verify(rateLimiter, never()).quota(any());
         verifyNoMoreInteractions(context);
     }
 
     @Test
     public void shouldAbortWhenReteLimiterReached() {
         final var rateLimiter = (RateLimiter<ContainerRequestContext>) mock(RateLimiter.class);
-        when(rateLimiter.accept(any())).thenReturn(Optional.of(Duration.ofSeconds(250)));
+        when(rateLimiter.tryAccept(any(), anyLong())).thenReturn(Duration.ofSeconds(250).toNanos());
 
         final var context = mock(ContainerRequestContext.class);
 
         final var unit = new RateLimiterRequestFilter(rateLimiter);
         unit.filter(context);
 
-        verify(rateLimiter, times(1)).accept(same(context));
+        verify(rateLimiter, times(1)).tryAccept(same(context), eq(1L));
+        verify(rateLimiter, never()).quota(any());
 
         final var responseCaptor = ArgumentCaptor.forClass(Response.class);
         verify(context, times(1)).abortWith(responseCaptor.capture());
@@ -55,8 +69,184 @@ public class RateLimiterRequestFilterTest {
         final var response = responseCaptor.getValue();
 
         assertThat(response.getStatus()).isEqualTo(429);
-        assertThat(response.getEntity()).asInstanceOf(InstanceOfAssertFactories.STRING)
+        assertThat(response.getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("250");
+        assertThat(response.getEntity()).asInstanceOf(InstanceOfAssertFactories.BYTE_ARRAY)
+                .asString(StandardCharsets.UTF_8)
                 .isEqualTo("Rate limit exceeded. Try again in 250 seconds");
     }
 
+    @Test
+    public void shouldReuseEntityForSameSeconds() {
+        final var rateLimiter = (RateLimiter<ContainerRequestContext>) mock(RateLimiter.class);
+        when(rateLimiter.tryAccept(any(), anyLong()))
+                .thenReturn(Duration.ofMillis(2500).toNanos(), Duration.ofSeconds(3).toNanos());
+
+        final var context = mock(ContainerRequestContext.class);
+
+        final var unit = new RateLimiterRequestFilter(rateLimiter);
+        unit.filter(context);
+        unit.filter(context);
+
+        final var responseCaptor = ArgumentCaptor.forClass(Response.class);
+        verify(context, times(2)).abortWith(responseCaptor.capture());
+
+        final var responses = responseCaptor.getAllValues();
+        assertThat(responses.get(0)).isNotSameAs(responses.get(1));
+        assertThat(responses.get(0).getEntity()).isSameAs(responses.get(1).getEntity());
+    }
+
+    @Test
+    public void shouldRoundUpSecondsToRetryAfter() {
+        final var rateLimiter = (RateLimiter<ContainerRequestContext>) mock(RateLimiter.class);
+        when(rateLimiter.tryAccept(any(), anyLong()))
+                .thenReturn(Duration.ofMillis(1900).toNanos(), Duration.ofMillis(1).toNanos());
+
+        final var context = mock(ContainerRequestContext.class);
+
+        final var unit = new RateLimiterRequestFilter(rateLimiter);
+        unit.filter(context);
+        unit.filter(context);
+
+        final var responseCaptor = ArgumentCaptor.forClass(Response.class);
+        verify(context, times(2)).abortWith(responseCaptor.capture());
+
+        assertThat(responseCaptor.getAllValues().get(0).getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(responseCaptor.getAllValues().get(1).getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    }
+
+    @Test
+    public void shouldAbortWithEmptyBody() {
+        final var rateLimiter = (RateLimiter<ContainerRequestContext>) mock(RateLimiter.class);
+        when(rateLimiter.tryAccept(any(), anyLong())).thenReturn(Duration.ofHours(2).toNanos());
+
+        final var context = mock(ContainerRequestContext.class);
+
+        final var unit = new RateLimiterRequestFilter(rateLimiter, ignored -> 1L, true);
+        unit.filter(context);
+
+        final var responseCaptor = ArgumentCaptor.forClass(Response.class);
+        verify(context, times(1)).abortWith(responseCaptor.capture());
+
+        final var response = responseCaptor.getValue();
+
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("7200");
+        assertThat(response.hasEntity()).isFalse();
+    }
+
+    @Test
+    public void shouldTakeCostFromHeader() {
+        final var rateLimiter = (RateLimiter<ContainerRequestContext>) mock(RateLimiter.class);
+        when(rateLimiter.tryAccept(any(), anyLong())).thenReturn(0L);
+
+        final var context = mock(ContainerRequestContext.class);
+        when(context.getHeaderString("Items")).thenReturn("500");
+
+        final var unit = new RateLimiterRequestFilter(rateLimiter, RateLimiterRequestFilter.costFromHeader("Items"));
+        unit.filter(context);
+
+        verify(rateLimiter, times(1)).tryAccept(same(context), eq(500L));
+        verify(context, never()).abortWith(any());
+    }
+
+    @Test
+    public void shouldRejectMissingCostHeader() {
+        final var rateLimiter = (RateLimiter<ContainerRequestContext>) mock(RateLimiter.class);
+
+        final var context = mock(ContainerRequestContext.class);
+
+        final var unit = new RateLimiterRequestFilter(rateLimiter, RateLimiterRequestFilter.costFromHeader("Items"));
+        assertThatThrownBy(() -> unit.filter(context)).isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(rateLimiter);
+    }
+
+    @Test
+    public void shouldTakeDefaultCostWithoutHeader() {
+        final var rateLimiter = (RateLimiter<ContainerRequestContext>) mock(RateLimiter.class);
+        when(rateLimiter.tryAccept(any(), anyLong())).thenReturn(0L);
+
+        final var context = mock(ContainerRequestContext.class);
+
+        final var unit = new RateLimiterRequestFilter(rateLimiter,
+                RateLimiterRequestFilter.costFromHeader("Items", 100L));
+        unit.filter(context);
+
+        verify(rateLimiter, times(1)).tryAccept(same(context), eq(100L));
+    }
+
+    @Test
+    public void shouldRejectMalformedCost() {
+        final var rateLimiter = (RateLimiter<ContainerRequestContext>) mock(RateLimiter.class);
+
+        final var context = mock(ContainerRequestContext.class);
+        when(context.getHeaderString("Items")).thenReturn("many");
+
+        final var unit = new RateLimiterRequestFilter(rateLimiter, RateLimiterRequestFilter.costFromHeader("Items"));
+        assertThatThrownBy(() -> unit.filter(context)).isInstanceOf(BadRequestException.class);
+        verifyNoInteractions(rateLimiter);
+    }
+
+    @Test
+    public void shouldCountEveryRequestOnce() {
+        final var metrics = new RateLimiterMetrics();
+        final var ticker = new ManualTicker();
+        final var rateLimiter = new KeyBasedRateLimiter<ContainerRequestContext, String>(
+                context -> context.getHeaderString("Client"),
+                ignored -> new GcraRateLimiter<>(Rate.of(1, Duration.ofMinutes(1)), ticker),
+                Duration.ofMinutes(1), KeyBasedRateLimiter.UNBOUNDED, ticker, mock(ScheduledExecutorService.class),
+                metrics
+        );
+
+        final var context = mock(ContainerRequestContext.class);
+        when(context.getHeaderString("Client")).thenReturn("client");
+
+        final var unit = new RateLimiterRequestFilter(rateLimiter);
+        unit.filter(context);
+        assertThat(metrics.accepted()).isEqualTo(1L);
+        assertThat(metrics.rejected()).isEqualTo(0L);
+
+        unit.filter(context);
+        assertThat(metrics.accepted()).isEqualTo(1L);
+        assertThat(metrics.rejected()).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldStoreQuotaOfAcceptedRequest() {
+        final var rateLimiter = (RateLimiter<ContainerRequestContext>) mock(RateLimiter.class);
+        final var quota = new QuotaStatus(10, 7, Duration.ofMillis(300).toNanos());
+        when(rateLimiter.tryAccept(any(), anyLong())).thenReturn(0L);
+        when(rateLimiter.quota(any())).thenReturn(Optional.of(quota));
+
+        final var context = mock(ContainerRequestContext.class);
+
+        final var unit = new RateLimiterRequestFilter(rateLimiter, ignored -> 1L, false, true);
+        unit.filter(context);
+
+        verify(context, times(1)).setProperty(RateLimitHeadersFilter.QUOTA_PROPERTY, quota);
+        verify(context, never()).abortWith(any());
+    }
+
+    @Test
+    public void shouldAddQuotaHeadersToRejection() {
+        final var rateLimiter = (RateLimiter<ContainerRequestContext>) mock(RateLimiter.class);
+        when(rateLimiter.tryAccept(any(), anyLong())).thenReturn(Duration.ofMillis(1500).toNanos());
+        when(rateLimiter.quota(any()))
+                .thenReturn(Optional.of(new QuotaStatus(10, 0, Duration.ofMillis(1500).toNanos())));
+
+        final var context = mock(ContainerRequestContext.class);
+
+        final var unit = new RateLimiterRequestFilter(rateLimiter, ignored -> 1L, false, true);
+        unit.filter(context);
+
+        final var responseCaptor = ArgumentCaptor.forClass(Response.class);
+        verify(context, times(1)).abortWith(responseCaptor.capture());
+
+        final var response = responseCaptor.getValue();
+
+        assertThat(response.getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+        assertThat(response.getHeaderString(RateLimitHeadersFilter.LIMIT_HEADER)).isEqualTo("10");
+        assertThat(response.getHeaderString(RateLimitHeadersFilter.REMAINING_HEADER)).isEqualTo("0");
+        assertThat(response.getHeaderString(RateLimitHeadersFilter.RESET_HEADER)).isEqualTo("2");
+    }
+
 }
@@ -0,0 +1,119 @@
+package com.airtasker.ratelimiter.jaxrs;
+
+import com.airtasker.ratelimiter.core.GcraRateLimiter;
+import com.airtasker.ratelimiter.core.Rate;
+import com.airtasker.ratelimiter.core.RateLimitExceededException;
+import com.airtasker.ratelimiter.core.RateLimiter;
+import com.airtasker.ratelimiter.core.Ticker;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class RequestShaperTest {
+
+    private static final Rate RATE = Rate.of(1, Duration.ofMillis(200));
+
+    @Test
+    public void shouldResumeRightAwayWhenAccepted() {
+        final var unit = new RequestShaper<String, String>(new GcraRateLimiter<>(RATE, Ticker.systemTicker()),
+                request -> request, Duration.ofSeconds(1), 1);
+        final var asyncResponse = mock(AsyncResponse.class);
+
+        unit.shape("key", 1L, asyncResponse, () -> "done");
+
+        verify(asyncResponse, times(1)).resume("done");
+    }
+
+    @Test
+    public void shouldDelayRequestOverTheLimit() {
+        final var unit = new RequestShaper<String, String>(new GcraRateLimiter<>(RATE, Ticker.systemTicker()),
+                request -> request, Duration.ofSeconds(1), 1);
+        final var first = mock(AsyncResponse.class);
+        final var second = mock(AsyncResponse.class);
+
+        unit.shape("key", 1L, first, () -> "first");
+        unit.shape("key", 1L, second, () -> "second");
+
+        verify(second, never()).resume(any(Object.class));
+        assertThat(unit.queueDepth("key")).isEqualTo(1);
+
+        verify(second, timeout(1000).times(1)).resume("second");
+        assertThat(unit.queueDepth("key")).isZero();
+    }
+
+    @Test
+    public void shouldRejectWhenWaitExceedsMaximum() {
+        final var unit = new RequestShaper<String, String>(new GcraRateLimiter<>(RATE, Ticker.systemTicker()),
+                request -> request, Duration.ofMillis(50), 1);
+        final var asyncResponse = mock(AsyncResponse.class);
+
+        unit.shape("key", 1L, mock(AsyncResponse.class), () -> "first");
+        unit.shape("key", 1L, asyncResponse, () -> "second");
+
+        final var response = captureResponse(asyncResponse);
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    }
+
+    @Test
+    public void shouldRejectWhenQueueOfKeyIsFull() {
+        final var unit = new RequestShaper<String, String>(new GcraRateLimiter<>(RATE, Ticker.systemTicker()),
+                request -> request, Duration.ofSeconds(1), 1);
+        final var delayed = mock(AsyncResponse.class);
+        final var rejected = mock(AsyncResponse.class);
+
+        unit.shape("key", 1L, mock(AsyncResponse.class), () -> "first");
+        unit.shape("key", 1L, delayed, () -> "second");
+        unit.shape("key", 1L, rejected, () -> "third");
+
+        assertThat(captureResponse(rejected).getStatus()).isEqualTo(429);
+        verify(delayed, timeout(1000).times(1)).resume("second");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldResumeRejectionOfDelayedRequestInExecutor() {
+        final var rateLimiter = (RateLimiter<String>) mock(RateLimiter.class);
+        when(rateLimiter.tryAccept(any(), anyLong())).thenReturn(Duration.ofMillis(100).toNanos());
+        when(rateLimiter.acquire(any(), anyLong(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new RateLimitExceededException(Duration.ofSeconds(1))));
+        final var tasks = new ArrayList<Runnable>();
+        final var unit = new RequestShaper<String, String>(rateLimiter, request -> request, Duration.ofSeconds(1), 1,
+                tasks::add);
+        final var asyncResponse = mock(AsyncResponse.class);
+
+        unit.shape("key", 1L, asyncResponse, () -> "done");
+
+        verify(asyncResponse, never()).resume(any(Object.class));
+        assertThat(tasks).hasSize(1);
+
+        tasks.get(0).run();
+        assertThat(captureResponse(asyncResponse).getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    public void shouldRejectNegativeQueueDepth() {
+        assertThatThrownBy(() -> new RequestShaper<String, String>(
+                new GcraRateLimiter<>(RATE, Ticker.systemTicker()), request -> request, Duration.ofSeconds(1), -1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Response captureResponse(AsyncResponse asyncResponse) {
+        final var responseCaptor = ArgumentCaptor.forClass(Object.class);
+        verify(asyncResponse, times(1)).resume(responseCaptor.capture());
+        return (Response) responseCaptor.getValue();
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.airtasker.ratelimiter.jaxrs.integration;
 
 
+import com.airtasker.ratelimiter.core.ConcurrencyRateLimiter;
+import com.airtasker.ratelimiter.jaxrs.ConcurrencyLimitFilter;
 import com.airtasker.ratelimiter.jaxrs.integration.resources.SampleResource;
 import com.sun.net.httpserver.HttpServer;
 import org.glassfish.jersey.jdkhttp.JdkHttpServerFactory;
@@ -8,6 +10,7 @@ import org.glassfish.jersey.server .ResourceConfig;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.core.UriBuilder;
 import java.net.URI;
 import java.net.http.HttpClient;
@@ -31,6 +34,7 @@ public class JerseyJdkHttpIntegrationTest {
     private static final Executor CLIENT_EXECUTOR = Executors.newFixedThreadPool(2);
     private static final String RATE_LIMITED_PATH = SampleResource.SAMPLE_PATH + SampleResource.RATE_LIMITED_SUBPATH;
     private static final String NOT_RATE_LIMITED_PATH = SampleResource.SAMPLE_PATH + SampleResource.NOT_RATE_LIMITED_SUBPATH;
+    private static final String FAILING_PATH = SampleResource.SAMPLE_PATH + SampleResource.FAILING_SUBPATH;
 
     private HttpServer httpServer;
     private HttpClient httpClient;
@@ -83,6 +87,40 @@ public class JerseyJdkHttpIntegrationTest {
             .allSatisfy(response -> assertThat(response.statusCode()).isEqualTo(200));
     }
 
+    @Test
+    public void testRateLimitHeaders() {
+        final var request = buildRequest(RATE_LIMITED_PATH);
+
+        final var accepted = unsafeSend(request, BodyHandlers.ofString());
+        assertThat(accepted.statusCode()).isEqualTo(200);
+        assertThat(accepted.headers().firstValue("RateLimit-Limit")).hasValue("10");
+        assertThat(accepted.headers().firstValue("RateLimit-Remaining")).hasValue("9");
+        assertThat(accepted.headers().firstValue("RateLimit-Reset")).hasValue("1");
+
+        sendRequest(request, SampleResource.RATE_LIMIT_REQUEST - 1);
+        final var rejected = unsafeSend(request, BodyHandlers.ofString());
+        assertThat(rejected.statusCode()).isEqualTo(429);
+        assertThat(rejected.headers().firstValue("Retry-After")).isPresent();
+        assertThat(rejected.headers().firstValue("RateLimit-Remaining")).hasValue("0");
+    }
+
+    @Test
+    public void testConcurrencyLimitReleasesPermitOfUnmappedException() {
+        final var rateLimiter = new ConcurrencyRateLimiter<ContainerRequestContext>(1);
+        final var config = new ResourceConfig()
+                .register(SampleResource.class)
+                .register(new ConcurrencyLimitFilter(rateLimiter, false));
+        httpServer.stop(0);
+        httpServer = JdkHttpServerFactory.createHttpServer(SERVER_URI, config);
+
+        final var request = buildRequest(FAILING_PATH);
+        assertThat(unsafeSend(request, BodyHandlers.ofString()).statusCode()).isEqualTo(500);
+        await().atMost(1, TimeUnit.SECONDS).untilAsserted(() -> assertThat(rateLimiter.isEmpty()).isTrue());
+
+        assertThat(unsafeSend(request, BodyHandlers.ofString()).statusCode()).isEqualTo(500);
+        await().atMost(1, TimeUnit.SECONDS).untilAsserted(() -> assertThat(rateLimiter.isEmpty()).isTrue());
+    }
+
     private HttpRequest buildRequest(String path) {
         return HttpRequest.newBuilder()
                 .uri(UriBuilder.fromUri(SERVER_URI).port(httpServer.getAddress().getPort()).path(path).build())
@@ -15,6 +15,7 @@ public class SampleResource {
     public static final String SAMPLE_PATH = "/sample";
     public static final String RATE_LIMITED_SUBPATH = "/rate-limited";
     public static final String NOT_RATE_LIMITED_SUBPATH = "/not-rate-limited";
+    public static final String FAILING_SUBPATH = "/failing";
 
 
     @GET
@@ -30,4 +31,10 @@ public class SampleResource {
         return Response.status(Response.Status.OK).build();
     }
 
+    @GET
+    @Path(FAILING_SUBPATH)
+    public Response failing() {
+        throw new IllegalStateException("Not mapped to a response");
+    }
+
 }